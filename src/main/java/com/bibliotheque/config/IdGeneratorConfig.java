@@ -0,0 +1,46 @@
+package com.bibliotheque.config;
+
+import com.bibliotheque.ids.BusinessIds;
+import com.bibliotheque.ids.IdGenerator;
+import com.bibliotheque.ids.SnowflakeIdGenerator;
+import com.bibliotheque.service.JobLeaseService;
+import com.bibliotheque.service.LeasedIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class IdGeneratorConfig {
+
+    /**
+     * Uses {@code app.node-number} when set; otherwise claims the first free node number
+     * through a job lease, which the lease heartbeat keeps for as long as the node is up.
+     * A claimed number is only used while its lease is known to be held.
+     */
+    @Bean
+    public IdGenerator idGenerator(JobLeaseService jobLeaseService,
+                                   @Value("${app.node-number:-1}") int nodeNumber) {
+        int node = nodeNumber >= 0 ? nodeNumber : claimNodeNumber(jobLeaseService);
+        IdGenerator generator = nodeNumber >= 0
+                ? new SnowflakeIdGenerator(node)
+                : new LeasedIdGenerator(new SnowflakeIdGenerator(node), jobLeaseService, leaseName(node));
+        BusinessIds.use(generator);
+        log.info("Id generator using node number {} on {}", node, jobLeaseService.getNodeId());
+        return generator;
+    }
+
+    private int claimNodeNumber(JobLeaseService jobLeaseService) {
+        for (int node = 0; node <= SnowflakeIdGenerator.MAX_NODE; node++) {
+            if (jobLeaseService.tryAcquire(leaseName(node))) {
+                return node;
+            }
+        }
+        throw new IllegalStateException("No free id node number left");
+    }
+
+    private static String leaseName(int node) {
+        return "id-node-" + node;
+    }
+}
@@ -1,10 +1,15 @@
 package com.bibliotheque.config;
 
 import jakarta.annotation.PostConstruct;
+import com.bibliotheque.search.TextAnalyzer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class SchemaFixer {
 
@@ -29,4 +34,70 @@ public class SchemaFixer {
             System.out.println("SchemaFixer: Error during schema fix: " + e.getMessage());
         }
     }
+
+    /**
+     * Rows created before optimistic locking have a NULL version, which Hibernate cannot
+     * update. Runs once the schema update has added the column.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillVersions() {
+        for (String table : new String[]{"loans", "resources"}) {
+            try {
+                int rows = jdbcTemplate.update("UPDATE " + table + " SET version = 0 WHERE version IS NULL");
+                if (rows > 0) {
+                    System.out.println("SchemaFixer: Initialised version on " + rows + " rows of '" + table + "'.");
+                }
+            } catch (Exception e) {
+                System.out.println("SchemaFixer: Error during version backfill: " + e.getMessage());
+            }
+        }
+
+        try {
+            // Loans charged before the fee ledger existed are posted by the next accrual run
+            int rows = jdbcTemplate.update("UPDATE loans SET fee_accrued = 0, " +
+                    "fee_dirty = CASE WHEN late_fee > 0 THEN TRUE ELSE FALSE END WHERE fee_dirty IS NULL");
+            if (rows > 0) {
+                System.out.println("SchemaFixer: Queued " + rows + " loans for fee accrual.");
+            }
+        } catch (Exception e) {
+            System.out.println("SchemaFixer: Error during fee backfill: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rows inserted by SQL scripts or saved before the search and sort keys existed have
+     * none; the keys are computed in Java (collation), in batches.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillResourceKeys() {
+        try {
+            int total = 0;
+            List<Object[]> rows;
+            do {
+                rows = jdbcTemplate.query("SELECT id, title, author FROM resources WHERE title_sort_key IS NULL LIMIT 500",
+                        (rs, i) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3)});
+                List<Object[]> updates = rows.stream().map(row -> new Object[]{
+                        truncate(TextAnalyzer.phrase((String) row[1])), TextAnalyzer.sortKey(nonNull((String) row[1]), 255),
+                        truncate(TextAnalyzer.phrase((String) row[2])), TextAnalyzer.sortKey((String) row[2], 255),
+                        row[0]}).toList();
+                jdbcTemplate.batchUpdate("UPDATE resources SET title_search_key = ?, title_sort_key = ?, " +
+                        "author_search_key = ?, author_sort_key = ? WHERE id = ?", updates);
+                total += rows.size();
+            } while (rows.size() == 500);
+            if (total > 0) {
+                System.out.println("SchemaFixer: Computed search keys for " + total + " resources.");
+            }
+        } catch (Exception e) {
+            System.out.println("SchemaFixer: Error during search key backfill: " + e.getMessage());
+        }
+    }
+
+    // A NULL sort key would select the row again; title is mandatory anyway
+    private static String nonNull(String text) {
+        return text == null ? "" : text;
+    }
+
+    private static String truncate(String key) {
+        return key != null && key.length() > 255 ? key.substring(0, 255) : key;
+    }
 }
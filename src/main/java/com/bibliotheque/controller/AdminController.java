@@ -5,7 +5,9 @@ import com.bibliotheque.model.enums.Role;
 import com.bibliotheque.repository.LoanRepository;
 import com.bibliotheque.repository.ResourceRepository;
 import com.bibliotheque.repository.UserRepository;
+import com.bibliotheque.service.FeeAccrualService;
 import com.bibliotheque.service.ReportService;
+import com.bibliotheque.service.SearchResultCache;
 import com.bibliotheque.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -32,6 +34,8 @@ public class AdminController {
     private final LoanRepository loanRepository;
     private final ResourceRepository resourceRepository;
     private final ReportService reportService;
+    private final FeeAccrualService feeAccrualService;
+    private final SearchResultCache searchResultCache;
 
     @Operation(summary = "Tableau de bord Admin", description = "Affiche les statistiques globales et la liste des utilisateurs")
     @GetMapping
@@ -42,7 +46,8 @@ public class AdminController {
         model.addAttribute("totalUsers", userRepository.count());
         model.addAttribute("totalResources", resourceRepository.count());
         model.addAttribute("activeLoans", loanRepository.countByStatus(LoanStatus.IN_PROGRESS));
-        model.addAttribute("revenue", loanRepository.sumLateFees() != null ? loanRepository.sumLateFees() : 0.0);
+        model.addAttribute("revenue", feeAccrualService.totalFees());
+        model.addAttribute("searchCache", searchResultCache.stats());
 
         List<Object[]> categoryStats = loanRepository.countLoansByCategory();
         StringBuilder catLabels = new StringBuilder("[");
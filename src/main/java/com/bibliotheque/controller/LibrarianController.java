@@ -2,9 +2,8 @@ package com.bibliotheque.controller;
 
 import com.bibliotheque.model.Loan;
 import com.bibliotheque.model.enums.LoanStatus;
-import com.bibliotheque.model.enums.ReservationStatus;
 import com.bibliotheque.repository.LoanRepository;
-import com.bibliotheque.repository.ReservationRepository;
+import com.bibliotheque.service.ReservationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -23,7 +22,7 @@ import java.util.stream.Collectors;
 public class LibrarianController {
 
     private final LoanRepository loanRepository;
-    private final ReservationRepository reservationRepository;
+    private final ReservationService reservationService;
 
     @Operation(summary = "Tableau de bord Bibliothécaire", description = "Affiche les tâches en attente (validations, retours, réservations)")
     @GetMapping("/librarian")
@@ -43,7 +42,7 @@ public class LibrarianController {
             .collect(Collectors.toList());
         model.addAttribute("returnsExpected", returnsExpected);
 
-        model.addAttribute("pendingReservations", reservationRepository.findByStatus(ReservationStatus.PENDING));
+        model.addAttribute("pendingReservations", reservationService.findPendingWithPositions());
 
         model.addAttribute("overdueLoans", loanRepository.findByStatus(LoanStatus.OVERDUE));
 
@@ -2,6 +2,7 @@ package com.bibliotheque.controller;
 
 import com.bibliotheque.model.Library;
 import com.bibliotheque.repository.LibraryRepository;
+import com.bibliotheque.service.BranchLocatorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -19,9 +20,11 @@ import org.springframework.web.bind.annotation.*;
 public class LibraryController {
 
     private final LibraryRepository libraryRepository;
+    private final BranchLocatorService branchLocatorService;
 
-    public LibraryController(LibraryRepository libraryRepository) {
+    public LibraryController(LibraryRepository libraryRepository, BranchLocatorService branchLocatorService) {
         this.libraryRepository = libraryRepository;
+        this.branchLocatorService = branchLocatorService;
     }
 
     @Operation(summary = "Liste des bibliothèques", description = "Affiche la liste de toutes les bibliothèques")
@@ -45,6 +48,7 @@ public class LibraryController {
             return "libraries/form";
         }
         libraryRepository.save(library);
+        branchLocatorService.rebuild();
         return "redirect:/libraries";
     }
 
@@ -65,6 +69,7 @@ public class LibraryController {
         }
         library.setId(id);
         libraryRepository.save(library);
+        branchLocatorService.rebuild();
         return "redirect:/libraries";
     }
 
@@ -72,6 +77,7 @@ public class LibraryController {
     @GetMapping("/{id}/delete")
     public String delete(@Parameter(description = "ID de la bibliothèque") @PathVariable Long id) {
         libraryRepository.deleteById(id);
+        branchLocatorService.rebuild();
         return "redirect:/libraries";
     }
 }
@@ -0,0 +1,54 @@
+package com.bibliotheque.controller;
+
+import com.bibliotheque.dto.BatchLoanRequest;
+import com.bibliotheque.dto.BatchLoanResult;
+import com.bibliotheque.service.LoanService;
+import com.bibliotheque.service.OptimisticLockRetry;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.function.Function;
+
+@RestController
+@RequestMapping("/loans/batch")
+@RequiredArgsConstructor
+@Tag(name = "Prêts (lot)", description = "Traitement en lot des prêts au comptoir")
+public class LoanBatchController {
+
+    private final LoanService loanService;
+    private final OptimisticLockRetry optimisticLockRetry;
+
+    @Operation(summary = "Valider des prêts en lot", description = "Approuve plusieurs demandes de prêt en une seule transaction (Bibliothécaire/Admin)")
+    @PostMapping("/approve")
+    public BatchLoanResult approve(@Valid @RequestBody BatchLoanRequest request) {
+        return run("approve", request, loanService::approveAll);
+    }
+
+    @Operation(summary = "Retourner des prêts en lot", description = "Marque plusieurs prêts comme retournés (Bibliothécaire/Admin)")
+    @PostMapping("/return")
+    public BatchLoanResult returnLoans(@Valid @RequestBody BatchLoanRequest request) {
+        return run("return", request, loanService::returnAll);
+    }
+
+    @Operation(summary = "Renouveler des prêts en lot", description = "Prolonge plusieurs prêts (Bibliothécaire/Admin)")
+    @PostMapping("/renew")
+    public BatchLoanResult renew(@Valid @RequestBody BatchLoanRequest request) {
+        return run("renew", request, loanService::renewAll);
+    }
+
+    // Timed around the transactional call so the commit (and its JDBC batches) is included;
+    // a version conflict rolls the whole batch back, so it is retried as a whole
+    private BatchLoanResult run(String operation, BatchLoanRequest request,
+                                Function<List<Long>, List<BatchLoanResult.Item>> batch) {
+        long started = System.nanoTime();
+        List<BatchLoanResult.Item> items = optimisticLockRetry.execute(() -> batch.apply(request.getLoanIds()));
+        return BatchLoanResult.of(operation, items, System.nanoTime() - started);
+    }
+}
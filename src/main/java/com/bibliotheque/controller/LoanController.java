@@ -1,14 +1,20 @@
 package com.bibliotheque.controller;
 
+import com.bibliotheque.dto.LoanRow;
 import com.bibliotheque.model.Loan;
 import com.bibliotheque.model.Reservation;
 import com.bibliotheque.model.Resource;
 import com.bibliotheque.model.User;
+import com.bibliotheque.model.enums.LoanStatus;
+import com.bibliotheque.service.IdempotencyStore;
 import com.bibliotheque.service.LoanService;
+import com.bibliotheque.service.OptimisticLockRetry;
 import com.bibliotheque.service.ReservationService;
+import com.bibliotheque.service.ReservationWaitingRoom;
 import com.bibliotheque.service.ResourceService;
 import com.bibliotheque.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -19,6 +25,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.Parameter;
+import java.security.Principal;
 import java.util.List;
 
 @Controller
@@ -27,37 +34,59 @@ import java.util.List;
 @Tag(name = "Prêts", description = "Gestion des emprunts et réservations")
 public class LoanController {
 
+    static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+
     private final LoanService loanService;
     private final UserService userService;
     private final ReservationService reservationService;
     private final ResourceService resourceService;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final IdempotencyStore idempotencyStore;
+    private final ReservationWaitingRoom waitingRoom;
 
-    @Operation(summary = "Réserver une ressource", description = "Crée une demande de prêt ou une réservation si indisponible")
+    @Operation(summary = "Réserver une ressource", description = "Crée une demande de prêt ou une réservation si indisponible. Les demandes passent par une file d'attente traitée dans l'ordre d'arrivée ; une même clé d'idempotence n'est traitée qu'une fois.")
     @PostMapping("/reserve/{resourceId}")
-    public String reserve(@Parameter(description = "ID de la ressource") @PathVariable Long resourceId, RedirectAttributes redirectAttributes) {
+    public String reserve(@Parameter(description = "ID de la ressource") @PathVariable Long resourceId,
+                          @Parameter(description = "Clé d'idempotence") @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyHeader,
+                          @RequestParam(value = "idempotencyKey", required = false) String idempotencyKey,
+                          Principal principal, RedirectAttributes redirectAttributes) {
         User user = userService.getCurrentUser().orElseThrow(() -> new RuntimeException("User not found"));
+        String key = scopedKey(principal, "reserve/" + resourceId, idempotencyHeader, idempotencyKey);
         try {
-            Resource resource = resourceService.find(resourceId)
-                    .orElseThrow(() -> new IllegalArgumentException("Resource not found"));
+            // A retry queues again and is answered with the first attempt's stored outcome when its turn comes
+            ReservationWaitingRoom.Ticket ticket = waitingRoom.enter(callerOf(principal), resourceId, () -> idempotencyStore.execute(key, () -> {
+                Resource resource = resourceService.find(resourceId)
+                        .orElseThrow(() -> new IllegalArgumentException("Resource not found"));
 
-            if (resource.getAvailableCopies() > 0) {
-                loanService.reserve(user, resourceId);
-                redirectAttributes.addFlashAttribute("success", "Réservation confirmée (Prêt créé) !");
-            } else {
+                if (resource.getAvailableCopies() > 0 && !reservationService.hasWaiting(resource)) {
+                    loanService.reserve(user, resourceId);
+                    return "Réservation confirmée (Prêt créé) !";
+                }
                 Reservation reservation = reservationService.createReservation(user, resource);
-                redirectAttributes.addFlashAttribute("success", "Ressource indisponible. Vous êtes en file d'attente (Position: " + reservation.getPositionInQueue() + ")");
-            }
+                return "Ressource indisponible. Vous êtes en file d'attente (Position: " + reservation.getPositionInQueue() + ")";
+            }));
+            String message = waitingRoom.await(ticket).orElse("Demande enregistrée (ticket n°" + ticket.getNumber()
+                    + "). Elle sera traitée dans l'ordre d'arrivée.");
+            redirectAttributes.addFlashAttribute("success", message);
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Echec : " + e.getMessage());
         }
         return "redirect:/loans/my-loans";
     }
 
+    @Operation(summary = "Suivre une demande de réservation", description = "Etat d'un ticket de la file d'attente des réservations")
+    @GetMapping("/tickets/{ticket}")
+    @ResponseBody
+    public ResponseEntity<ReservationWaitingRoom.Status> ticketStatus(@Parameter(description = "Numéro du ticket") @PathVariable long ticket,
+                                                                      Principal principal) {
+        return ResponseEntity.of(waitingRoom.status(ticket, callerOf(principal)));
+    }
+
     @Operation(summary = "Valider un prêt", description = "Approuve une demande de prêt (Bibliothécaire/Admin)")
     @PostMapping("/{id}/approve")
     public String approve(@Parameter(description = "ID du prêt") @PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
-            loanService.approve(id);
+            optimisticLockRetry.execute(() -> loanService.approve(id));
             redirectAttributes.addFlashAttribute("success", "Loan approved successfully.");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Error approving loan: " + e.getMessage());
@@ -67,10 +96,18 @@ public class LoanController {
 
     @Operation(summary = "Retourner un prêt", description = "Marque un prêt comme retourné")
     @PostMapping("/{id}/return")
-    public String returnLoan(@Parameter(description = "ID du prêt") @PathVariable Long id, RedirectAttributes redirectAttributes) {
+    public String returnLoan(@Parameter(description = "ID du prêt") @PathVariable Long id,
+                             @Parameter(description = "Clé d'idempotence") @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyHeader,
+                             @RequestParam(value = "idempotencyKey", required = false) String idempotencyKey,
+                             Principal principal, RedirectAttributes redirectAttributes) {
+        String key = scopedKey(principal, "return/" + id, idempotencyHeader, idempotencyKey);
         try {
-            loanService.returnLoan(id);
-            redirectAttributes.addFlashAttribute("success", "Loan returned successfully.");
+            // The retry wraps the key too: a lost race rolls both back and the next attempt claims it again
+            String message = optimisticLockRetry.execute(() -> idempotencyStore.execute(key, () -> {
+                loanService.returnLoan(id);
+                return "Loan returned successfully.";
+            }));
+            redirectAttributes.addFlashAttribute("success", message);
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Error returning loan: " + e.getMessage());
         }
@@ -79,21 +116,41 @@ public class LoanController {
 
     @Operation(summary = "Renouveler un prêt", description = "Prolonge la durée d'un prêt")
     @PostMapping("/{id}/renew")
-    public String renew(@Parameter(description = "ID du prêt") @PathVariable Long id, RedirectAttributes redirectAttributes) {
+    public String renew(@Parameter(description = "ID du prêt") @PathVariable Long id,
+                        @Parameter(description = "Clé d'idempotence") @RequestHeader(value = IDEMPOTENCY_HEADER, required = false) String idempotencyHeader,
+                        @RequestParam(value = "idempotencyKey", required = false) String idempotencyKey,
+                        Principal principal, RedirectAttributes redirectAttributes) {
+        String key = scopedKey(principal, "renew/" + id, idempotencyHeader, idempotencyKey);
         try {
-            loanService.renew(id);
-            redirectAttributes.addFlashAttribute("success", "Loan renewed successfully.");
+            String message = optimisticLockRetry.execute(() -> idempotencyStore.execute(key, () -> {
+                loanService.renew(id);
+                return "Loan renewed successfully.";
+            }));
+            redirectAttributes.addFlashAttribute("success", message);
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Renewal failed: " + e.getMessage());
         }
         return "redirect:/loans/my-loans";
     }
 
+    // Scoped to the caller and the target, so one client's key can never replay another's result
+    private static String scopedKey(Principal principal, String target, String header, String param) {
+        String key = header != null && !header.isBlank() ? header : param;
+        if (key == null || key.isBlank()) {
+            return null;
+        }
+        return callerOf(principal) + "|" + target + "|" + key;
+    }
+
+    private static String callerOf(Principal principal) {
+        return principal != null ? principal.getName() : "anonymous";
+    }
+
     @Operation(summary = "Mes prêts", description = "Affiche la liste des prêts de l'utilisateur connecté")
     @GetMapping("/my-loans")
     public String myLoans(Model model) {
         User user = userService.getCurrentUser().orElseThrow(() -> new RuntimeException("User not found"));
-        List<Loan> loans = loanService.findByUser(user);
+        List<LoanRow> loans = loanService.listByUser(user);
         model.addAttribute("loans", loans);
         return "loans/my-loans";
     }
@@ -101,7 +158,7 @@ public class LoanController {
     @Operation(summary = "Prêts en attente", description = "Liste les prêts en attente de validation (Admin/Bibliothécaire)")
     @GetMapping("/pending")
     public String pendingLoans(Model model) {
-        List<Loan> loans = loanService.findPendingLoans();
+        List<LoanRow> loans = loanService.listByStatus(LoanStatus.RESERVED);
         model.addAttribute("loans", loans);
         return "loans/pending";
     }
@@ -109,7 +166,7 @@ public class LoanController {
     @Operation(summary = "Prêts en retard", description = "Liste les prêts en retard (Admin/Bibliothécaire)")
     @GetMapping("/overdue")
     public String overdueLoans(Model model) {
-        List<Loan> loans = loanService.findOverdueLoans();
+        List<LoanRow> loans = loanService.listByStatus(LoanStatus.OVERDUE);
         model.addAttribute("loans", loans);
         return "loans/overdue";
     }
@@ -117,7 +174,7 @@ public class LoanController {
     @Operation(summary = "Tous les prêts", description = "Liste historique de tous les prêts (Admin/Bibliothécaire)")
     @GetMapping("/all")
     public String allLoans(Model model) {
-        List<Loan> loans = loanService.findAll();
+        List<LoanRow> loans = loanService.listAll();
         model.addAttribute("loans", loans);
         return "loans/list";
     }
@@ -135,7 +192,7 @@ public class LoanController {
     @PostMapping("/{id}/update")
     public String updateLoan(@Parameter(description = "ID du prêt") @PathVariable Long id, @ModelAttribute Loan loan, RedirectAttributes redirectAttributes) {
         try {
-            loanService.updateLoan(id, loan);
+            optimisticLockRetry.execute(() -> loanService.updateLoan(id, loan));
             redirectAttributes.addFlashAttribute("success", "Loan updated successfully.");
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", "Error updating loan: " + e.getMessage());
@@ -1,6 +1,10 @@
 package com.bibliotheque.controller;
 
+import com.bibliotheque.dto.ResourceCard;
+import com.bibliotheque.dto.NearbyBranch;
 import com.bibliotheque.dto.ResourceForm;
+import com.bibliotheque.dto.ResourceSearchRequest;
+import com.bibliotheque.dto.ResourceSlice;
 import com.bibliotheque.model.Book;
 import com.bibliotheque.model.DigitalResource;
 import com.bibliotheque.model.Resource;
@@ -12,11 +16,11 @@ import com.bibliotheque.model.enums.ResourceType;
 import com.bibliotheque.model.Library;
 import com.bibliotheque.repository.LibraryRepository;
 import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.service.BranchLocatorService;
 import com.bibliotheque.service.ResourceService;
 import com.bibliotheque.service.FileStorageService;
 import com.bibliotheque.service.ResourceSearchService;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -44,14 +48,16 @@ public class ResourceController {
   private final FileStorageService fileStorageService;
   private final LibraryRepository libraryRepository;
   private final UserService userService;
+  private final BranchLocatorService branchLocatorService;
 
-  public ResourceController(ResourceService resourceService, ResourceSearchService resourceSearchService, ResourceRepository resourceRepository, FileStorageService fileStorageService, LibraryRepository libraryRepository, UserService userService) {
+  public ResourceController(ResourceService resourceService, ResourceSearchService resourceSearchService, ResourceRepository resourceRepository, FileStorageService fileStorageService, LibraryRepository libraryRepository, UserService userService, BranchLocatorService branchLocatorService) {
     this.resourceService = resourceService;
     this.resourceSearchService = resourceSearchService;
     this.resourceRepository = resourceRepository;
     this.fileStorageService = fileStorageService;
     this.libraryRepository = libraryRepository;
     this.userService = userService;
+    this.branchLocatorService = branchLocatorService;
   }
 
   @Operation(summary = "Mes ressources (Bibliothécaire)", description = "Recherche dans les ressources de la bibliothèque du bibliothécaire")
@@ -61,8 +67,9 @@ public class ResourceController {
       if (currentUser.isPresent() && currentUser.get().getRole() == Role.ROLE_LIBRARIAN && currentUser.get().getLibrary() != null) {
           request.setLibraryId(currentUser.get().getLibrary().getId());
           
-          Page<Resource> resources = resourceSearchService.search(request);
+          ResourceSlice<ResourceCard> resources = resourceSearchService.browse(request);
           model.addAttribute("resources", resources);
+          model.addAttribute("facets", resourceSearchService.facets(request));
           model.addAttribute("request", request);
           model.addAttribute("categories", Category.values());
           model.addAttribute("libraries", libraryRepository.findAll());
@@ -75,8 +82,9 @@ public class ResourceController {
   @Operation(summary = "Liste des ressources", description = "Affiche la page de recherche principale des ressources")
   @GetMapping("/resources")
   public String list(@ModelAttribute com.bibliotheque.dto.ResourceSearchRequest request, Model model) {
-    Page<Resource> resources = resourceSearchService.search(request);
+    ResourceSlice<ResourceCard> resources = resourceSearchService.browse(request);
     model.addAttribute("resources", resources);
+    model.addAttribute("facets", resourceSearchService.facets(request));
     model.addAttribute("request", request);
     model.addAttribute("categories", Category.values());
     model.addAttribute("libraries", libraryRepository.findAll());
@@ -108,6 +116,20 @@ public class ResourceController {
     return "resources/detail";
   }
 
+  @Operation(summary = "Bibliothèques les plus proches", description = "Bibliothèques les plus proches ayant un exemplaire disponible du même ISBN ; sans position, la distance est mesurée depuis la bibliothèque de la ressource")
+  @GetMapping("/resources/{id}/nearest")
+  @ResponseBody
+  public ResponseEntity<List<NearbyBranch>> nearest(@Parameter(description = "ID de la ressource") @PathVariable Long id,
+                                                    @Parameter(description = "Latitude du lecteur") @RequestParam(required = false) Double lat,
+                                                    @Parameter(description = "Longitude du lecteur") @RequestParam(required = false) Double lon,
+                                                    @Parameter(description = "Nombre de bibliothèques") @RequestParam(defaultValue = "3") int k) {
+    try {
+      return ResponseEntity.of(branchLocatorService.nearest(id, lat, lon, Math.min(Math.max(k, 1), 20)));
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().build();
+    }
+  }
+
   @Operation(summary = "Recherche simple", description = "Recherche des ressources avec filtres basiques")
   @GetMapping("/resources/search")
   public String search(@RequestParam(value = "query", required = false) String query,
@@ -118,7 +140,16 @@ public class ResourceController {
                        @RequestParam(value = "page", defaultValue = "0") int page,
                        @RequestParam(value = "size", defaultValue = "10") int size,
                        Model model) {
-    Page<Resource> resources = resourceService.search(query, author, category, available, libraryId, PageRequest.of(page, size));
+    // Text criteria are answered by the catalog index, as for the full search, not by LIKE '%x%' scans
+    ResourceSearchRequest request = new ResourceSearchRequest();
+    request.setQuery(query);
+    request.setAuthor(author);
+    request.setCategory(category);
+    request.setAvailable(available);
+    request.setLibraryId(libraryId);
+    request.setPage(page);
+    request.setSize(size);
+    Page<ResourceCard> resources = resourceSearchService.search(request);
     model.addAttribute("resources", resources);
     model.addAttribute("query", query);
     model.addAttribute("author", author);
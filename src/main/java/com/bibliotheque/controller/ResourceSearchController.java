@@ -1,18 +1,24 @@
 package com.bibliotheque.controller;
 
+import com.bibliotheque.dto.ResourceCard;
 import com.bibliotheque.dto.ResourceSearchRequest;
-import com.bibliotheque.model.Resource;
+import com.bibliotheque.dto.ResourceSlice;
 import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.search.Suggestion;
 import com.bibliotheque.service.ResourceSearchService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.List;
 
 @Controller
 @RequestMapping("/resources")
@@ -25,12 +31,21 @@ public class ResourceSearchController {
     @Operation(summary = "Recherche avancée", description = "Effectue une recherche détaillée sur les ressources")
     @GetMapping("/search-advanced")
     public String search(@ModelAttribute ResourceSearchRequest request, Model model) {
-        Page<Resource> results = resourceSearchService.search(request);
+        ResourceSlice<ResourceCard> results = resourceSearchService.browse(request);
         
         model.addAttribute("resources", results);
+        model.addAttribute("facets", resourceSearchService.facets(request));
         model.addAttribute("request", request);
         model.addAttribute("categories", Category.values());
         
         return "resources/search";
     }
+
+    @Operation(summary = "Suggestions de saisie", description = "Complète le texte saisi avec les titres, auteurs et séries les plus empruntés")
+    @GetMapping("/suggest")
+    @ResponseBody
+    public List<Suggestion> suggest(@Parameter(description = "Début du texte saisi") @RequestParam("q") String prefix,
+                                    @Parameter(description = "Nombre maximal de suggestions") @RequestParam(defaultValue = "8") int limit) {
+        return resourceSearchService.suggest(prefix, limit);
+    }
 }
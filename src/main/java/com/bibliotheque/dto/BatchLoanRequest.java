@@ -0,0 +1,14 @@
+package com.bibliotheque.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchLoanRequest {
+    @NotEmpty
+    @Size(max = 1000)
+    private List<Long> loanIds;
+}
@@ -0,0 +1,50 @@
+package com.bibliotheque.dto;
+
+import com.bibliotheque.model.enums.LoanStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch circulation call: one entry per requested loan id, in request
+ * order, plus timings so a batch can be compared with the single-item endpoints.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchLoanResult {
+    private String operation;
+    private int requested;
+    private int succeeded;
+    private int failed;
+    private long elapsedMillis;
+    private double itemsPerSecond;
+    private List<Item> items;
+
+    public static BatchLoanResult of(String operation, List<Item> items, long elapsedNanos) {
+        int succeeded = (int) items.stream().filter(Item::isSuccess).count();
+        double seconds = Math.max(elapsedNanos / 1_000_000_000.0, 0.001);
+        return new BatchLoanResult(operation, items.size(), succeeded, items.size() - succeeded,
+                elapsedNanos / 1_000_000, Math.round(items.size() / seconds * 10) / 10.0, items);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private Long loanId;
+        private boolean success;
+        private LoanStatus status;
+        private String error;
+
+        public static Item ok(Long loanId, LoanStatus status) {
+            return new Item(loanId, true, status, null);
+        }
+
+        public static Item failed(Long loanId, String error) {
+            return new Item(loanId, false, null, error);
+        }
+    }
+}
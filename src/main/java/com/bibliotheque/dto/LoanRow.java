@@ -0,0 +1,14 @@
+package com.bibliotheque.dto;
+
+import com.bibliotheque.model.enums.LoanStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only row of the loan lists, with the resource and borrower columns they show.
+ */
+public record LoanRow(Long id, String loanNumber, LoanStatus status, LocalDateTime reservationDate,
+                      LocalDateTime loanDate, LocalDateTime dueDate, Double lateFee, Integer renewalCount,
+                      String resourceTitle, String resourceAuthor,
+                      String userFirstName, String userLastName, String userEmail) {
+}
@@ -0,0 +1,8 @@
+package com.bibliotheque.dto;
+
+/**
+ * A branch holding a copy of the requested title on the shelf, {@code distanceKm} away
+ * as the crow flies; {@code resources} counts its matching records (usually one).
+ */
+public record NearbyBranch(Long libraryId, String name, String address, String city, double distanceKm, int resources) {
+}
@@ -0,0 +1,12 @@
+package com.bibliotheque.dto;
+
+import com.bibliotheque.model.enums.Category;
+
+/**
+ * Read-only row of a catalog card grid: only the columns the cards show, the library
+ * city joined in. {@code sortValue} is the value of the column the list is sorted by,
+ * kept for the keyset cursors.
+ */
+public record ResourceCard(Long id, String title, String author, Category category, Integer publicationYear,
+                           Integer availableCopies, String coverImage, String libraryCity, Comparable<?> sortValue) {
+}
@@ -13,8 +13,13 @@ public class ResourceSearchRequest {
     private Integer yearMin;
     private Integer yearMax;
     private Long libraryId;
+    private String language;
+    private String publisher;
+    private boolean fuzzy; // tolerate typos in the query
     private String sort = "title"; // title, author, date, popularity
     private String direction = "asc";
     private int page = 0;
     private int size = 12;
+    private String after;  // cursor of the last row shown: next screen
+    private String before; // cursor of the first row shown: previous screen
 }
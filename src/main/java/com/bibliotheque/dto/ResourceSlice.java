@@ -0,0 +1,32 @@
+package com.bibliotheque.dto;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * One screen of search results without a total count. {@code previous} and {@code next}
+ * are opaque cursors for the neighbouring screens, {@code null} at either end.
+ */
+public record ResourceSlice<T>(List<T> content, String previous, String next) implements Iterable<T> {
+
+    public static <T> ResourceSlice<T> empty() {
+        return new ResourceSlice<>(List.of(), null, null);
+    }
+
+    public boolean hasPrevious() {
+        return previous != null;
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    public boolean isEmpty() {
+        return content.isEmpty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return content.iterator();
+    }
+}
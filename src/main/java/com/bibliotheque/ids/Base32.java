@@ -0,0 +1,54 @@
+package com.bibliotheque.ids;
+
+/**
+ * Crockford base32 for non-negative longs: 13 upper-case characters, zero-padded, without
+ * the easily misread letters I, L, O and U. Fixed width keeps string order equal to
+ * numeric order; decoding accepts lower case and the usual 0/O, 1/I/L confusions.
+ */
+public final class Base32 {
+
+    public static final int LENGTH = 13;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private Base32() {
+    }
+
+    public static String encode(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative id: " + value);
+        }
+        char[] out = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            out[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(out);
+    }
+
+    public static long decode(String code) {
+        long value = 0;
+        for (int i = 0; i < code.length(); i++) {
+            value = (value << 5) | digit(code.charAt(i));
+        }
+        return value;
+    }
+
+    private static int digit(char c) {
+        char u = Character.toUpperCase(c);
+        switch (u) {
+            case 'O':
+                return 0;
+            case 'I':
+            case 'L':
+                return 1;
+            default:
+                for (int d = 0; d < ALPHABET.length; d++) {
+                    if (ALPHABET[d] == u) {
+                        return d;
+                    }
+                }
+                throw new IllegalArgumentException("Invalid character '" + c + "'");
+        }
+    }
+}
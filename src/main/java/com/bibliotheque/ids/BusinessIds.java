@@ -0,0 +1,26 @@
+package com.bibliotheque.ids;
+
+/**
+ * Static access to the configured {@link IdGenerator} for code Spring does not inject
+ * into, such as entity {@code @PrePersist} callbacks. Until {@code IdGeneratorConfig}
+ * installs the node's generator, ids come from node 0.
+ */
+public final class BusinessIds {
+
+    private static volatile IdGenerator generator = new SnowflakeIdGenerator(0);
+
+    private BusinessIds() {
+    }
+
+    public static void use(IdGenerator idGenerator) {
+        generator = idGenerator;
+    }
+
+    public static IdGenerator generator() {
+        return generator;
+    }
+
+    public static String next() {
+        return generator.nextCode();
+    }
+}
@@ -0,0 +1,17 @@
+package com.bibliotheque.ids;
+
+/**
+ * Source of unique, time-ordered 64-bit identifiers.
+ */
+public interface IdGenerator {
+
+    long nextId();
+
+    /**
+     * Short, fixed-width rendering of {@link #nextId()} whose string order matches
+     * numeric order, suitable for unique indexed business numbers.
+     */
+    default String nextCode() {
+        return Base32.encode(nextId());
+    }
+}
@@ -0,0 +1,32 @@
+package com.bibliotheque.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running late-fee total per user, kept in step with {@link FeeLedgerEntry}.
+ * The row with {@link #GLOBAL} as user id holds the total over all users.
+ */
+@Entity
+@Table(name = "fee_balances")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeBalance {
+
+    public static final long GLOBAL = 0L;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "balance", nullable = false)
+    private Double balance;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,43 @@
+package com.bibliotheque.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * One late-fee delta posted by the nightly accrual for a loan. Rows are append-only:
+ * corrections (a final fee at return, an edit by a librarian) are posted as further deltas.
+ */
+@Entity
+@Table(name = "fee_ledger", indexes = {
+    @Index(name = "idx_fee_ledger_user", columnList = "user_id"),
+    @Index(name = "idx_fee_ledger_date", columnList = "accrual_date")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FeeLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "loan_id", nullable = false)
+    private Long loanId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "accrual_date", nullable = false)
+    private LocalDate accrualDate;
+
+    @Column(name = "amount", nullable = false)
+    private Double amount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,42 @@
+package com.bibliotheque.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A client-supplied idempotency key with the result of the request that used it, shared
+ * by all app nodes. Inserted in the request's own transaction, so the primary key makes
+ * the first attempt to commit the only one applied; purged once {@code expiresAt} has
+ * passed.
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    // SHA-256 of the scoped key, so arbitrary client keys fit and are not stored as sent
+    @Id
+    @Column(name = "key_hash", length = 64)
+    private String keyHash;
+
+    @Column(name = "owner", nullable = false, length = 150)
+    private String owner;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // What the request answered, replayed to retries
+    @Column(name = "result", length = 1000)
+    private String result;
+}
@@ -1,5 +1,6 @@
 package com.bibliotheque.model;
 
+import com.bibliotheque.ids.BusinessIds;
 import com.bibliotheque.model.enums.LoanStatus;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
@@ -7,11 +8,16 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 @Entity
-@Table(name = "loans")
+@Table(name = "loans", indexes = {
+    // The overdue sweep seeks on (due_date, id) within a status
+    @Index(name = "idx_loans_status_due_date_id", columnList = "status, due_date, id"),
+    @Index(name = "idx_loans_status_fee_accrued", columnList = "status, fee_accrued_date"),
+    @Index(name = "idx_loans_fee_dirty", columnList = "fee_dirty")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,6 +27,10 @@ public class Loan {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Version
+    @Column(name = "version")
+    private Long version;
+
     @Column(name = "loan_number", unique = true, nullable = false, updatable = false)
     private String loanNumber;
 
@@ -53,12 +63,26 @@ public class Loan {
     @Column(name = "actual_return_date")
     private LocalDateTime actualReturnDate;
 
+    @Column(name = "reminder_sent_date")
+    private LocalDateTime reminderSentDate;
+
     @Column(name = "renewal_count")
     private Integer renewalCount = 0;
 
     @Column(name = "late_fee")
     private Double lateFee = 0.0;
 
+    // Part of lateFee already posted to the fee ledger, and when
+    @Column(name = "fee_accrued")
+    private Double feeAccrued = 0.0;
+
+    @Column(name = "fee_accrued_date")
+    private LocalDate feeAccruedDate;
+
+    // Set when lateFee changes outside the nightly accrual
+    @Column(name = "fee_dirty")
+    private Boolean feeDirty = false;
+
     @Column(name = "condition_before")
     private String conditionBefore;
 
@@ -81,7 +105,7 @@ public class Loan {
     @PrePersist
     public void prePersist() {
         if (this.loanNumber == null) {
-            this.loanNumber = UUID.randomUUID().toString();
+            this.loanNumber = BusinessIds.next();
         }
         if (this.status == null) {
             this.status = LoanStatus.RESERVED;
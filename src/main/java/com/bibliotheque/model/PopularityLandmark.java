@@ -0,0 +1,28 @@
+package com.bibliotheque.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Origin of the forward-decayed popularity scores, shared by all app nodes. A single
+ * row, moved forward together with a rescale of the stored scores before they grow too
+ * large for a double.
+ */
+@Entity
+@Table(name = "popularity_landmark")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PopularityLandmark {
+
+    @Id
+    @Column(name = "id")
+    private Integer id;
+
+    @Column(name = "landmark", nullable = false)
+    private Instant landmark;
+}
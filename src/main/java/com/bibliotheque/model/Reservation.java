@@ -12,6 +12,9 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "reservations", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"user_id", "resource_id"})
+}, indexes = {
+    @Index(name = "idx_reservations_status_expiry", columnList = "status, expiry_date"),
+    @Index(name = "idx_reservations_resource_status_id", columnList = "resource_id, status, id")
 })
 @Data
 @Builder
@@ -37,10 +40,13 @@ public class Reservation {
     @Column(nullable = false)
     private LocalDateTime reservationDate;
 
+    @Column(name = "expiry_date")
     private LocalDateTime expiryDate;
 
     private LocalDateTime notificationSentDate;
 
+    // Derived, never stored: the queue is PENDING reservations of a resource in id order
+    @Transient
     private Integer positionInQueue;
 
     @Enumerated(EnumType.STRING)
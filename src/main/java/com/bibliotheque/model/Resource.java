@@ -15,7 +15,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "resources")
+@Table(name = "resources", indexes = {
+    @Index(name = "idx_resources_updated_at", columnList = "updated_at"),
+    @Index(name = "idx_resources_isbn", columnList = "isbn"),
+    // Keyset pagination seeks on (sort key, id)
+    @Index(name = "idx_resources_title_sort_id", columnList = "title_sort_key, id"),
+    @Index(name = "idx_resources_author_sort_id", columnList = "author_sort_key, id"),
+    @Index(name = "idx_resources_year_id", columnList = "publication_year, id"),
+    @Index(name = "idx_resources_popularity_id", columnList = "popularity, id")
+})
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "resource_type")
 @Data
@@ -27,6 +35,10 @@ public abstract class Resource {
   @GeneratedValue(strategy = GenerationType.IDENTITY)
   private Long id;
 
+  @Version
+  @Column(name = "version")
+  private Long version;
+
   @NotNull
   @Size(min = 1, max = 255)
   @Column(name = "title", nullable = false, length = 255)
@@ -36,6 +48,19 @@ public abstract class Resource {
   @Column(name = "author", length = 255)
   private String author;
 
+  // Derived from title and author on every save, see ResourceService.save()
+  @Column(name = "title_search_key", length = 255)
+  private String titleSearchKey;
+
+  @Column(name = "title_sort_key", length = 255)
+  private String titleSortKey;
+
+  @Column(name = "author_search_key", length = 255)
+  private String authorSearchKey;
+
+  @Column(name = "author_sort_key", length = 255)
+  private String authorSortKey;
+
   @Size(max = 50)
   @Column(name = "isbn", length = 50)
   private String isbn;
@@ -66,8 +91,9 @@ public abstract class Resource {
   @Column(name = "available_copies")
   private Integer availableCopies = 0;
 
-  @Column(name = "reservation_count")
-  private Integer reservationCount = 0;
+  // Forward-decayed demand, only ever added to in bulk by PopularityTracker
+  @Column(name = "popularity", updatable = false)
+  private Double popularity = 0.0;
 
   @Column(name = "rating")
   private Double rating;
@@ -0,0 +1,7 @@
+package com.bibliotheque.model.enums;
+
+public enum OutboxStatus {
+  PENDING,
+  SENT,
+  DEAD
+}
@@ -0,0 +1,16 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.model.FeeBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface FeeBalanceRepository extends JpaRepository<FeeBalance, Long> {
+
+    // In-place increment, so parallel accrual partitions never overwrite each other's deltas
+    @Modifying
+    @Query("UPDATE FeeBalance b SET b.balance = b.balance + :delta, b.updatedAt = :now WHERE b.userId = :userId")
+    int addToBalance(Long userId, Double delta, LocalDateTime now);
+}
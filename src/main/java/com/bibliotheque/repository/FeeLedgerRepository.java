@@ -0,0 +1,11 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.model.FeeLedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface FeeLedgerRepository extends JpaRepository<FeeLedgerEntry, Long> {
+
+    List<FeeLedgerEntry> findByLoanIdOrderById(Long loanId);
+}
@@ -0,0 +1,29 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    // A plain INSERT, so a key already claimed fails on the primary key instead of being merged
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (key_hash, owner, created_at, expires_at) " +
+                   "VALUES (:keyHash, :owner, :now, :expiresAt)", nativeQuery = true)
+    int claim(String keyHash, String owner, LocalDateTime now, LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyKey k SET k.result = :result WHERE k.keyHash = :keyHash")
+    int complete(String keyHash, String result);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.keyHash = :keyHash AND k.expiresAt <= :now")
+    int deleteIfExpired(String keyHash, LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt <= :now")
+    int deleteExpired(LocalDateTime now);
+}
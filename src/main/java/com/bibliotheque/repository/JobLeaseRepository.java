@@ -0,0 +1,21 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.model.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    // Succeeds for the current owner, or for anyone once the previous owner stopped heartbeating
+    @Modifying
+    @Query("UPDATE JobLease j SET j.owner = :owner, j.acquiredAt = :now, j.heartbeatAt = :now, j.expiresAt = :expiresAt " +
+           "WHERE j.name = :name AND (j.owner = :owner OR j.expiresAt < :now)")
+    int acquire(String name, String owner, LocalDateTime now, LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE JobLease j SET j.heartbeatAt = :now, j.expiresAt = :expiresAt WHERE j.name = :name AND j.owner = :owner")
+    int heartbeat(String name, String owner, LocalDateTime now, LocalDateTime expiresAt);
+}
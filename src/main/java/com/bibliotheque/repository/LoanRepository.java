@@ -1,14 +1,19 @@
 package com.bibliotheque.repository;
 
+import com.bibliotheque.dto.LoanRow;
 import com.bibliotheque.model.Loan;
 import com.bibliotheque.model.User;
 import com.bibliotheque.model.enums.LoanStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -22,10 +27,68 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
     
     List<Loan> findByStatusIn(List<LoanStatus> statuses);
 
+    // Loan list pages: only the columns they show, resource and borrower joined in the same query
+    String LOAN_ROW = "SELECT new com.bibliotheque.dto.LoanRow(l.id, l.loanNumber, l.status, l.reservationDate, " +
+            "l.loanDate, l.dueDate, l.lateFee, l.renewalCount, r.title, r.author, u.firstName, u.lastName, u.email) " +
+            "FROM Loan l JOIN l.resource r JOIN l.user u ";
+
+    @Query(LOAN_ROW + "WHERE l.user = :user ORDER BY l.id")
+    List<LoanRow> findRowsByUser(User user);
+
+    @Query(LOAN_ROW + "WHERE l.status = :status ORDER BY l.id")
+    List<LoanRow> findRowsByStatus(LoanStatus status);
+
+    @Query(LOAN_ROW + "ORDER BY l.id")
+    List<LoanRow> findAllRows();
+
     List<Loan> findByDueDateBeforeAndStatus(LocalDateTime date, LoanStatus status);
 
+    // Keyset pagination over the (status, due_date, id) index: first chunk, then the rows after the last (due date, id)
+    @Query("SELECT l.id, l.dueDate FROM Loan l WHERE l.status = :status AND l.dueDate < :dueBefore ORDER BY l.dueDate, l.id")
+    List<Object[]> findDueKeysBefore(LoanStatus status, LocalDateTime dueBefore, Pageable pageable);
+
+    @Query("SELECT l.id, l.dueDate FROM Loan l WHERE l.status = :status AND l.dueDate < :dueBefore " +
+           "AND (l.dueDate > :afterDue OR (l.dueDate = :afterDue AND l.id > :afterId)) ORDER BY l.dueDate, l.id")
+    List<Object[]> findDueKeysBeforeAfter(LoanStatus status, LocalDateTime dueBefore, LocalDateTime afterDue, Long afterId, Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Loan l SET l.status = :to, l.version = l.version + 1 WHERE l.id IN :ids AND l.status = :from AND l.dueDate < :dueBefore")
+    int markStatusWhereDueBefore(List<Long> ids, LoanStatus from, LoanStatus to, LocalDateTime dueBefore);
+
+    @Query("SELECT l FROM Loan l JOIN FETCH l.user JOIN FETCH l.resource WHERE l.id IN :ids AND l.status = :status ORDER BY l.id")
+    List<Loan> findWithUserAndResourceByIdInAndStatus(List<Long> ids, LoanStatus status);
+
+    @Query("SELECT l FROM Loan l JOIN FETCH l.user JOIN FETCH l.resource WHERE l.id IN :ids")
+    List<Loan> findWithUserAndResourceByIdIn(Collection<Long> ids);
+
+    @Query("SELECT l.id, l.dueDate FROM Loan l WHERE l.status = :status AND l.dueDate >= :from AND l.dueDate < :to")
+    List<Object[]> findDueDatesBetween(LoanStatus status, LocalDateTime from, LocalDateTime to);
+
+    // Seeks past the (due date, id) of the previous batch in the (status, due_date, id) index
+    @Query("SELECT l FROM Loan l JOIN FETCH l.user JOIN FETCH l.resource WHERE l.status = :status " +
+           "AND (l.dueDate > :afterDue OR (l.dueDate = :afterDue AND l.id > :afterId)) AND l.dueDate < :to " +
+           "AND l.reminderSentDate IS NULL ORDER BY l.dueDate, l.id")
+    List<Loan> findDueBetweenNotReminded(LoanStatus status, LocalDateTime afterDue, Long afterId, LocalDateTime to, Pageable pageable);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Loan l SET l.reminderSentDate = :sentAt, l.version = l.version + 1 WHERE l.id IN :ids AND l.reminderSentDate IS NULL")
+    int markReminded(List<Long> ids, LocalDateTime sentAt);
+
+    // Overdue loans not yet accrued for the day (until capped), through the (status, fee_accrued_date) index
+    @Query("SELECT l.id FROM Loan l WHERE l.status = :overdue " +
+           "AND (l.feeAccruedDate IS NULL OR l.feeAccruedDate < :day) AND (l.feeAccrued IS NULL OR l.feeAccrued < :cap)")
+    List<Long> findIdsToAccrue(LoanStatus overdue, LocalDate day, Double cap);
+
+    // Loans flagged after a return or an edit, through the fee_dirty index
+    @Query("SELECT l.id FROM Loan l WHERE l.feeDirty = true")
+    List<Long> findFeeDirtyIds();
+
     long countByUserAndStatusIn(User user, List<LoanStatus> statuses);
 
+    // Past demand, to seed the popularity scores
+    @Query("SELECT l.resource.id, l.reservationDate FROM Loan l WHERE l.reservationDate IS NOT NULL")
+    List<Object[]> findDemandHistory();
+
     // Stats
     long countByStatus(LoanStatus status);
 
@@ -46,9 +109,6 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
 
     List<Loan> findByLoanDateBetween(LocalDateTime start, LocalDateTime end);
 
-    @org.springframework.data.jpa.repository.Query("SELECT SUM(l.lateFee) FROM Loan l WHERE l.lateFee > 0")
-    Double sumLateFees();
-
     @org.springframework.data.jpa.repository.Query("SELECT l.resource.category, COUNT(l) FROM Loan l WHERE l.user = :user GROUP BY l.resource.category ORDER BY COUNT(l) DESC")
     List<Object[]> findFavoriteCategoriesByUser(User user, Pageable pageable);
 }
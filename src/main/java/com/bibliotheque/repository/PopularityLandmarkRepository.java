@@ -0,0 +1,17 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.model.PopularityLandmark;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface PopularityLandmarkRepository extends JpaRepository<PopularityLandmark, Integer> {
+
+    // Held until commit, so score additions and rescaling from several nodes never interleave
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM PopularityLandmark p WHERE p.id = :id")
+    Optional<PopularityLandmark> findForUpdate(Integer id);
+}
@@ -4,9 +4,16 @@ import com.bibliotheque.model.Reservation;
 import com.bibliotheque.model.Resource;
 import com.bibliotheque.model.User;
 import com.bibliotheque.model.enums.ReservationStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,11 +22,78 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>
     
     Optional<Reservation> findByUserAndResourceAndStatusIn(User user, Resource resource, List<ReservationStatus> statuses);
     
-    List<Reservation> findByResourceAndStatusOrderByReservationDateAsc(Resource resource, ReservationStatus status);
-    
     long countByResourceAndStatus(Resource resource, ReservationStatus status);
 
+    boolean existsByResourceIdAndStatus(Long resourceId, ReservationStatus status);
+
+    // Head of the queue: first entry of the (resource_id, status, id) index range
+    Optional<Reservation> findFirstByResourceAndStatusOrderByIdAsc(Resource resource, ReservationStatus status);
+
+    // Entries ahead in the queue, counted on the (resource_id, status, id) index
+    @Query("SELECT COUNT(r) FROM Reservation r WHERE r.resource = :resource AND r.status = :status AND r.id < :id")
+    long countAhead(Resource resource, ReservationStatus status, Long id);
+
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.user JOIN FETCH r.resource WHERE r.status = :status ORDER BY r.resource.id, r.id")
+    List<Reservation> findByStatusOrderedByQueue(ReservationStatus status);
+
     List<Reservation> findByUser(User user);
 
     List<Reservation> findByStatus(ReservationStatus status);
+
+    // Past demand, to seed the popularity scores
+    @Query("SELECT r.resource.id, r.reservationDate FROM Reservation r WHERE r.reservationDate IS NOT NULL")
+    List<Object[]> findDemandHistory();
+
+    @Query("SELECT r.id, r.expiryDate FROM Reservation r WHERE r.status = :status AND r.expiryDate >= :from AND r.expiryDate < :to")
+    List<Object[]> findExpiryDatesBetween(ReservationStatus status, LocalDateTime from, LocalDateTime to);
+
+    // Lapsed pickups in (status, expiry_date) index order: first chunk, then the rows after the last (expiry, id);
+    // rows stay locked until commit
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.status = :status AND r.expiryDate <= :now ORDER BY r.expiryDate, r.id")
+    List<Reservation> findDueForUpdate(ReservationStatus status, LocalDateTime now, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.status = :status AND r.expiryDate <= :now " +
+           "AND (r.expiryDate > :afterExpiry OR (r.expiryDate = :afterExpiry AND r.id > :afterId)) ORDER BY r.expiryDate, r.id")
+    List<Reservation> findDueForUpdateAfter(ReservationStatus status, LocalDateTime now, LocalDateTime afterExpiry,
+                                            Long afterId, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.id IN :ids AND r.status = :status AND r.expiryDate <= :now ORDER BY r.id")
+    List<Reservation> findDueForUpdateByIdIn(Collection<Long> ids, ReservationStatus status, LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Reservation r SET r.status = :to WHERE r.id IN :ids")
+    int markStatus(Collection<Long> ids, ReservationStatus to);
+
+    // Head of each resource's queue in one statement
+    @Query("SELECT r FROM Reservation r WHERE r.id IN " +
+           "(SELECT MIN(q.id) FROM Reservation q WHERE q.status = :status AND q.resource.id IN :resourceIds GROUP BY q.resource.id)")
+    List<Reservation> findQueueHeads(ReservationStatus status, Collection<Long> resourceIds);
+
+    // Titles with copies on the shelf and patrons still waiting: (resource id, available copies, queue length)
+    @Query("SELECT r.resource.id, r.resource.availableCopies, COUNT(r) FROM Reservation r " +
+           "WHERE r.status = :status AND r.resource.availableCopies > 0 " +
+           "GROUP BY r.resource.id, r.resource.availableCopies ORDER BY r.resource.id")
+    List<Object[]> findWaitingWithCopiesAvailable(ReservationStatus status);
+
+    // Conditional on status, so two promoters can never both hand a copy to the same patron
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Reservation r SET r.status = :to, r.notificationSentDate = :now, r.expiryDate = :expiry " +
+           "WHERE r.id IN :ids AND r.status = :from")
+    int promoteIfPending(Collection<Long> ids, ReservationStatus from, ReservationStatus to, LocalDateTime now, LocalDateTime expiry);
+
+    // Queue heads still in the given status, locked until commit; a head promoted meanwhile drops out
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.id IN :ids AND r.status = :status ORDER BY r.id")
+    List<Reservation> findByIdInAndStatusForUpdate(Collection<Long> ids, ReservationStatus status);
+
+    // For rows locked by the caller, so no condition is needed
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Reservation r SET r.status = :to, r.notificationSentDate = :now, r.expiryDate = :expiry WHERE r.id IN :ids")
+    int markPromoted(Collection<Long> ids, ReservationStatus to, LocalDateTime now, LocalDateTime expiry);
+
+    @Query("SELECT r FROM Reservation r JOIN FETCH r.user JOIN FETCH r.resource WHERE r.id IN :ids ORDER BY r.id")
+    List<Reservation> findWithUserAndResourceByIdIn(Collection<Long> ids);
 }
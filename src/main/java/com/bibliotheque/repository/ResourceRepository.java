@@ -2,11 +2,78 @@ package com.bibliotheque.repository;
 
 import com.bibliotheque.model.Resource;
 import com.bibliotheque.model.enums.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
-public interface ResourceRepository extends JpaRepository<Resource, Long>, JpaSpecificationExecutor<Resource> {
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ResourceRepository extends JpaRepository<Resource, Long>, JpaSpecificationExecutor<Resource>, ResourceRepositoryCustom {
   Page<Resource> findByCategory(Category category, Pageable pageable);
+
+  // Conditional decrement: returns 0 when no copy is left, so the caller never oversells.
+  // updated_at moves with the stock, so other nodes' catalog indexes pick the change up
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Resource r SET r.availableCopies = r.availableCopies - 1, r.version = r.version + 1, r.updatedAt = OFFSET DATETIME WHERE r.id = :id AND r.availableCopies > 0")
+  int decrementAvailableCopies(Long id);
+
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Resource r SET r.availableCopies = r.availableCopies + 1, r.version = r.version + 1, r.updatedAt = OFFSET DATETIME WHERE r.id = :id")
+  int incrementAvailableCopies(Long id);
+
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Resource r SET r.availableCopies = r.availableCopies + :count, r.version = r.version + 1, r.updatedAt = OFFSET DATETIME WHERE r.id IN :ids")
+  int addAvailableCopies(Collection<Long> ids, int count);
+
+  // Keyset batches for rebuilding the in-memory catalog structures
+  @Query("SELECT r FROM Resource r WHERE r.id > :afterId ORDER BY r.id")
+  List<Resource> findBatchAfter(Long afterId, Pageable pageable);
+
+  List<Resource> findByUpdatedAtAfter(ZonedDateTime since);
+
+  // Filterable values as stored; no flush first, so pending edits of a managed instance stay unseen
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+  @Query("SELECT r.isActive, r.category, l.id, r.language, r.publisher, r.publicationYear, r.availableCopies " +
+         "FROM Resource r LEFT JOIN r.library l WHERE r.id = :id")
+  List<Object[]> findFilterValues(Long id);
+
+  @Query("SELECT r.id, r.availableCopies FROM Resource r WHERE r.id IN :ids")
+  List<Object[]> findAvailableCopies(Collection<Long> ids);
+
+  // Additive and without a version bump: concurrent flushes and edits never conflict
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Resource r SET r.popularity = COALESCE(r.popularity, 0) + :delta WHERE r.id IN :ids")
+  int addPopularity(Collection<Long> ids, double delta);
+
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Resource r SET r.popularity = r.popularity * :factor WHERE r.popularity IS NOT NULL")
+  int scalePopularity(double factor);
+
+  @Query("SELECT r.id, r.popularity FROM Resource r WHERE r.id IN :ids")
+  List<Object[]> findPopularity(Collection<Long> ids);
+
+  @Query("SELECT r.id, r.popularity FROM Resource r WHERE r.popularity > 0")
+  List<Object[]> findPopular();
+
+  long countByPopularityIsNull();
+
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Resource r SET r.popularity = :popularity WHERE r.id = :id AND r.popularity IS NULL")
+  int initPopularity(Long id, double popularity);
+
+  @Modifying(flushAutomatically = true)
+  @Query("UPDATE Resource r SET r.popularity = 0 WHERE r.popularity IS NULL")
+  int initMissingPopularity();
+
+  @Query("SELECT r.library.id, COUNT(r) FROM Resource r WHERE r.isbn = :isbn AND r.isActive = true " +
+         "AND r.availableCopies > 0 AND r.library IS NOT NULL GROUP BY r.library.id")
+  List<Object[]> countAvailableByLibrary(String isbn);
 }
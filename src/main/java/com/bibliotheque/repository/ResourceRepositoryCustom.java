@@ -0,0 +1,32 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.dto.ResourceCard;
+import com.bibliotheque.model.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ResourceRepositoryCustom {
+
+    /**
+     * Cards matching {@code spec}, without the COUNT query: reads one row more than the
+     * page size to tell whether a next slice exists. Selects only the card columns, so
+     * there is no entity to hydrate or track; the sort value is that of the first sort
+     * property.
+     */
+    Slice<ResourceCard> findCardSlice(Specification<Resource> spec, Pageable pageable);
+
+    /**
+     * Cards of one page, with the total count.
+     */
+    Page<ResourceCard> findCardPage(Specification<Resource> spec, Pageable pageable);
+
+    /**
+     * Cards of the given resources, in no particular order.
+     */
+    List<ResourceCard> findCardsByIdIn(Collection<Long> ids, String sortProperty);
+}
@@ -0,0 +1,90 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.dto.ResourceCard;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.enums.Category;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.Collection;
+import java.util.List;
+
+public class ResourceRepositoryCustomImpl implements ResourceRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<ResourceCard> findCardSlice(Specification<Resource> spec, Pageable pageable) {
+        List<ResourceCard> rows = cards(spec, pageable.getSort(), (int) pageable.getOffset(), pageable.getPageSize() + 1);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    @Override
+    public Page<ResourceCard> findCardPage(Specification<Resource> spec, Pageable pageable) {
+        List<ResourceCard> rows = cards(spec, pageable.getSort(), (int) pageable.getOffset(), pageable.getPageSize());
+        // Like Spring Data: no COUNT when the page itself tells the total
+        if (pageable.getOffset() == 0 && rows.size() < pageable.getPageSize()) {
+            return new PageImpl<>(rows, pageable, rows.size());
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> count = cb.createQuery(Long.class);
+        Root<Resource> root = count.from(Resource.class);
+        Predicate predicate = spec.toPredicate(root, count, cb);
+        if (predicate != null) {
+            count.where(predicate);
+        }
+        count.select(cb.count(root));
+        return new PageImpl<>(rows, pageable, entityManager.createQuery(count).getSingleResult());
+    }
+
+    @Override
+    public List<ResourceCard> findCardsByIdIn(Collection<Long> ids, String sortProperty) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Specification<Resource> byId = (root, query, cb) -> root.get("id").in(ids);
+        return cards(byId, Sort.by(sortProperty), 0, ids.size());
+    }
+
+    private List<ResourceCard> cards(Specification<Resource> spec, Sort sort, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Resource> root = query.from(Resource.class);
+        Join<Object, Object> library = root.join("library", JoinType.LEFT);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        String sortProperty = sort.isSorted() ? sort.iterator().next().getProperty() : "id";
+        query.multiselect(root.get("id"), root.get("title"), root.get("author"), root.get("category"),
+                root.get("publicationYear"), root.get("availableCopies"), root.get("coverImage"),
+                library.get("city"), root.get(sortProperty));
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList().stream()
+                .map(row -> new ResourceCard(row.get(0, Long.class), row.get(1, String.class), row.get(2, String.class),
+                        row.get(3, Category.class), row.get(4, Integer.class), row.get(5, Integer.class),
+                        row.get(6, String.class), row.get(7, String.class), (Comparable<?>) row.get(8)))
+                .toList();
+    }
+}
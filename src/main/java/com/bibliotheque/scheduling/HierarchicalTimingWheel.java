@@ -0,0 +1,203 @@
+package com.bibliotheque.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical hashed timing wheel.
+ * <p>
+ * Level 0 has one slot per tick; each higher level covers {@code wheelSize} slots of the
+ * level below. Timeouts are kept in intrusive doubly-linked buckets, so {@link #schedule}
+ * and {@link Timeout#cancel()} are O(1), and advancing the clock only touches the slots
+ * that actually come due (entries of a higher level are cascaded down once per slot).
+ * Deadlines beyond the top level wait in an overflow bucket until the top level wraps.
+ * <p>
+ * Thread-safe: all mutations synchronize on the wheel.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int bits;
+    private final int mask;
+    private final int levels;
+    private final Bucket<T>[][] wheels;
+    private final Bucket<T> overflow = new Bucket<>();
+    private long currentTick;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || levels <= 0 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMillis and levels must be positive, wheelSize a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.levels = levels;
+        @SuppressWarnings("unchecked")
+        Bucket<T>[][] slots = (Bucket<T>[][]) new Bucket<?>[levels][wheelSize];
+        for (int l = 0; l < levels; l++) {
+            for (int s = 0; s < wheelSize; s++) {
+                slots[l][s] = new Bucket<>();
+            }
+        }
+        this.wheels = slots;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules {@code payload} to come due at {@code deadlineMillis}. Deadlines that are
+     * already past fire on the next {@link #advanceTo} call.
+     */
+    public synchronized Timeout<T> schedule(long deadlineMillis, T payload) {
+        Timeout<T> timeout = new Timeout<>(this, Math.max(deadlineMillis / tickMillis, currentTick + 1), payload);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves the clock forward to {@code nowMillis} and returns every payload that came due,
+     * in tick order.
+     */
+    public synchronized List<T> advanceTo(long nowMillis) {
+        long targetTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade(expired);
+            drain(wheels[0][(int) (currentTick & mask)], expired);
+        }
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(List<T> expired) {
+        int top = 0;
+        while (top + 1 < levels && (currentTick & ((1L << (bits * (top + 1))) - 1)) == 0) {
+            top++;
+        }
+        if (top == levels - 1 && (currentTick & ((1L << (bits * levels)) - 1)) == 0) {
+            redistribute(overflow, expired);
+        }
+        for (int level = top; level >= 1; level--) {
+            redistribute(wheels[level][(int) ((currentTick >>> (bits * level)) & mask)], expired);
+        }
+    }
+
+    private void redistribute(Bucket<T> bucket, List<T> expired) {
+        // Detach first: an overflow entry that is still out of range goes back into the same bucket
+        Timeout<T> t = bucket.detachAll();
+        while (t != null) {
+            Timeout<T> next = t.next;
+            t.prev = null;
+            t.next = null;
+            if (t.deadlineTick <= currentTick) {
+                size--;
+                t.bucket = null;
+                expired.add(t.payload);
+            } else {
+                place(t);
+            }
+            t = next;
+        }
+    }
+
+    private void drain(Bucket<T> bucket, List<T> expired) {
+        Timeout<T> t = bucket.head.next;
+        while (t != bucket.head) {
+            Timeout<T> next = t.next;
+            bucket.unlink(t);
+            t.bucket = null;
+            size--;
+            expired.add(t.payload);
+            t = next;
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        for (int level = 0; level < levels; level++) {
+            if (delta < (1L << (bits * (level + 1)))) {
+                wheels[level][(int) ((timeout.deadlineTick >>> (bits * level)) & mask)].append(timeout);
+                return;
+            }
+        }
+        overflow.append(timeout);
+    }
+
+    private synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout.bucket == null) {
+            return false;
+        }
+        timeout.bucket.unlink(timeout);
+        timeout.bucket = null;
+        size--;
+        return true;
+    }
+
+    public static final class Timeout<T> {
+
+        private final HierarchicalTimingWheel<T> wheel;
+        private final long deadlineTick;
+        private final T payload;
+        private Bucket<T> bucket;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(HierarchicalTimingWheel<T> wheel, long deadlineTick, T payload) {
+            this.wheel = wheel;
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+
+        public T payload() {
+            return payload;
+        }
+
+        /**
+         * @return {@code false} if the timeout already fired or was cancelled
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+
+    private static final class Bucket<T> {
+
+        private final Timeout<T> head = new Timeout<>(null, 0, null);
+
+        private Bucket() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        private void append(Timeout<T> t) {
+            t.bucket = this;
+            t.prev = head.prev;
+            t.next = head;
+            head.prev.next = t;
+            head.prev = t;
+        }
+
+        private Timeout<T> detachAll() {
+            if (head.next == head) {
+                return null;
+            }
+            Timeout<T> first = head.next;
+            head.prev.next = null;
+            head.prev = head;
+            head.next = head;
+            return first;
+        }
+
+        private void unlink(Timeout<T> t) {
+            t.prev.next = t.next;
+            t.next.prev = t.prev;
+            t.prev = null;
+            t.next = null;
+        }
+    }
+}
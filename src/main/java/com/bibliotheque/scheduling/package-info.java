@@ -0,0 +1 @@
+package com.bibliotheque.scheduling;
@@ -0,0 +1,8 @@
+package com.bibliotheque.search;
+
+/**
+ * One value of a facet with the number of matching resources; {@code label} is what
+ * the page shows, {@code value} what the filter takes.
+ */
+public record FacetCount(String value, String label, int count) {
+}
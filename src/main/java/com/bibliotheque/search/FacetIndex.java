@@ -0,0 +1,213 @@
+package com.bibliotheque.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Per-value bitsets over a fixed set of facets.
+ * <p>
+ * Each document gets a dense number on first sight, so the bitsets stay as small as the
+ * catalog (a million titles cost 125 KB per value). Filters become bitset ANDs, and a
+ * facet is counted either with one AND per value (few values) or by walking the
+ * matching documents once (many values, e.g. publishers), whichever touches less memory.
+ * <p>
+ * Thread-safe: reads share a lock, updates take it exclusively.
+ */
+public class FacetIndex {
+
+    private final List<String> facets;
+    private final List<Map<String, BitSet>> bitsets = new ArrayList<>();
+    private final Map<Long, Integer> docOf = new HashMap<>();
+    private final List<String[]> valuesOf = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public FacetIndex(String... facets) {
+        this.facets = List.of(facets);
+        for (int i = 0; i < facets.length; i++) {
+            bitsets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Indexes (or re-indexes) a document; facets missing from {@code values} have no value.
+     */
+    public void put(long id, Map<String, String> values) {
+        lock.writeLock().lock();
+        try {
+            int doc = docLocked(id);
+            for (int f = 0; f < facets.size(); f++) {
+                setLocked(doc, f, values.get(facets.get(f)));
+            }
+            live.set(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Changes a single facet of an indexed document; unknown documents are ignored.
+     */
+    public void set(long id, String facet, String value) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docOf.get(id);
+            if (doc != null) {
+                setLocked(doc, facetIndex(facet), value);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docOf.get(id);
+            if (doc != null) {
+                for (int f = 0; f < facets.size(); f++) {
+                    setLocked(doc, f, null);
+                }
+                live.clear(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Documents whose {@code facet} value passes {@code accept}.
+     */
+    public BitSet docs(String facet, Predicate<String> accept) {
+        lock.readLock().lock();
+        try {
+            BitSet result = new BitSet();
+            bitsets.get(facetIndex(facet)).forEach((value, docs) -> {
+                if (accept.test(value)) {
+                    result.or(docs);
+                }
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public BitSet docs(String facet, String value) {
+        return docs(facet, value::equals);
+    }
+
+    /**
+     * Documents of the given resource ids; ids never indexed are skipped.
+     */
+    public BitSet docsOf(long[] ids) {
+        lock.readLock().lock();
+        try {
+            BitSet result = new BitSet();
+            for (long id : ids) {
+                Integer doc = docOf.get(id);
+                if (doc != null) {
+                    result.set(doc);
+                }
+            }
+            result.and(live);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public BitSet all() {
+        lock.readLock().lock();
+        try {
+            return (BitSet) live.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of documents of {@code within} per value of {@code facet}.
+     */
+    public Map<String, Integer> count(String facet, BitSet within) {
+        int f = facetIndex(facet);
+        Map<String, Integer> counts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Map<String, BitSet> values = bitsets.get(f);
+            int matching = within.cardinality();
+            if ((long) values.size() * (within.length() / 64 + 1) <= matching) {
+                BitSet scratch = new BitSet();
+                values.forEach((value, docs) -> {
+                    scratch.clear();
+                    scratch.or(docs);
+                    scratch.and(within);
+                    int count = scratch.cardinality();
+                    if (count > 0) {
+                        counts.put(value, count);
+                    }
+                });
+            } else {
+                for (int doc = within.nextSetBit(0); doc >= 0; doc = within.nextSetBit(doc + 1)) {
+                    String value = doc < valuesOf.size() ? valuesOf.get(doc)[f] : null;
+                    if (value != null) {
+                        counts.merge(value, 1, Integer::sum);
+                    }
+                }
+            }
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int docLocked(long id) {
+        Integer existing = docOf.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        int doc = valuesOf.size();
+        docOf.put(id, doc);
+        valuesOf.add(new String[facets.size()]);
+        return doc;
+    }
+
+    private void setLocked(int doc, int f, String value) {
+        String[] values = valuesOf.get(doc);
+        String previous = values[f];
+        if (previous != null) {
+            BitSet docs = bitsets.get(f).get(previous);
+            docs.clear(doc);
+            if (docs.isEmpty()) {
+                bitsets.get(f).remove(previous);
+            }
+        }
+        if (value != null) {
+            bitsets.get(f).computeIfAbsent(value, v -> new BitSet()).set(doc);
+        }
+        values[f] = value;
+    }
+
+    private int facetIndex(String facet) {
+        int f = facets.indexOf(facet);
+        if (f < 0) {
+            throw new IllegalArgumentException("Unknown facet: " + facet);
+        }
+        return f;
+    }
+}
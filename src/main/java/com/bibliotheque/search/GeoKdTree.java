@@ -0,0 +1,188 @@
+package com.bibliotheque.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.LongPredicate;
+
+/**
+ * Immutable k-d tree of points on the Earth for nearest-neighbour queries.
+ * <p>
+ * Points are stored as unit vectors, so straight-line (chord) distance orders them exactly
+ * as great-circle distance does, with no special case at the poles or the date line. The
+ * tree is implicit: each range of the arrays is split at its median on x, y and z in
+ * turn. A query descends towards the target first and only opens the far side of a split
+ * when the splitting plane is closer than the k-th best match so far.
+ */
+public class GeoKdTree {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    public record Point(long id, double latitude, double longitude) {
+    }
+
+    public record Neighbor(long id, double distanceKm) {
+    }
+
+    private final long[] ids;
+    private final double[][] coords;
+
+    public GeoKdTree(List<Point> points) {
+        int n = points.size();
+        ids = new long[n];
+        coords = new double[3][n];
+        for (int i = 0; i < n; i++) {
+            Point point = points.get(i);
+            ids[i] = point.id();
+            double[] v = unitVector(point.latitude(), point.longitude());
+            coords[0][i] = v[0];
+            coords[1][i] = v[1];
+            coords[2][i] = v[2];
+        }
+        build(0, n, 0);
+    }
+
+    /**
+     * Up to {@code k} points passing {@code accept}, closest to the given position first.
+     */
+    public List<Neighbor> nearest(double latitude, double longitude, int k, LongPredicate accept) {
+        if (k <= 0 || ids.length == 0) {
+            return List.of();
+        }
+        Search search = new Search(unitVector(latitude, longitude), k, accept);
+        search.visit(0, ids.length, 0);
+        List<Neighbor> result = new ArrayList<>(search.best.size());
+        for (int i : search.best) {
+            result.add(new Neighbor(ids[i], toKm(search.chord2(i))));
+        }
+        result.sort(Comparator.comparingDouble(Neighbor::distanceKm).thenComparingLong(Neighbor::id));
+        return result;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Great-circle distance in kilometres between two positions.
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double[] a = unitVector(latitude1, longitude1);
+        double[] b = unitVector(latitude2, longitude2);
+        double dx = a[0] - b[0];
+        double dy = a[1] - b[1];
+        double dz = a[2] - b[2];
+        return toKm(dx * dx + dy * dy + dz * dz);
+    }
+
+    private final class Search {
+        private final double[] target;
+        private final int k;
+        private final LongPredicate accept;
+        // Farthest of the current best at the head
+        private final PriorityQueue<Integer> best;
+
+        Search(double[] target, int k, LongPredicate accept) {
+            this.target = target;
+            this.k = k;
+            this.accept = accept;
+            this.best = new PriorityQueue<>(Comparator.comparingDouble(this::chord2).reversed());
+        }
+
+        void visit(int from, int to, int axis) {
+            if (from >= to) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            if (accept.test(ids[mid])) {
+                if (best.size() < k) {
+                    best.add(mid);
+                } else if (chord2(mid) < chord2(best.peek())) {
+                    best.poll();
+                    best.add(mid);
+                }
+            }
+            double diff = target[axis] - coords[axis][mid];
+            int next = (axis + 1) % 3;
+            if (diff < 0) {
+                visit(from, mid, next);
+            } else {
+                visit(mid + 1, to, next);
+            }
+            // The far side can only hold closer points if the splitting plane is closer
+            if (best.size() < k || diff * diff < chord2(best.peek())) {
+                if (diff < 0) {
+                    visit(mid + 1, to, next);
+                } else {
+                    visit(from, mid, next);
+                }
+            }
+        }
+
+        double chord2(int i) {
+            double dx = coords[0][i] - target[0];
+            double dy = coords[1][i] - target[1];
+            double dz = coords[2][i] - target[2];
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    private void build(int from, int to, int axis) {
+        if (to - from <= 1) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, coords[axis]);
+        build(from, mid, (axis + 1) % 3);
+        build(mid + 1, to, (axis + 1) % 3);
+    }
+
+    // Quickselect: puts the element of rank k (by values) at k, smaller ones before it
+    private void select(int left, int right, int k, double[] values) {
+        while (left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        for (double[] axis : coords) {
+            double c = axis[a];
+            axis[a] = axis[b];
+            axis[b] = c;
+        }
+    }
+
+    private static double[] unitVector(double latitude, double longitude) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        return new double[]{Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    private static double toKm(double chord2) {
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(chord2) / 2));
+    }
+}
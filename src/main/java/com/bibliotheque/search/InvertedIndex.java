@@ -0,0 +1,158 @@
+package com.bibliotheque.search;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Term to document-id index with prefix matching on the last query term.
+ * <p>
+ * Terms live in a sorted map, so a prefix is a range of the dictionary; each term
+ * points to a {@link PostingList}. Every document remembers its own terms, which makes
+ * replacing or removing it proportional to its size rather than to the index.
+ * <p>
+ * Thread-safe: reads share a lock, updates take it exclusively.
+ */
+public class InvertedIndex {
+
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<Long, String[]> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int maxPrefixExpansions;
+
+    public InvertedIndex(int maxPrefixExpansions) {
+        this.maxPrefixExpansions = maxPrefixExpansions;
+    }
+
+    /**
+     * Indexes (or re-indexes) a document under {@code terms}.
+     */
+    public void put(long id, Collection<String> terms) {
+        String[] unique = terms.stream().distinct().toArray(String[]::new);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            for (String term : unique) {
+                postings.computeIfAbsent(term, t -> new PostingList()).add(id);
+            }
+            documents.put(id, unique);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sorted ids of the documents containing every term; the last one also matches as a
+     * prefix (for search-as-you-type).
+     */
+    public long[] match(List<String> terms, boolean lastIsPrefix) {
+        if (terms.isEmpty()) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            long[] result = null;
+            for (int i = 0; i < terms.size(); i++) {
+                boolean prefix = lastIsPrefix && i == terms.size() - 1;
+                long[] ids = prefix ? prefixLocked(terms.get(i)) : exactLocked(terms.get(i));
+                result = result == null ? ids : PostingList.intersect(result, ids);
+                if (result.length == 0) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sorted ids of the documents containing, for every position, at least one of the
+     * alternative terms given for it (e.g. the spellings close to a misspelled word).
+     */
+    public long[] matchAny(List<? extends Collection<String>> alternatives) {
+        if (alternatives.isEmpty()) {
+            return new long[0];
+        }
+        lock.readLock().lock();
+        try {
+            long[] result = null;
+            for (Collection<String> terms : alternatives) {
+                long[] ids = new long[0];
+                for (String term : terms) {
+                    ids = PostingList.union(ids, exactLocked(term));
+                }
+                result = result == null ? ids : PostingList.intersect(result, ids);
+                if (result.length == 0) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long[] exactLocked(String term) {
+        PostingList list = postings.get(term);
+        return list == null ? new long[0] : list.toArray();
+    }
+
+    // Bounded, so a one-letter prefix cannot merge half the dictionary
+    private long[] prefixLocked(String prefix) {
+        long[] ids = exactLocked(prefix);
+        int expansions = 0;
+        for (Map.Entry<String, PostingList> entry : postings.tailMap(prefix, false).entrySet()) {
+            if (!entry.getKey().startsWith(prefix) || ++expansions > maxPrefixExpansions) {
+                break;
+            }
+            ids = PostingList.union(ids, entry.getValue().toArray());
+        }
+        return ids;
+    }
+
+    private void removeLocked(long id) {
+        String[] terms = documents.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list != null && list.remove(id) && list.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.bibliotheque.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a result list sorted by {@code property} then id: the sort value and id of
+ * the row at the edge of a screen. Encoded as URL-safe base64, so it can travel as a
+ * query parameter; the value keeps its type (text, integer or decimal, possibly null).
+ */
+public record SearchCursor(String property, Comparable<?> value, long id) {
+
+    private static final char SEPARATOR = '\n';
+
+    public String encode() {
+        String typed = value == null ? "n" : value instanceof Integer ? "i" + value
+                : value instanceof Double ? "d" + value : "s" + value;
+        String raw = property + SEPARATOR + id + SEPARATOR + typed;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Cursor encoded by {@link #encode()} for the same {@code property}; {@code null} when
+     * absent, malformed or made for another sort (e.g. a bookmark from before a sort change).
+     */
+    public static SearchCursor decode(String encoded, String property) {
+        if (encoded == null || encoded.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int second = raw.indexOf(SEPARATOR, first + 1);
+            if (first < 0 || second < 0 || !raw.substring(0, first).equals(property)) {
+                return null;
+            }
+            long id = Long.parseLong(raw.substring(first + 1, second));
+            String typed = raw.substring(second + 1);
+            Comparable<?> value = switch (typed.isEmpty() ? ' ' : typed.charAt(0)) {
+                case 'n' -> null;
+                case 'i' -> Integer.valueOf(typed.substring(1));
+                case 'd' -> Double.valueOf(typed.substring(1));
+                case 's' -> typed.substring(1);
+                default -> throw new IllegalArgumentException("Unknown cursor value type");
+            };
+            return new SearchCursor(property, value, id);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
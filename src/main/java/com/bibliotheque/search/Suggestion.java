@@ -0,0 +1,8 @@
+package com.bibliotheque.search;
+
+/**
+ * A completion offered while typing: the original text, what it is (title, author,
+ * series) and the popularity it is ranked by.
+ */
+public record Suggestion(String text, String kind, long weight) {
+}
@@ -0,0 +1,413 @@
+package com.bibliotheque.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Weighted phrase completion over a compressed trie.
+ * <p>
+ * Phrases (a title, an author, a series) are keyed by {@link TextAnalyzer#phrase} and
+ * entered at their first few word starts, so "hugo" completes "Victor Hugo". A phrase
+ * shared by several documents weighs the sum of their weights. Every node whose subtree
+ * holds more than {@code k} entries keeps its {@code k} heaviest phrases, which makes a
+ * completion one walk down the prefix; smaller subtrees are collected on the fly. An
+ * update recomputes only the nodes on the paths of the keys it touches.
+ * <p>
+ * Thread-safe: reads share a lock, updates take it exclusively.
+ */
+public class SuggestionTrie {
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Phrase[] NO_PHRASES = new Phrase[0];
+
+    // Heaviest first; among equals the shorter completion, then alphabetical
+    private static final Comparator<Phrase> RANKING = Comparator.comparingLong((Phrase p) -> -p.weight)
+            .thenComparingInt(p -> p.text.length())
+            .thenComparing(p -> p.text);
+
+    private final int k;
+    private final int maxWordStarts;
+    private final Node root = new Node("");
+    private final Map<String, Phrase> phrases = new HashMap<>();
+    private final Map<Long, Contribution> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param k             most completions a query can return
+     * @param maxWordStarts number of leading words of a phrase a completion may start at
+     */
+    public SuggestionTrie(int k, int maxWordStarts) {
+        this.k = k;
+        this.maxWordStarts = maxWordStarts;
+    }
+
+    /**
+     * Indexes (or re-indexes) a document's phrases, keyed by kind, with its popularity.
+     */
+    public void put(long id, Map<String, String> textsByKind, long weight) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            List<Phrase> mine = new ArrayList<>();
+            textsByKind.forEach((kind, text) -> {
+                String key = TextAnalyzer.phrase(text);
+                if (key == null || key.isEmpty()) {
+                    return;
+                }
+                Phrase phrase = phrases.get(kind + '\0' + key);
+                if (phrase == null) {
+                    phrase = new Phrase(text.strip(), kind, entryKeys(key));
+                    phrases.put(kind + '\0' + key, phrase);
+                    phrase.weight = weight;
+                    phrase.documents = 1;
+                    for (String entry : phrase.keys) {
+                        insert(entry, phrase);
+                    }
+                } else {
+                    phrase.weight += weight;
+                    phrase.documents++;
+                    refresh(phrase);
+                }
+                mine.add(phrase);
+            });
+            documents.put(id, new Contribution(mine.toArray(NO_PHRASES), weight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Changes the popularity of an indexed document; unknown documents are ignored.
+     */
+    public void setWeight(long id, long weight) {
+        lock.writeLock().lock();
+        try {
+            Contribution contribution = documents.get(id);
+            if (contribution == null || contribution.weight() == weight) {
+                return;
+            }
+            for (Phrase phrase : contribution.phrases()) {
+                phrase.weight += weight - contribution.weight();
+                refresh(phrase);
+            }
+            documents.put(id, new Contribution(contribution.phrases(), weight));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Popularity the document was indexed with; 0 when unknown.
+     */
+    public long weightOf(long id) {
+        lock.readLock().lock();
+        try {
+            Contribution contribution = documents.get(id);
+            return contribution == null ? 0 : contribution.weight();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} (at most {@code k}) phrases completing {@code prefix}, heaviest first.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = TextAnalyzer.phrase(prefix);
+        if (key == null || key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                int c = childIndex(node, key.charAt(i));
+                if (c < 0) {
+                    return List.of();
+                }
+                Node child = node.children[c];
+                int common = commonPrefix(child.label, key, i);
+                if (i + common < key.length() && common < child.label.length()) {
+                    return List.of();
+                }
+                node = child;
+                i += common;
+            }
+            Phrase[] best = node.top != null ? node.top : best(node);
+            return Arrays.stream(best)
+                    .limit(limit)
+                    .map(p -> new Suggestion(p.text, p.kind, p.weight))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return phrases.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeLocked(long id) {
+        Contribution contribution = documents.remove(id);
+        if (contribution == null) {
+            return;
+        }
+        for (Phrase phrase : contribution.phrases()) {
+            phrase.weight -= contribution.weight();
+            if (--phrase.documents == 0) {
+                phrases.remove(phrase.kind + '\0' + phrase.keys[0]);
+                for (String entry : phrase.keys) {
+                    delete(entry, phrase);
+                }
+            } else {
+                refresh(phrase);
+            }
+        }
+    }
+
+    // The whole phrase, then each following word that is worth starting a completion at
+    private String[] entryKeys(String key) {
+        List<String> keys = new ArrayList<>();
+        keys.add(key);
+        int start = key.indexOf(' ');
+        while (start >= 0 && keys.size() < maxWordStarts) {
+            String rest = key.substring(start + 1);
+            int end = rest.indexOf(' ');
+            if (!TextAnalyzer.tokens(end < 0 ? rest : rest.substring(0, end)).isEmpty()) {
+                keys.add(rest);
+            }
+            start = key.indexOf(' ', start + 1);
+        }
+        return keys.toArray(String[]::new);
+    }
+
+    private void insert(String key, Phrase phrase) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int c = childIndex(node, key.charAt(i));
+            if (c < 0) {
+                Node leaf = new Node(key.substring(i));
+                node.children = insertAt(node.children, -c - 1, leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            Node child = node.children[c];
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge where the new key leaves it
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                middle.entries = child.entries;
+                node.children[c] = middle;
+                child = middle;
+            }
+            node = child;
+            path.add(node);
+            i += common;
+        }
+        node.terminals = Arrays.copyOf(node.terminals, node.terminals.length + 1);
+        node.terminals[node.terminals.length - 1] = phrase;
+        path.forEach(n -> n.entries++);
+        recompute(path);
+    }
+
+    private void delete(String key, Phrase phrase) {
+        List<Node> path = pathOf(key);
+        if (path == null) {
+            return;
+        }
+        Node node = path.get(path.size() - 1);
+        int at = indexOf(node.terminals, phrase);
+        if (at < 0) {
+            return;
+        }
+        node.terminals = removeAt(node.terminals, at);
+        path.forEach(n -> n.entries--);
+
+        // Drop emptied leaves and fold pass-through nodes into their only child
+        for (int j = path.size() - 1; j > 0; j--) {
+            Node current = path.get(j);
+            if (current.terminals.length > 0) {
+                continue;
+            }
+            if (current.children.length == 0) {
+                Node parent = path.get(j - 1);
+                parent.children = removeAt(parent.children, indexOf(parent.children, current));
+                path.remove(j);
+            } else if (current.children.length == 1) {
+                Node only = current.children[0];
+                current.label = current.label + only.label;
+                current.children = only.children;
+                current.terminals = only.terminals;
+                current.top = only.top;
+                if (j + 1 < path.size() && path.get(j + 1) == only) {
+                    path.remove(j + 1);
+                }
+            }
+        }
+        recompute(path);
+    }
+
+    private void refresh(Phrase phrase) {
+        for (String key : phrase.keys) {
+            List<Node> path = pathOf(key);
+            if (path != null) {
+                recompute(path);
+            }
+        }
+    }
+
+    private List<Node> pathOf(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            int c = childIndex(node, key.charAt(i));
+            if (c < 0) {
+                return null;
+            }
+            node = node.children[c];
+            if (!key.startsWith(node.label, i)) {
+                return null;
+            }
+            path.add(node);
+            i += node.label.length();
+        }
+        return path;
+    }
+
+    // Bottom-up, so every node sees its children's fresh rankings
+    private void recompute(List<Node> path) {
+        for (int j = path.size() - 1; j >= 0; j--) {
+            Node node = path.get(j);
+            node.top = node.entries > k ? best(node) : null;
+        }
+    }
+
+    private Phrase[] best(Node node) {
+        Set<Phrase> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        Collections.addAll(candidates, node.terminals);
+        for (Node child : node.children) {
+            if (child.top != null) {
+                Collections.addAll(candidates, child.top);
+            } else {
+                collect(child, candidates);
+            }
+        }
+        return candidates.stream().sorted(RANKING).limit(k).toArray(Phrase[]::new);
+    }
+
+    private static void collect(Node node, Set<Phrase> into) {
+        Collections.addAll(into, node.terminals);
+        for (Node child : node.children) {
+            collect(child, into);
+        }
+    }
+
+    private static int childIndex(Node node, char first) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = node.children[mid].label.charAt(0);
+            if (c < first) {
+                low = mid + 1;
+            } else if (c > first) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int commonPrefix(String label, String key, int from) {
+        int n = Math.min(label.length(), key.length() - from);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static <T> int indexOf(T[] array, T element) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == element) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static <T> T[] insertAt(T[] array, int at, T element) {
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, at, result, at + 1, array.length - at);
+        result[at] = element;
+        return result;
+    }
+
+    private static <T> T[] removeAt(T[] array, int at) {
+        T[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, at + 1, result, at, array.length - at - 1);
+        return result;
+    }
+
+    private record Contribution(Phrase[] phrases, long weight) {
+    }
+
+    private static final class Phrase {
+        final String text;
+        final String kind;
+        final String[] keys;
+        long weight;
+        int documents;
+
+        Phrase(String text, String kind, String[] keys) {
+            this.text = text;
+            this.kind = kind;
+            this.keys = keys;
+        }
+    }
+
+    private static final class Node {
+        String label;
+        Node[] children = NO_CHILDREN;
+        Phrase[] terminals = NO_PHRASES;
+        int entries;
+        Phrase[] top;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+}
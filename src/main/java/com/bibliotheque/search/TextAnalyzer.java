@@ -0,0 +1,136 @@
+package com.bibliotheque.search;
+
+import java.text.Collator;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Turns catalog text into index terms, the same way for documents and queries.
+ * <p>
+ * Text is folded (accents stripped, lower-cased), split on anything that is not a
+ * letter or digit (which also splits French elisions such as {@code l'étranger}),
+ * French and English stop words are dropped, and a trailing plural {@code s} is
+ * removed, so "Misérables", "miserable" and "MISERABLES" all give {@code miserable}.
+ */
+public final class TextAnalyzer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern ISBN = Pattern.compile("[0-9][0-9Xx\\- ]{3,}");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            // French
+            "au", "aux", "avec", "ce", "ces", "dans", "de", "des", "du", "elle", "en", "et", "il",
+            "je", "la", "le", "les", "leur", "lui", "ma", "mais", "me", "mes", "ne", "nos", "notre",
+            "nous", "on", "ou", "par", "pas", "pour", "qu", "que", "qui", "sa", "se", "ses", "son",
+            "sur", "ta", "te", "tes", "ton", "tu", "un", "une", "vos", "votre", "vous",
+            // English
+            "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it", "of",
+            "or", "that", "the", "this", "to", "was", "with");
+
+    // Accents only break ties between otherwise equal texts; case is ignored
+    private static final Collator COLLATOR = Collator.getInstance(Locale.FRENCH);
+
+    static {
+        COLLATOR.setStrength(Collator.SECONDARY);
+        COLLATOR.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Accent-free, lower-case form of {@code text}; {@code null} stays {@code null}.
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return null;
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Index terms of {@code text}, in order, duplicates kept.
+     */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String raw : SEPARATORS.split(fold(text))) {
+            String token = stem(raw);
+            if (isIndexable(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Folded {@code text} with every run of separators turned into a single space, for
+     * matching whole phrases by prefix; {@code null} stays {@code null}.
+     */
+    public static String phrase(String text) {
+        if (text == null) {
+            return null;
+        }
+        return SEPARATORS.matcher(fold(text)).replaceAll(" ").trim();
+    }
+
+    /**
+     * French collation key of {@code text} as hex, at most {@code maxLength} characters,
+     * so that a database comparing plain strings orders rows the way a French reader
+     * would ("Élise" next to "elise", before "Emile"); {@code null} stays {@code null}.
+     * Keys cut to {@code maxLength} still order by their leading characters.
+     */
+    public static String sortKey(String text, int maxLength) {
+        if (text == null) {
+            return null;
+        }
+        byte[] key;
+        synchronized (COLLATOR) {
+            key = COLLATOR.getCollationKey(text.strip()).toByteArray();
+        }
+        int bytes = Math.min(key.length, maxLength / 2);
+        char[] hex = new char[bytes * 2];
+        for (int i = 0; i < bytes; i++) {
+            hex[2 * i] = HEX[(key[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[key[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Hyphen-free ISBN when {@code text} looks like one (or a prefix of one), else {@code null}.
+     */
+    public static String isbnKey(String text) {
+        if (text == null || !ISBN.matcher(text.trim()).matches()) {
+            return null;
+        }
+        return text.replaceAll("[\\- ]", "").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isIndexable(String token) {
+        if (token.isEmpty() || STOP_WORDS.contains(token)) {
+            return false;
+        }
+        // Single letters are mostly leftovers of elisions; single digits are kept (volume numbers)
+        return token.length() > 1 || Character.isDigit(token.charAt(0));
+    }
+
+    // Minimal plural stemming, enough to match singular and plural forms in both languages
+    private static String stem(String token) {
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")
+                && !Character.isDigit(token.charAt(0))) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+}
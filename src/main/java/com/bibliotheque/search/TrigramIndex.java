@@ -0,0 +1,236 @@
+package com.bibliotheque.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Dictionary of index terms searchable by spelling: each term is split into the
+ * trigrams of {@code "$term$"}, and a misspelled term finds its candidates through the
+ * trigrams they share. An edit changes at most four trigrams (three, unless it swaps two
+ * neighbouring letters), so a term within {@code k} edits of the query shares at least
+ * {@code grams - 4k} of them; only terms passing that count and the length difference
+ * are checked with a bounded edit distance, in which a swap of neighbouring letters,
+ * the most common typing slip, counts as one edit. Swaps in words too short to keep a
+ * trigram in common are looked up directly.
+ * <p>
+ * Terms are reference-counted per document, so they leave the dictionary with the last
+ * document using them. Thread-safe: reads share a lock, updates take it exclusively.
+ */
+public class TrigramIndex {
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<Integer> references = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private final Map<Long, String[]> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int maxExpansions;
+
+    public TrigramIndex(int maxExpansions) {
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Edits tolerated for a query term: none for very short terms, where a single edit
+     * already makes another common word, then one, then two from eight letters.
+     */
+    public static int maxDistance(String term) {
+        if (term.length() <= 3) {
+            return 0;
+        }
+        return term.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * Registers (or re-registers) the terms of a document.
+     */
+    public void put(long id, Collection<String> documentTerms) {
+        String[] unique = documentTerms.stream().distinct().toArray(String[]::new);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            for (String term : unique) {
+                Integer termId = termIds.get(term);
+                if (termId == null) {
+                    if (freeIds.isEmpty()) {
+                        termId = terms.size();
+                        terms.add(term);
+                        references.add(0);
+                    } else {
+                        termId = freeIds.pop();
+                        terms.set(termId, term);
+                    }
+                    termIds.put(term, termId);
+                    for (String gram : grams(term)) {
+                        postings.computeIfAbsent(gram, g -> new PostingList()).add(termId);
+                    }
+                }
+                references.set(termId, references.get(termId) + 1);
+            }
+            documents.put(id, unique);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Dictionary terms within {@link #maxDistance} edits of {@code term}, closest first
+     * and, among equally close ones, swaps of two neighbouring letters first; the term
+     * itself included when known; at most {@code maxExpansions} of them.
+     */
+    public List<String> similar(String term) {
+        int k = maxDistance(term);
+        lock.readLock().lock();
+        try {
+            if (k == 0) {
+                return termIds.containsKey(term) ? List.of(term) : List.of();
+            }
+            List<String> queryGrams = grams(term);
+            Map<Long, Integer> shared = new HashMap<>();
+            for (String gram : new LinkedHashSet<>(queryGrams)) {
+                PostingList list = postings.get(gram);
+                if (list != null) {
+                    list.forEach(termId -> shared.merge(termId, 1, Integer::sum));
+                }
+            }
+
+            int minShared = Math.max(1, queryGrams.size() - 4 * k);
+            Set<Long> swaps = new HashSet<>();
+            for (int i = 0; i + 1 < term.length(); i++) {
+                Integer swapped = termIds.get(swap(term, i));
+                if (swapped != null) {
+                    shared.merge((long) swapped, minShared, Math::max);
+                    swaps.add((long) swapped);
+                }
+            }
+            List<Match> matches = new ArrayList<>();
+            shared.forEach((termId, count) -> {
+                String candidate = terms.get(termId.intValue());
+                if (count >= minShared && Math.abs(candidate.length() - term.length()) <= k) {
+                    int distance = distance(term, candidate, k);
+                    if (distance <= k) {
+                        matches.add(new Match(candidate, distance, swaps.contains(termId)));
+                    }
+                }
+            });
+            matches.sort(Comparator.comparingInt(Match::distance)
+                    .thenComparing(Match::swap, Comparator.reverseOrder())
+                    .thenComparing(Match::term));
+            return matches.stream().limit(maxExpansions).map(Match::term).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return termIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Optimal string alignment distance between {@code a} and {@code b}, or {@code k + 1}
+     * as soon as it is known to exceed {@code k}.
+     */
+    static int distance(String a, String b, int k) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > k) {
+            return k + 1;
+        }
+        int[] before = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, before[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > k) {
+                return k + 1;
+            }
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], k + 1);
+    }
+
+    private static String swap(String term, int at) {
+        char[] chars = term.toCharArray();
+        char c = chars[at];
+        chars[at] = chars[at + 1];
+        chars[at + 1] = c;
+        return new String(chars);
+    }
+
+    private static List<String> grams(String term) {
+        String padded = "$" + term + "$";
+        List<String> grams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    private void removeLocked(long id) {
+        String[] documentTerms = documents.remove(id);
+        if (documentTerms == null) {
+            return;
+        }
+        for (String term : documentTerms) {
+            int termId = termIds.get(term);
+            int left = references.get(termId) - 1;
+            references.set(termId, left);
+            if (left == 0) {
+                termIds.remove(term);
+                terms.set(termId, null);
+                freeIds.push(termId);
+                for (String gram : grams(term)) {
+                    PostingList list = postings.get(gram);
+                    if (list != null && list.remove(termId) && list.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    private record Match(String term, int distance, boolean swap) {
+    }
+}
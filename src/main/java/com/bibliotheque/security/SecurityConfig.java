@@ -34,7 +34,7 @@ public class SecurityConfig {
         .requestMatchers("/", "/verify-email", "/css/**", "/js/**", "/images/**", "/h2-console/**").permitAll()
         .requestMatchers("/login", "/register").anonymous()
         .requestMatchers("/loans/pending", "/loans/overdue").hasAnyRole("LIBRARIAN", "ADMIN")
-        .requestMatchers(HttpMethod.POST, "/loans/*/approve", "/loans/*/return").hasAnyRole("LIBRARIAN", "ADMIN")
+        .requestMatchers(HttpMethod.POST, "/loans/*/approve", "/loans/*/return", "/loans/batch/**").hasAnyRole("LIBRARIAN", "ADMIN")
         .requestMatchers("/loans/**").authenticated()
         .requestMatchers(HttpMethod.POST, "/resources/**").hasAnyRole("LIBRARIAN", "ADMIN")
         .requestMatchers(HttpMethod.PUT, "/resources/**").hasAnyRole("LIBRARIAN", "ADMIN")
@@ -0,0 +1,8 @@
+package com.bibliotheque.service;
+
+/**
+ * Published when copies of a resource are taken or given back through
+ * {@link CopyInventoryService}, whose set-based updates bypass the entity.
+ */
+public record AvailabilityChangedEvent(Long resourceId) {
+}
@@ -0,0 +1,106 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.dto.NearbyBranch;
+import com.bibliotheque.model.Library;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.repository.LibraryRepository;
+import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.search.GeoKdTree;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Finds the closest branches that have a title on the shelf.
+ * <p>
+ * Branches with coordinates are kept in a {@link GeoKdTree}, rebuilt after library edits
+ * and every {@code app.branches.refresh-ms}. Which branches hold an
+ * available copy of the same ISBN comes from the in-memory {@link CatalogIndexService}
+ * (or, until it is built, from one grouped query on the ISBN index), so a lookup reads
+ * the resource by primary key and never scans the catalog.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BranchLocatorService {
+
+    private final LibraryRepository libraryRepository;
+    private final ResourceRepository resourceRepository;
+    private final CatalogIndexService catalogIndexService;
+
+    private record Branches(GeoKdTree tree, Map<Long, Library> byId) {
+    }
+
+    private volatile Branches branches = new Branches(new GeoKdTree(List.of()), Map.of());
+
+    // The first scheduled run happens on startup
+    @Scheduled(fixedDelayString = "${app.branches.refresh-ms:300000}")
+    public void rebuild() {
+        List<GeoKdTree.Point> points = new ArrayList<>();
+        Map<Long, Library> byId = new HashMap<>();
+        for (Library library : libraryRepository.findAll()) {
+            if (library.getLatitude() != null && library.getLongitude() != null) {
+                points.add(new GeoKdTree.Point(library.getId(), library.getLatitude(), library.getLongitude()));
+                byId.put(library.getId(), library);
+            }
+        }
+        branches = new Branches(new GeoKdTree(points), byId);
+        log.debug("Branch locator rebuilt with {} located libraries", points.size());
+    }
+
+    /**
+     * Up to {@code k} branches with an available copy of the resource's title (same ISBN,
+     * or the resource itself when it has none), closest to the given position first. The
+     * position defaults to the resource's own branch. Empty when the resource is unknown.
+     */
+    public Optional<List<NearbyBranch>> nearest(Long resourceId, Double latitude, Double longitude, int k) {
+        Optional<Resource> found = resourceRepository.findById(resourceId);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Resource resource = found.get();
+        Branches current = branches;
+        if (latitude == null || longitude == null) {
+            // Located branches are in the snapshot, so the lazy library is never loaded
+            Library home = resource.getLibrary() != null ? current.byId().get(resource.getLibrary().getId()) : null;
+            if (home == null) {
+                throw new IllegalArgumentException("No position given and the resource's library has no coordinates");
+            }
+            latitude = home.getLatitude();
+            longitude = home.getLongitude();
+        }
+
+        Map<Long, Integer> holders = holders(resource);
+        List<NearbyBranch> result = new ArrayList<>();
+        for (GeoKdTree.Neighbor neighbor : current.tree().nearest(latitude, longitude, k, holders::containsKey)) {
+            Library library = current.byId().get(neighbor.id());
+            result.add(new NearbyBranch(library.getId(), library.getName(), library.getAddress(), library.getCity(),
+                    Math.round(neighbor.distanceKm() * 10) / 10.0, holders.get(neighbor.id())));
+        }
+        return Optional.of(result);
+    }
+
+    private Map<Long, Integer> holders(Resource resource) {
+        if (resource.getIsbn() == null || resource.getIsbn().isBlank()) {
+            boolean onShelf = resource.isActive() && resource.getAvailableCopies() != null
+                    && resource.getAvailableCopies() > 0 && resource.getLibrary() != null;
+            return onShelf ? Map.of(resource.getLibrary().getId(), 1) : Map.of();
+        }
+        Map<Long, Integer> holders = catalogIndexService.librariesWithAvailableCopy(resource.getIsbn());
+        if (holders != null) {
+            return holders;
+        }
+        holders = new HashMap<>();
+        for (Object[] row : resourceRepository.countAvailableByLibrary(resource.getIsbn())) {
+            holders.put((Long) row[0], ((Long) row[1]).intValue());
+        }
+        return holders;
+    }
+}
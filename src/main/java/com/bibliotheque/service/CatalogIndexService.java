@@ -0,0 +1,445 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.dto.ResourceSearchRequest;
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.repository.LibraryRepository;
+import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.search.FacetCount;
+import com.bibliotheque.search.FacetIndex;
+import com.bibliotheque.search.InvertedIndex;
+import com.bibliotheque.search.Suggestion;
+import com.bibliotheque.search.SuggestionTrie;
+import com.bibliotheque.search.TextAnalyzer;
+import com.bibliotheque.search.TrigramIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Full-text index of the catalog, held in memory.
+ * <p>
+ * Title, author, ISBN, publisher and description are analyzed by {@link TextAnalyzer}
+ * into an {@link InvertedIndex}. The index is built from the database on startup, kept
+ * current from {@link ResourceChangedEvent}s, and caught up every
+ * {@code app.search.refresh-ms} with resources whose {@code updated_at} moved, which
+ * covers edits made on other nodes. Each catch-up goes back
+ * {@code app.search.refresh-overlap-ms} before the previous one, so rows committed late
+ * or stamped by a node whose clock lags are still seen; re-indexing is idempotent. A search query is answered with sorted candidate
+ * ids that the database then filters; until the first build finishes, callers get
+ * {@code null} and fall back to the SQL text filter.
+ * <p>
+ * The same pass fills a {@link FacetIndex} (category, library, language, publisher,
+ * year, availability), so the search page gets counts for every facet from bitset
+ * intersections instead of one GROUP BY per facet. Availability moves with every loan;
+ * those changes arrive as {@link AvailabilityChangedEvent}s and are re-read in one
+ * query per {@code app.search.availability-refresh-ms}. Copy updates also move
+ * {@code updated_at}, so loans served by other nodes come in with the next refresh.
+ * <p>
+ * Author words are indexed a second time under {@link #AUTHOR_TERM}, so the author
+ * filter matches that field only, in the facet counts as in the results.
+ * <p>
+ * Titles, authors and series also go into a {@link SuggestionTrie} for search-as-you-type,
+ * ranked by the decayed popularity kept by {@link PopularityTracker}, whose updates
+ * arrive as {@link PopularityChangedEvent}s.
+ * <p>
+ * For typo-tolerant searches, the words of titles and authors are kept in a
+ * {@link TrigramIndex}, which maps a misspelled query word to the known words within a
+ * couple of edits before the inverted index is consulted.
+ * <p>
+ * ISBN terms and the library and availability facets together tell which branches hold
+ * a copy of a title on the shelf, for the nearest-branch lookup.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogIndexService {
+
+    public static final String CATEGORY = "category";
+    public static final String LIBRARY = "library";
+    public static final String LANGUAGE = "language";
+    public static final String PUBLISHER = "publisher";
+    public static final String YEAR = "year";
+    public static final String DECADE = "decade";
+    public static final String AVAILABLE = "available";
+    private static final String ACTIVE = "active";
+    // Marks author terms; analyzed tokens never contain it, so plain prefixes never reach them
+    private static final String AUTHOR_TERM = "@";
+
+    private static final int MAX_PREFIX_EXPANSIONS = 256;
+    private static final int MAX_FACET_VALUES = 10;
+    private static final int MAX_SUGGESTIONS = 10;
+    private static final int SUGGESTION_WORD_STARTS = 3;
+    private static final int MAX_FUZZY_EXPANSIONS = 16;
+
+    private final ResourceRepository resourceRepository;
+    private final LibraryRepository libraryRepository;
+    private final PopularityTracker popularityTracker;
+
+    private final InvertedIndex index = new InvertedIndex(MAX_PREFIX_EXPANSIONS);
+    private final FacetIndex facets = new FacetIndex(CATEGORY, LIBRARY, LANGUAGE, PUBLISHER, YEAR, DECADE, AVAILABLE, ACTIVE);
+    private final TrigramIndex spellings = new TrigramIndex(MAX_FUZZY_EXPANSIONS);
+    private final SuggestionTrie suggestions = new SuggestionTrie(MAX_SUGGESTIONS, SUGGESTION_WORD_STARTS);
+    private final Set<Long> availabilityChanged = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.search.rebuild-batch-size:1000}")
+    private int batchSize = 1000;
+
+    @Value("${app.search.max-candidates:2000}")
+    private int maxFuzzyCandidates = 2000;
+
+    @Value("${app.search.refresh-overlap-ms:300000}")
+    private long refreshOverlapMillis = 300_000;
+
+    private volatile boolean ready;
+    private volatile ZonedDateTime syncedUntil;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.nanoTime();
+        // Anything edited while the scan runs is caught by the next refresh()
+        syncedUntil = ZonedDateTime.now();
+        Long afterId = 0L;
+        while (true) {
+            List<Resource> batch = resourceRepository.findBatchAfter(afterId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            batch.forEach(resource -> index(resource, popularityTracker.weightOf(resource.getPopularity())));
+            afterId = batch.get(batch.size() - 1).getId();
+        }
+        ready = true;
+        log.info("Catalog index built: {} resources, {} terms, {} suggestions in {} ms",
+                index.size(), index.termCount(), suggestions.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.refresh-ms:30000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        ZonedDateTime since = syncedUntil.minus(Duration.ofMillis(refreshOverlapMillis));
+        syncedUntil = ZonedDateTime.now();
+        for (Resource resource : resourceRepository.findByUpdatedAtAfter(since)) {
+            index(resource);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (event.isDeleted()) {
+            index.remove(event.resourceId());
+            facets.remove(event.resourceId());
+            suggestions.remove(event.resourceId());
+            spellings.remove(event.resourceId());
+        } else {
+            index(event.resource());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        availabilityChanged.add(event.resourceId());
+    }
+
+    @EventListener
+    public void onPopularityChanged(PopularityChangedEvent event) {
+        event.weights().forEach(suggestions::setWeight);
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.availability-refresh-ms:1000}")
+    public void refreshAvailability() {
+        if (availabilityChanged.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(availabilityChanged);
+        availabilityChanged.removeAll(ids);
+        for (Object[] row : resourceRepository.findAvailableCopies(ids)) {
+            facets.set((Long) row[0], AVAILABLE, String.valueOf(row[1] != null && (Integer) row[1] > 0));
+        }
+    }
+
+    /**
+     * Counts per value of every facet for the resources matching {@code request}. Each
+     * facet is counted with all filters but its own, so a patron sees how many results
+     * picking another value would give. Empty when the index cannot resolve the text
+     * criteria.
+     */
+    public Map<String, List<FacetCount>> facetCounts(ResourceSearchRequest request) {
+        if (!ready) {
+            return Map.of();
+        }
+        BitSet base = facets.docs(ACTIVE, "true");
+        if (hasText(request.getQuery()) || hasText(request.getAuthor())) {
+            long[] ids = candidates(request);
+            if (ids == null) {
+                return Map.of();
+            }
+            base.and(facets.docsOf(ids));
+        }
+
+        Map<String, BitSet> filters = new LinkedHashMap<>();
+        if (request.getCategory() != null) {
+            filters.put(CATEGORY, facets.docs(CATEGORY, request.getCategory().name()));
+        }
+        if (request.getLibraryId() != null) {
+            filters.put(LIBRARY, facets.docs(LIBRARY, request.getLibraryId().toString()));
+        }
+        if (request.getLanguage() != null && !request.getLanguage().isBlank()) {
+            filters.put(LANGUAGE, facets.docs(LANGUAGE, request.getLanguage()));
+        }
+        if (request.getPublisher() != null && !request.getPublisher().isBlank()) {
+            filters.put(PUBLISHER, facets.docs(PUBLISHER, request.getPublisher()));
+        }
+        if (request.getYearMin() != null || request.getYearMax() != null) {
+            int min = request.getYearMin() != null ? request.getYearMin() : Integer.MIN_VALUE;
+            int max = request.getYearMax() != null ? request.getYearMax() : Integer.MAX_VALUE;
+            filters.put(DECADE, facets.docs(YEAR, year -> Integer.parseInt(year) >= min && Integer.parseInt(year) <= max));
+        }
+        if (Boolean.TRUE.equals(request.getAvailable())) {
+            filters.put(AVAILABLE, facets.docs(AVAILABLE, "true"));
+        }
+
+        Map<String, String> libraryNames = new HashMap<>();
+        libraryRepository.findAll().forEach(library -> libraryNames.put(library.getId().toString(), library.getName()));
+
+        Map<String, List<FacetCount>> counts = new LinkedHashMap<>();
+        for (String facet : List.of(CATEGORY, LIBRARY, LANGUAGE, PUBLISHER, DECADE, AVAILABLE)) {
+            BitSet within = (BitSet) base.clone();
+            filters.forEach((filtered, docs) -> {
+                if (!filtered.equals(facet)) {
+                    within.and(docs);
+                }
+            });
+            // The most frequent values make the cut, then decades are shown in time order
+            List<FacetCount> values = facets.count(facet, within).entrySet().stream()
+                    .map(e -> new FacetCount(e.getKey(), LIBRARY.equals(facet) ? libraryNames.getOrDefault(e.getKey(), e.getKey()) : e.getKey(), e.getValue()))
+                    .sorted(Comparator.comparingInt(FacetCount::count).reversed().thenComparing(FacetCount::label))
+                    .limit(MAX_FACET_VALUES)
+                    .toList();
+            counts.put(facet, DECADE.equals(facet)
+                    ? values.stream().sorted(Comparator.comparing(FacetCount::value)).toList()
+                    : values);
+        }
+        return counts;
+    }
+
+    /**
+     * Sorted ids of resources matching both the text query and the author of
+     * {@code request}, each when given; {@code null} when neither is given or the index
+     * cannot answer one of them.
+     */
+    public long[] candidates(ResourceSearchRequest request) {
+        long[] ids = null;
+        if (hasText(request.getQuery())) {
+            ids = request.isFuzzy() ? fuzzyCandidates(request.getQuery()) : candidates(request.getQuery());
+            if (ids == null) {
+                return null;
+            }
+        }
+        if (hasText(request.getAuthor())) {
+            long[] byAuthor = authorCandidates(request.getAuthor());
+            if (byAuthor == null) {
+                return null;
+            }
+            if (ids == null) {
+                return byAuthor;
+            }
+            ids = Arrays.stream(ids).filter(id -> Arrays.binarySearch(byAuthor, id) >= 0).toArray();
+        }
+        return ids;
+    }
+
+    /**
+     * Sorted ids of resources matching every term of {@code query}, the last term also as
+     * a prefix; {@code null} when the index cannot answer (not built yet, or the query is
+     * only stop words).
+     */
+    public long[] candidates(String query) {
+        if (!ready || query == null) {
+            return null;
+        }
+        String isbn = TextAnalyzer.isbnKey(query);
+        List<String> terms = isbn != null ? List.of(isbn) : TextAnalyzer.tokens(query);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        // "Hugo " is a finished word; "Hug" is still being typed
+        return index.match(terms, !Character.isWhitespace(query.charAt(query.length() - 1)));
+    }
+
+    /**
+     * Sorted ids of resources whose author has every term of {@code author}, the last
+     * term also as a prefix; {@code null} when the index cannot answer.
+     */
+    public long[] authorCandidates(String author) {
+        if (!ready || author == null) {
+            return null;
+        }
+        List<String> terms = TextAnalyzer.tokens(author).stream().map(term -> AUTHOR_TERM + term).toList();
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return index.match(terms, !Character.isWhitespace(author.charAt(author.length() - 1)));
+    }
+
+    /**
+     * Like {@link #candidates}, tolerating typos: each query word also matches the title
+     * and author words within {@link TrigramIndex#maxDistance} edits of it. The last word
+     * is not expanded as a prefix. A broad misspelling keeps only the
+     * {@code app.search.max-candidates} most relevant matches: those with the most query
+     * words spelled exactly, then the lowest ids.
+     */
+    public long[] fuzzyCandidates(String query) {
+        if (!ready || query == null) {
+            return null;
+        }
+        if (TextAnalyzer.isbnKey(query) != null) {
+            return candidates(query);
+        }
+        List<String> terms = TextAnalyzer.tokens(query);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        List<Set<String>> alternatives = new ArrayList<>();
+        for (String term : terms) {
+            Set<String> close = new LinkedHashSet<>(spellings.similar(term));
+            // Exact matches count too, including words of publishers and descriptions
+            close.add(term);
+            alternatives.add(close);
+        }
+        long[] ids = index.matchAny(alternatives);
+        return ids.length <= maxFuzzyCandidates ? ids : mostRelevant(ids, terms);
+    }
+
+    private long[] mostRelevant(long[] ids, List<String> terms) {
+        int[] exact = new int[ids.length];
+        for (String term : terms) {
+            long[] spelled = index.match(List.of(term), false);
+            for (int i = 0; i < ids.length; i++) {
+                if (Arrays.binarySearch(spelled, ids[i]) >= 0) {
+                    exact[i]++;
+                }
+            }
+        }
+        return IntStream.range(0, ids.length).boxed()
+                .sorted(Comparator.comparingInt((Integer i) -> exact[i]).reversed())
+                .limit(maxFuzzyCandidates)
+                .mapToLong(i -> ids[i])
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * Libraries holding an active resource with this ISBN and a copy on the shelf, with
+     * the number of such resources in each; {@code null} until the index is built.
+     */
+    public Map<Long, Integer> librariesWithAvailableCopy(String isbn) {
+        if (!ready) {
+            return null;
+        }
+        String key = TextAnalyzer.isbnKey(isbn);
+        if (key == null) {
+            return Map.of();
+        }
+        BitSet within = facets.docsOf(index.match(List.of(key), false));
+        within.and(facets.docs(AVAILABLE, "true"));
+        within.and(facets.docs(ACTIVE, "true"));
+        Map<Long, Integer> libraries = new HashMap<>();
+        facets.count(LIBRARY, within).forEach((library, count) -> libraries.put(Long.valueOf(library), count));
+        return libraries;
+    }
+
+    /**
+     * Most borrowed titles, authors and series completing {@code prefix}.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return suggestions.suggest(prefix, limit);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    // Re-indexing keeps the popularity the resource already had
+    private void index(Resource resource) {
+        index(resource, suggestions.weightOf(resource.getId()));
+    }
+
+    private void index(Resource resource, long popularity) {
+        List<String> terms = new ArrayList<>();
+        terms.addAll(TextAnalyzer.tokens(resource.getTitle()));
+        terms.addAll(TextAnalyzer.tokens(resource.getAuthor()));
+        TextAnalyzer.tokens(resource.getAuthor()).forEach(term -> terms.add(AUTHOR_TERM + term));
+        terms.addAll(TextAnalyzer.tokens(resource.getPublisher()));
+        terms.addAll(TextAnalyzer.tokens(resource.getDescription()));
+        String isbn = TextAnalyzer.isbnKey(resource.getIsbn());
+        if (isbn != null) {
+            terms.add(isbn);
+        }
+        index.put(resource.getId(), terms);
+
+        List<String> words = new ArrayList<>(TextAnalyzer.tokens(resource.getTitle()));
+        words.addAll(TextAnalyzer.tokens(resource.getAuthor()));
+        spellings.put(resource.getId(), words);
+
+        Map<String, String> values = new HashMap<>();
+        values.put(CATEGORY, resource.getCategory() != null ? resource.getCategory().name() : null);
+        values.put(LIBRARY, resource.getLibrary() != null ? resource.getLibrary().getId().toString() : null);
+        values.put(LANGUAGE, blankToNull(resource.getLanguage()));
+        values.put(PUBLISHER, blankToNull(resource.getPublisher()));
+        if (resource.getPublicationYear() != null) {
+            values.put(YEAR, resource.getPublicationYear().toString());
+            values.put(DECADE, String.valueOf(Math.floorDiv(resource.getPublicationYear(), 10) * 10));
+        }
+        values.put(AVAILABLE, String.valueOf(resource.getAvailableCopies() != null && resource.getAvailableCopies() > 0));
+        values.put(ACTIVE, String.valueOf(resource.isActive()));
+        facets.put(resource.getId(), values);
+
+        if (resource.isActive()) {
+            Map<String, String> phrases = new HashMap<>();
+            phrases.put("title", resource.getTitle());
+            phrases.put("author", resource.getAuthor());
+            if (resource instanceof Book book) {
+                phrases.put("series", book.getSeries());
+            }
+            phrases.values().removeIf(text -> text == null || text.isBlank());
+            suggestions.put(resource.getId(), phrases, popularity);
+        } else {
+            suggestions.remove(resource.getId());
+        }
+    }
+
+    private static boolean hasText(String text) {
+        return text != null && !text.isBlank();
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
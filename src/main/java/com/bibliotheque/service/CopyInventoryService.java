@@ -0,0 +1,64 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.repository.ResourceRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Single entry point for changes to {@code Resource.availableCopies}.
+ * <p>
+ * Copies are taken and given back with set-based conditional updates instead of
+ * read-modify-write on the entity, so concurrent borrowers cannot oversell a title
+ * and the row lock is only held for the duration of one UPDATE statement.
+ */
+@Service
+@RequiredArgsConstructor
+public class CopyInventoryService {
+
+    private final ResourceRepository resourceRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Takes one copy of the resource if any is left.
+     *
+     * @return {@code false} immediately when stock is exhausted
+     */
+    @Transactional
+    public boolean tryCheckout(Long resourceId) {
+        if (resourceRepository.decrementAvailableCopies(resourceId) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(new AvailabilityChangedEvent(resourceId));
+        return true;
+    }
+
+    @Transactional
+    public void checkin(Long resourceId) {
+        resourceRepository.incrementAvailableCopies(resourceId);
+        eventPublisher.publishEvent(new AvailabilityChangedEvent(resourceId));
+    }
+
+    /**
+     * Gives back several copies at once, with one UPDATE per distinct count.
+     */
+    @Transactional
+    public void checkinAll(Map<Long, Integer> copiesByResource) {
+        Map<Integer, List<Long>> byCount = new TreeMap<>();
+        copiesByResource.forEach((resourceId, count) -> {
+            if (count > 0) {
+                byCount.computeIfAbsent(count, c -> new ArrayList<>()).add(resourceId);
+            }
+        });
+        byCount.forEach((count, resourceIds) -> {
+            resourceRepository.addAvailableCopies(resourceIds, count);
+            resourceIds.forEach(resourceId -> eventPublisher.publishEvent(new AvailabilityChangedEvent(resourceId)));
+        });
+    }
+}
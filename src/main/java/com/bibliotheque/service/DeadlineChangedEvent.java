@@ -0,0 +1,19 @@
+package com.bibliotheque.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a circulation deadline is created or moved, so the in-process
+ * {@link DeadlineScheduler} can fire it at its exact time.
+ */
+public record DeadlineChangedEvent(Kind kind, Long id, LocalDateTime deadline) {
+
+    public enum Kind {
+        LOAN_DUE,
+        RESERVATION_EXPIRY
+    }
+
+    String key() {
+        return kind + ":" + id;
+    }
+}
@@ -0,0 +1,154 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.enums.LoanStatus;
+import com.bibliotheque.model.enums.ReservationStatus;
+import com.bibliotheque.repository.LoanRepository;
+import com.bibliotheque.repository.ReservationRepository;
+import com.bibliotheque.scheduling.HierarchicalTimingWheel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fires loan due dates and reservation pickup expiries at their actual time.
+ * <p>
+ * Upcoming deadlines are loaded from the database one bounded window at a time into a
+ * {@link HierarchicalTimingWheel}; new or moved deadlines arrive through
+ * {@link DeadlineChangedEvent} after commit. Each tick only handles the deadlines that
+ * are due, and the wheel is rebuilt from the database on startup. The nightly
+ * {@link OverdueSweepService} stays in place as a backstop.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeadlineScheduler {
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+    private static final String LEASE = "deadline-wheel";
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final LoanRepository loanRepository;
+    private final ReservationRepository reservationRepository;
+    private final OverdueSweepService overdueSweepService;
+    private final ReservationExpirySweeper reservationExpirySweeper;
+    private final JobLeaseService jobLeaseService;
+
+    private final Map<String, HierarchicalTimingWheel.Timeout<DeadlineChangedEvent>> pending = new ConcurrentHashMap<>();
+
+    @Value("${app.deadlines.tick-ms:1000}")
+    private long tickMillis;
+
+    @Value("${app.deadlines.window-minutes:60}")
+    private long windowMinutes;
+
+    private volatile HierarchicalTimingWheel<DeadlineChangedEvent> wheel;
+    private LocalDateTime loadedUntil;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        pending.clear();
+        wheel = new HierarchicalTimingWheel<>(tickMillis, WHEEL_SIZE, WHEEL_LEVELS, toMillis(now));
+        // Past deadlines missed while the node was down fire on the first tick
+        loadWindow(BEGINNING, now.plusMinutes(windowMinutes));
+        log.info("Deadline wheel rebuilt: {} deadlines until {}", wheel.size(), loadedUntil);
+    }
+
+    @Scheduled(fixedDelayString = "${app.deadlines.reload-ms:300000}")
+    public synchronized void extendWindow() {
+        if (wheel == null) {
+            return;
+        }
+        LocalDateTime until = LocalDateTime.now().plusMinutes(windowMinutes);
+        if (until.isAfter(loadedUntil)) {
+            loadWindow(loadedUntil, until);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onDeadlineChanged(DeadlineChangedEvent event) {
+        // Deadlines past the loaded window are picked up by the next extendWindow()
+        if (wheel != null && event.deadline() != null && event.deadline().isBefore(loadedUntil)) {
+            schedule(event);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.deadlines.tick-ms:1000}")
+    public void tick() {
+        HierarchicalTimingWheel<DeadlineChangedEvent> current = wheel;
+        if (current == null) {
+            return;
+        }
+        List<DeadlineChangedEvent> due = current.advanceTo(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+        for (DeadlineChangedEvent deadline : due) {
+            pending.computeIfPresent(deadline.key(), (key, timeout) -> timeout.payload() == deadline ? null : timeout);
+        }
+        // Every node keeps its wheel current, but only the lease holder fires;
+        // anything dropped during a takeover is caught by the nightly sweep
+        if (!holdsLease()) {
+            return;
+        }
+        List<Long> expiredReservations = new ArrayList<>();
+        for (DeadlineChangedEvent deadline : due) {
+            if (deadline.kind() == DeadlineChangedEvent.Kind.RESERVATION_EXPIRY) {
+                expiredReservations.add(deadline.id());
+                continue;
+            }
+            try {
+                overdueSweepService.markOverdue(deadline.id());
+            } catch (RuntimeException e) {
+                log.warn("Failed to fire deadline {}", deadline.key(), e);
+            }
+        }
+        // Pickup windows lapsing on the same tick expire and promote as one batch
+        try {
+            reservationExpirySweeper.expire(expiredReservations);
+        } catch (RuntimeException e) {
+            log.warn("Failed to expire reservations {}", expiredReservations, e);
+        }
+    }
+
+    private boolean holdsLease() {
+        return jobLeaseService.isHeld(LEASE) || jobLeaseService.tryAcquire(LEASE);
+    }
+
+    private void loadWindow(LocalDateTime from, LocalDateTime until) {
+        for (Object[] row : loanRepository.findDueDatesBetween(LoanStatus.IN_PROGRESS, from, until)) {
+            schedule(new DeadlineChangedEvent(DeadlineChangedEvent.Kind.LOAN_DUE, (Long) row[0], (LocalDateTime) row[1]));
+        }
+        for (Object[] row : reservationRepository.findExpiryDatesBetween(ReservationStatus.APPROVED, from, until)) {
+            schedule(new DeadlineChangedEvent(DeadlineChangedEvent.Kind.RESERVATION_EXPIRY, (Long) row[0], (LocalDateTime) row[1]));
+        }
+        loadedUntil = until;
+    }
+
+    private void schedule(DeadlineChangedEvent event) {
+        // Round up one tick so the conditional "deadline < now" updates always see it as past
+        HierarchicalTimingWheel.Timeout<DeadlineChangedEvent> timeout =
+                wheel.schedule(toMillis(event.deadline()) + tickMillis, event);
+        HierarchicalTimingWheel.Timeout<DeadlineChangedEvent> previous = pending.put(event.key(), timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,91 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.Loan;
+import com.bibliotheque.model.enums.LoanStatus;
+import com.bibliotheque.repository.LoanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Daily "due soon" reminders.
+ * <p>
+ * Reads the due_date range straight from the (status, due_date, id) index with user and
+ * resource fetch-joined, in fixed-size batches seeking past the (due_date, id) of the
+ * previous one. Loans are stamped with {@code reminderSentDate} in the same transaction
+ * that reads them, so a re-run or an overlapping window never mails the same loan twice.
+ * Renewing a loan clears the stamp.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DueSoonReminderService {
+
+    private final LoanRepository loanRepository;
+    private final NotificationOutbox notificationOutbox;
+    private final PlatformTransactionManager transactionManager;
+    private final JobLeaseService jobLeaseService;
+
+    @Value("${app.circulation.reminder-batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.circulation.reminder-days:3}")
+    private int reminderDays;
+
+    @Scheduled(cron = "0 0 9 * * ?") // Daily at 9 AM
+    public void checkDueSoon() {
+        jobLeaseService.runExclusively("due-soon-reminders", () -> {
+            LocalDateTime now = LocalDateTime.now();
+            sendReminders(now, now.plusDays(reminderDays));
+        });
+    }
+
+    public long sendReminders(LocalDateTime from, LocalDateTime to) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long sent = 0;
+        // Starts after every loan due exactly at from, which the window excludes
+        Cursor after = new Cursor(from, Long.MAX_VALUE);
+
+        while (true) {
+            Cursor cursor = after;
+            List<Loan> batch = tx.execute(status -> claimBatch(cursor, to));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            Loan last = batch.get(batch.size() - 1);
+            after = new Cursor(last.getDueDate(), last.getId());
+            sent += batch.size();
+        }
+
+        log.info("Due-soon reminders: {} sent for loans due before {}", sent, to);
+        return sent;
+    }
+
+    private List<Loan> claimBatch(Cursor after, LocalDateTime to) {
+        List<Loan> batch = loanRepository.findDueBetweenNotReminded(
+                LoanStatus.IN_PROGRESS, after.dueDate(), after.id(), to, PageRequest.of(0, batchSize));
+        if (!batch.isEmpty()) {
+            loanRepository.markReminded(batch.stream().map(Loan::getId).toList(), LocalDateTime.now());
+            for (Loan loan : batch) {
+                notificationOutbox.sendDueDateReminder(
+                    loan.getUser().getEmail(),
+                    loan.getUser().getFirstName(),
+                    loan.getResource().getTitle(),
+                    loan.getDueDate().toString()
+                );
+            }
+        }
+        return batch;
+    }
+
+    private record Cursor(LocalDateTime dueDate, Long id) {
+    }
+}
@@ -31,67 +31,43 @@ public class EmailService {
     @Async
     public void sendHtmlMessage(String to, String subject, String templateName, Map<String, Object> variables) {
         try {
-            Context context = new Context();
-            context.setVariables(variables);
-            String htmlBody = templateEngine.process(templateName, context);
-
-            MimeMessage message = emailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            helper.setFrom(fromEmail);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlBody, true);
-
-            emailSender.send(message);
-            log.info("Email sent to {} with subject: {}", to, subject);
+            deliver(to, subject, templateName, variables);
         } catch (MessagingException e) {
             log.error("Failed to send email to {}", to, e);
         }
     }
 
-    public void sendReservationConfirmation(String to, String userName, String resourceTitle, String reservationNumber, int position) {
-        sendHtmlMessage(to, "Confirmation de réservation", "emails/reservation-confirmation",
-                Map.of("userName", userName,
-                       "resourceTitle", resourceTitle,
-                       "reservationNumber", reservationNumber,
-                       "position", position));
-    }
+    /**
+     * Renders and sends one message synchronously, letting failures through so the
+     * caller (the outbox relay) can retry.
+     */
+    public void deliver(String to, String subject, String templateName, Map<String, Object> variables) throws MessagingException {
+        Context context = new Context();
+        context.setVariables(variables);
+        String htmlBody = templateEngine.process(templateName, context);
 
-    public void sendReservationAvailable(String to, String userName, String resourceTitle, String expiryDate) {
-        sendHtmlMessage(to, "Ressource disponible !", "emails/reservation-available",
-                Map.of("userName", userName,
-                       "resourceTitle", resourceTitle,
-                       "expiryDate", expiryDate));
-    }
+        MimeMessage message = emailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
 
-    public void sendDueDateReminder(String to, String userName, String resourceTitle, String dueDate) {
-        sendHtmlMessage(to, "Rappel : Date de retour proche", "emails/loan-reminder",
-                Map.of("userName", userName,
-                       "resourceTitle", resourceTitle,
-                       "dueDate", dueDate));
-    }
+        helper.setFrom(fromEmail);
+        helper.setTo(to);
+        helper.setSubject(subject);
+        helper.setText(htmlBody, true);
 
-    public void sendOverdueAlert(String to, String userName, String resourceTitle, String dueDate, double fee) {
-        sendHtmlMessage(to, "ALERTE : Retard de retour", "emails/loan-overdue",
-                Map.of("userName", userName,
-                       "resourceTitle", resourceTitle,
-                       "dueDate", dueDate,
-                       "fee", fee));
+        emailSender.send(message);
+        log.info("Email sent to {} with subject: {}", to, subject);
     }
 
-    public void sendReturnConfirmation(String to, String userName, String resourceTitle) {
-        sendHtmlMessage(to, "Confirmation de retour", "emails/loan-return",
-                Map.of("userName", userName,
-                       "resourceTitle", resourceTitle));
+    private void send(MailTemplate template, String to, Map<String, Object> variables) {
+        sendHtmlMessage(to, template.getSubject(), template.getTemplateName(), variables);
     }
 
     public void sendAccountCreationEmail(String to, String userName, String loginName, String password, String token) {
         String verificationLink = baseUrl + "/verify-email?token=" + token;
-        sendHtmlMessage(to, "Bienvenue - Création de compte", "emails/account-creation",
-                Map.of("userName", userName,
-                       "loginName", loginName,
-                       "password", password,
-                       "verificationLink", verificationLink));
+        send(MailTemplate.ACCOUNT_CREATION, to,
+                MailTemplate.variables("userName", userName,
+                                      "loginName", loginName,
+                                      "password", password,
+                                      "verificationLink", verificationLink));
     }
 }
@@ -0,0 +1,198 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.FeeBalance;
+import com.bibliotheque.model.FeeLedgerEntry;
+import com.bibliotheque.model.Loan;
+import com.bibliotheque.model.enums.LoanStatus;
+import com.bibliotheque.repository.FeeBalanceRepository;
+import com.bibliotheque.repository.FeeLedgerRepository;
+import com.bibliotheque.repository.LoanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Nightly late-fee accrual.
+ * <p>
+ * Only loans whose fee moved since the last run are visited: overdue loans not yet
+ * accrued for the day, and loans flagged {@code feeDirty} by a return or an edit. For
+ * each one the difference with what was already posted goes to the {@code fee_ledger}
+ * as a delta, and the user's running balance (plus the global one) is incremented in
+ * the same transaction. The two candidate sets are read through their own indexes and
+ * split by id into partitions processed in parallel, each under its own job lease so a
+ * partition runs on one node only.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FeeAccrualService {
+
+    private final LoanRepository loanRepository;
+    private final FeeLedgerRepository feeLedgerRepository;
+    private final FeeBalanceRepository feeBalanceRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final JobLeaseService jobLeaseService;
+
+    @Value("${app.fees.partitions:4}")
+    private int partitions;
+
+    @Value("${app.fees.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(cron = "0 30 0 * * ?") // Daily at 00:30, after the overdue sweep
+    public void accrueNightly() {
+        accrue(LocalDate.now());
+    }
+
+    /**
+     * @return number of ledger entries posted across all partitions run by this node
+     */
+    public long accrue(LocalDate day) {
+        long started = System.nanoTime();
+        List<Long> candidates = candidateIds(day);
+        ExecutorService pool = Executors.newFixedThreadPool(partitions);
+        long posted = 0;
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int p = 0; p < partitions; p++) {
+                int partition = p;
+                // Membership depends on the id only, so nodes holding different partitions never overlap
+                List<Long> ids = candidates.stream().filter(id -> Math.floorMod(id, partitions) == partition).toList();
+                results.add(pool.submit(() -> {
+                    long[] count = {0};
+                    jobLeaseService.runExclusively("fee-accrual-" + partition + "/" + partitions,
+                            () -> count[0] = accruePartition(ids, day));
+                    return count[0];
+                }));
+            }
+            for (Future<Long> result : results) {
+                posted += result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Fee accrual interrupted", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Fee accrual failed", e);
+        } finally {
+            pool.shutdown();
+        }
+
+        double seconds = Math.max((System.nanoTime() - started) / 1_000_000_000.0, 0.001);
+        log.info("Fee accrual for {}: {} ledger entries in {} s over {} partitions",
+                day, posted, String.format("%.3f", seconds), partitions);
+        return posted;
+    }
+
+    // Loans whose fee moved since the last accrual, in id order
+    private List<Long> candidateIds(LocalDate day) {
+        Set<Long> ids = new TreeSet<>(loanRepository.findIdsToAccrue(LoanStatus.OVERDUE, day, LoanService.MAX_LATE_FEE));
+        ids.addAll(loanRepository.findFeeDirtyIds());
+        return new ArrayList<>(ids);
+    }
+
+    long accruePartition(List<Long> candidates, LocalDate day) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long posted = 0;
+
+        for (int from = 0; from < candidates.size(); from += batchSize) {
+            List<Long> ids = candidates.subList(from, Math.min(from + batchSize, candidates.size()));
+            try {
+                Integer count = tx.execute(status -> accrueChunk(ids, day));
+                posted += count == null ? 0 : count;
+            } catch (OptimisticLockingFailureException e) {
+                // A loan in the chunk was returned or edited meanwhile; it still matches next run
+                log.warn("Fee accrual chunk after id {} skipped: {}", ids.get(0), e.getMessage());
+            }
+        }
+        return posted;
+    }
+
+    private int accrueChunk(List<Long> ids, LocalDate day) {
+        LocalDateTime now = LocalDateTime.now();
+        List<FeeLedgerEntry> entries = new ArrayList<>();
+        // Sorted, so parallel partitions always lock balance rows in the same order
+        Map<Long, Double> deltas = new TreeMap<>();
+
+        for (Loan loan : loanRepository.findAllById(ids)) {
+            double fee = targetFee(loan, now);
+            double accrued = Objects.requireNonNullElse(loan.getFeeAccrued(), 0.0);
+            double delta = fee - accrued;
+
+            if (loan.getStatus() == LoanStatus.OVERDUE) {
+                loan.setLateFee(fee);
+                loan.setFeeAccruedDate(day);
+            }
+            loan.setFeeAccrued(fee);
+            loan.setFeeDirty(false);
+
+            if (delta != 0) {
+                Long userId = loan.getUser().getId();
+                entries.add(new FeeLedgerEntry(null, loan.getId(), userId, day, delta, now));
+                deltas.merge(userId, delta, Double::sum);
+                deltas.merge(FeeBalance.GLOBAL, delta, Double::sum);
+            }
+        }
+
+        feeLedgerRepository.saveAll(entries);
+        deltas.forEach((userId, delta) -> addToBalance(userId, delta, now));
+        return entries.size();
+    }
+
+    // Overdue loans accrue up to today; otherwise the fee on the loan is final
+    private static double targetFee(Loan loan, LocalDateTime now) {
+        if (loan.getStatus() == LoanStatus.OVERDUE) {
+            return LoanService.calculateEstimatedFee(loan);
+        }
+        return Objects.requireNonNullElse(loan.getLateFee(), 0.0);
+    }
+
+    private void addToBalance(Long userId, double delta, LocalDateTime now) {
+        if (feeBalanceRepository.addToBalance(userId, delta, now) == 0) {
+            createBalance(userId, now);
+            feeBalanceRepository.addToBalance(userId, delta, now);
+        }
+    }
+
+    // Own transaction, so a concurrent partition creating the same row does not roll back the chunk
+    private void createBalance(Long userId, LocalDateTime now) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            tx.executeWithoutResult(status -> {
+                if (!feeBalanceRepository.existsById(userId)) {
+                    feeBalanceRepository.saveAndFlush(new FeeBalance(userId, 0.0, now));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another partition inserted it first
+        }
+    }
+
+    public double totalFees() {
+        return balanceOf(FeeBalance.GLOBAL);
+    }
+
+    public double balanceOf(Long userId) {
+        return feeBalanceRepository.findById(userId).map(FeeBalance::getBalance).orElse(0.0);
+    }
+}
@@ -0,0 +1,123 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.IdempotencyKey;
+import com.bibliotheque.repository.IdempotencyKeyRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of recent state-changing requests by client-supplied key.
+ * <p>
+ * The key and the request's result are written to the {@code idempotency_keys} table in
+ * the same transaction as the state change, so they commit together or not at all. A
+ * retry carrying the same key, on any node, is answered with the stored result instead
+ * of being applied again; a retry arriving while the first attempt is still running
+ * waits on the key's row, and gets {@link RequestInProgressException} if that takes
+ * longer than the database lock timeout. Failed attempts leave nothing behind, so they
+ * can be retried. Entries expire after {@code app.idempotency.ttl-minutes}.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyStore {
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final JobLeaseService jobLeaseService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.idempotency.ttl-minutes:10}")
+    private long ttlMinutes = 10;
+
+    /**
+     * An earlier attempt with the same key is still running; its outcome is not known yet.
+     */
+    public static class RequestInProgressException extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        public RequestInProgressException() {
+            super("Request already in progress, please retry in a moment");
+        }
+    }
+
+    // The key is held by another attempt: committed, or still running past the lock timeout
+    private static class KeyTakenException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        KeyTakenException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Runs {@code action} once per {@code key} and returns its result, or the stored
+     * result of the attempt that ran it; runs it unconditionally when there is no key.
+     * The action joins the transaction opened here, so its writes commit with the key.
+     */
+    public String execute(String key, Supplier<String> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String hash = hash(key);
+        Optional<String> stored = storedResult(hash);
+        if (stored.isPresent()) {
+            return stored.get();
+        }
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                claim(hash);
+                String result = action.get();
+                idempotencyKeyRepository.complete(hash, result);
+                return result;
+            });
+        } catch (KeyTakenException e) {
+            return storedResult(hash).orElseThrow(RequestInProgressException::new);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-ms:60000}")
+    public void purgeExpired() {
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> idempotencyKeyRepository.deleteExpired(LocalDateTime.now()));
+    }
+
+    // Takes the key cluster-wide, replacing a claim that has expired; waits while another attempt holds it
+    private void claim(String hash) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            idempotencyKeyRepository.deleteIfExpired(hash, now);
+            idempotencyKeyRepository.claim(hash, jobLeaseService.getNodeId(), now, now.plusMinutes(ttlMinutes));
+        } catch (DataIntegrityViolationException | PessimisticLockingFailureException e) {
+            throw new KeyTakenException(e);
+        }
+    }
+
+    private Optional<String> storedResult(String hash) {
+        return idempotencyKeyRepository.findById(hash)
+                .filter(entry -> entry.getExpiresAt().isAfter(LocalDateTime.now()))
+                .map(IdempotencyKey::getResult);
+    }
+
+    private static String hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.JobLease;
+import com.bibliotheque.repository.JobLeaseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cluster-wide leases for scheduled jobs, backed by the {@code job_leases} table.
+ * <p>
+ * Only the node holding a job's lease runs it. Held leases are renewed by
+ * {@link #heartbeat()}; a node that dies stops heartbeating and its lease expires, so the
+ * next node to try takes over. A finished run simply stops heartbeating instead of
+ * releasing, so another node firing the same cron a few seconds later does not run it twice.
+ * <p>
+ * {@link #isValid} tells whether a lease is certainly still this node's: held, and renewed
+ * recently enough that it cannot have expired yet, with a fifth of the TTL kept as margin
+ * for clock drift between nodes.
+ */
+@Service
+@Slf4j
+public class JobLeaseService {
+
+    private final JobLeaseRepository jobLeaseRepository;
+    private final TransactionTemplate tx;
+    private final String nodeId;
+    private final Duration ttl;
+    private final Map<String, Duration> held = new ConcurrentHashMap<>();
+    // System.nanoTime() before which each held lease cannot have expired
+    private final Map<String, Long> validUntil = new ConcurrentHashMap<>();
+
+    public JobLeaseService(JobLeaseRepository jobLeaseRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.node-id:}") String nodeId,
+                           @Value("${app.leases.ttl-seconds:60}") long ttlSeconds) {
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean tryAcquire(String name) {
+        return tryAcquire(name, ttl);
+    }
+
+    public boolean tryAcquire(String name, Duration leaseTtl) {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(leaseTtl);
+        Integer updated = tx.execute(status -> jobLeaseRepository.acquire(name, nodeId, now, expiresAt));
+        boolean acquired = updated != null && updated == 1;
+        if (!acquired) {
+            acquired = tryCreate(name, now, expiresAt);
+        }
+        if (acquired) {
+            hold(name, leaseTtl, started);
+        }
+        return acquired;
+    }
+
+    /**
+     * Runs {@code job} only if this node holds (or can take) the lease for {@code name}.
+     *
+     * @return {@code false} when another node owns the job
+     */
+    public boolean runExclusively(String name, Runnable job) {
+        if (!tryAcquire(name)) {
+            log.debug("Skipping {}: lease held by another node", name);
+            return false;
+        }
+        try {
+            job.run();
+        } finally {
+            release(name);
+        }
+        return true;
+    }
+
+    /**
+     * Extends the lease on {@code name}.
+     *
+     * @return {@code false} if another node has taken the lease over
+     */
+    public boolean renew(String name) {
+        Duration leaseTtl = held.getOrDefault(name, ttl);
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        Integer updated = tx.execute(status -> jobLeaseRepository.heartbeat(name, nodeId, now, now.plus(leaseTtl)));
+        if (updated == null || updated == 0) {
+            release(name);
+            log.warn("Lease {} lost by node {}", name, nodeId);
+            return false;
+        }
+        hold(name, leaseTtl, started);
+        return true;
+    }
+
+    public boolean isHeld(String name) {
+        return held.containsKey(name);
+    }
+
+    /**
+     * Whether {@code name} is held and was last acquired or renewed recently enough that
+     * no other node can have taken it over yet.
+     */
+    public boolean isValid(String name) {
+        Long until = validUntil.get(name);
+        return until != null && System.nanoTime() - until < 0;
+    }
+
+    private void hold(String name, Duration leaseTtl, long startedNanos) {
+        held.put(name, leaseTtl);
+        validUntil.put(name, startedNanos + leaseTtl.toNanos() - leaseTtl.toNanos() / 5);
+    }
+
+    private void release(String name) {
+        held.remove(name);
+        validUntil.remove(name);
+    }
+
+    @Scheduled(fixedDelayString = "${app.leases.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (String name : held.keySet()) {
+            renew(name);
+        }
+    }
+
+    private boolean tryCreate(String name, LocalDateTime now, LocalDateTime expiresAt) {
+        try {
+            Boolean created = tx.execute(status -> {
+                if (jobLeaseRepository.existsById(name)) {
+                    return false;
+                }
+                jobLeaseRepository.saveAndFlush(new JobLease(name, nodeId, now, now, expiresAt));
+                return true;
+            });
+            return Boolean.TRUE.equals(created);
+        } catch (DataIntegrityViolationException e) {
+            // Another node inserted the row first
+            return false;
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,33 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.ids.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Id generator whose node number is claimed through a job lease. Ids are only issued
+ * while the lease is certainly still held ({@link JobLeaseService#isValid}); past that, the
+ * lease is renewed inline, and if another node has taken it over in the meantime the
+ * generator refuses to issue ids rather than risk duplicating that node's.
+ */
+@Slf4j
+public class LeasedIdGenerator implements IdGenerator {
+
+    private final IdGenerator delegate;
+    private final JobLeaseService jobLeaseService;
+    private final String lease;
+
+    public LeasedIdGenerator(IdGenerator delegate, JobLeaseService jobLeaseService, String lease) {
+        this.delegate = delegate;
+        this.jobLeaseService = jobLeaseService;
+        this.lease = lease;
+    }
+
+    @Override
+    public long nextId() {
+        if (!jobLeaseService.isValid(lease) && !jobLeaseService.renew(lease)) {
+            log.error("Node number lease {} lost, refusing to issue ids", lease);
+            throw new IllegalStateException("Node number lease " + lease + " lost");
+        }
+        return delegate.nextId();
+    }
+}
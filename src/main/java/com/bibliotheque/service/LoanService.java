@@ -1,5 +1,7 @@
 package com.bibliotheque.service;
 
+import com.bibliotheque.dto.BatchLoanResult;
+import com.bibliotheque.dto.LoanRow;
 import com.bibliotheque.model.Loan;
 import com.bibliotheque.model.Resource;
 import com.bibliotheque.model.User;
@@ -8,50 +10,55 @@ import com.bibliotheque.repository.LoanRepository;
 import com.bibliotheque.repository.ResourceRepository;
 import com.bibliotheque.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class LoanService {
 
+    static final double MAX_LATE_FEE = 30.0;
+
     private final LoanRepository loanRepository;
     private final ResourceRepository resourceRepository;
     private final UserRepository userRepository;
     private final ReservationService reservationService;
-    private final EmailService emailService;
+    private final NotificationOutbox notificationOutbox;
+    private final CopyInventoryService copyInventoryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LoanStateMachine stateMachine = new LoanStateMachine();
 
     public Optional<Loan> findById(Long id) {
         return loanRepository.findById(id);
     }
 
-    public List<Loan> findByUser(User user) {
-        return loanRepository.findByUser(user);
-    }
-
-    public Page<Loan> findByUser(User user, Pageable pageable) {
-        return loanRepository.findByUser(user, pageable);
+    /**
+     * Rows of the loan list pages, read as projections rather than entities.
+     */
+    public List<LoanRow> listByUser(User user) {
+        return loanRepository.findRowsByUser(user);
     }
 
-    public List<Loan> findPendingLoans() {
-        return loanRepository.findByStatus(LoanStatus.RESERVED);
+    public List<LoanRow> listByStatus(LoanStatus status) {
+        return loanRepository.findRowsByStatus(status);
     }
 
-    public List<Loan> findOverdueLoans() {
-        return loanRepository.findByStatus(LoanStatus.OVERDUE);
-    }
-
-    public List<Loan> findAll() {
-        return loanRepository.findAll();
+    public List<LoanRow> listAll() {
+        return loanRepository.findAllRows();
     }
 
     @Transactional
@@ -60,8 +67,13 @@ public class LoanService {
                 .orElseThrow(() -> new IllegalArgumentException("Loan not found"));
         
         loan.setDueDate(updatedLoan.getDueDate());
-        loan.setStatus(updatedLoan.getStatus());
-        loan.setLateFee(updatedLoan.getLateFee());
+        if (updatedLoan.getStatus() != loan.getStatus()) {
+            transitionStatus(loan, updatedLoan.getStatus());
+        }
+        if (!Objects.equals(loan.getLateFee(), updatedLoan.getLateFee())) {
+            loan.setLateFee(updatedLoan.getLateFee());
+            loan.setFeeDirty(true);
+        }
         
         return loanRepository.save(loan);
     }
@@ -71,33 +83,32 @@ public class LoanService {
         Resource resource = resourceRepository.findById(resourceId)
                 .orElseThrow(() -> new IllegalArgumentException("Resource not found"));
 
-        if (resource.getAvailableCopies() <= 0) {
+        // Fast path: don't contend for the row when the last read already shows no stock.
+        // A copy back on the shelf while patrons are queued is theirs, not a walk-in's
+        if (resource.getAvailableCopies() <= 0 || reservationService.hasWaiting(resource)
+                || !copyInventoryService.tryCheckout(resourceId)) {
             throw new IllegalStateException("No copies available for reservation");
         }
 
-        resource.setAvailableCopies(resource.getAvailableCopies() - 1);
-        resourceRepository.save(resource);
-
         Loan loan = new Loan();
         loan.setUser(user);
         loan.setResource(resource);
         loan.setLibrary(resource.getLibrary());
         loan.setReservationDate(LocalDateTime.now());
         loan.setStatus(LoanStatus.RESERVED);
-        
-        return loanRepository.save(loan);
+
+        Loan saved = loanRepository.save(loan);
+        eventPublisher.publishEvent(new ResourceDemandEvent(resourceId));
+        return saved;
     }
 
     @Transactional
     public Loan approve(Long loanId) {
         Loan loan = loanRepository.findById(loanId)
                 .orElseThrow(() -> new IllegalArgumentException("Loan not found"));
-        
-        transitionStatus(loan, LoanStatus.IN_PROGRESS);
-        
-        loan.setLoanDate(LocalDateTime.now());
-        loan.setDueDate(calculateDueDate(loan.getLoanDate()));
-        
+
+        applyApprove(loan);
+
         return loanRepository.save(loan);
     }
 
@@ -106,76 +117,160 @@ public class LoanService {
         Loan loan = loanRepository.findById(loanId)
                 .orElseThrow(() -> new IllegalArgumentException("Loan not found"));
 
-        loan.setActualReturnDate(LocalDateTime.now());
-        loan.setReturnDate(loan.getActualReturnDate());
-        
-        double fee = calculateLateFee(loan);
-        loan.setLateFee(fee);
+        applyReturn(loan);
+
+        return loanRepository.save(loan);
+    }
 
-        if (fee > 0) {
-            transitionStatus(loan, LoanStatus.RETURNED);
-        } else {
-            transitionStatus(loan, LoanStatus.CLOSED);
+    @Transactional
+    public Loan renew(Long loanId) {
+        Loan loan = loanRepository.findById(loanId)
+                .orElseThrow(() -> new IllegalArgumentException("Loan not found"));
+
+        applyRenew(loan);
+
+        return loanRepository.save(loan);
+    }
+
+    @Transactional
+    public List<BatchLoanResult.Item> approveAll(List<Long> loanIds) {
+        return applyBatch(loanIds, this::applyApprove);
+    }
+
+    @Transactional
+    public List<BatchLoanResult.Item> returnAll(List<Long> loanIds) {
+        List<Loan> returned = new ArrayList<>();
+        List<BatchLoanResult.Item> items = applyBatch(loanIds, loan -> {
+            markReturned(loan);
+            returned.add(loan);
+        });
+
+        // Copies go back with one UPDATE per distinct count for the whole batch
+        Map<Long, Integer> copies = new HashMap<>();
+        returned.forEach(loan -> copies.merge(loan.getResource().getId(), 1, Integer::sum));
+        copyInventoryService.checkinAll(copies);
+        returned.forEach(this::afterReturn);
+        return items;
+    }
+
+    @Transactional
+    public List<BatchLoanResult.Item> renewAll(List<Long> loanIds) {
+        return applyBatch(loanIds, this::applyRenew);
+    }
+
+    /**
+     * Loads every loan with one query and applies the single-item rule to each. Rule
+     * violations are reported per item; the modified loans are flushed together at
+     * commit, so Hibernate writes them as JDBC batches ({@code hibernate.jdbc.batch_size}).
+     */
+    private List<BatchLoanResult.Item> applyBatch(List<Long> loanIds, Consumer<Loan> rule) {
+        Map<Long, Loan> loans = new HashMap<>();
+        for (Loan loan : loanRepository.findWithUserAndResourceByIdIn(new HashSet<>(loanIds))) {
+            loans.put(loan.getId(), loan);
         }
 
+        Set<Long> seen = new HashSet<>();
+        List<BatchLoanResult.Item> items = new ArrayList<>(loanIds.size());
+        for (Long id : loanIds) {
+            Loan loan = loans.get(id);
+            if (loan == null) {
+                items.add(BatchLoanResult.Item.failed(id, "Loan not found"));
+            } else if (!seen.add(id)) {
+                items.add(BatchLoanResult.Item.failed(id, "Duplicate loan id"));
+            } else {
+                try {
+                    rule.accept(loan);
+                    items.add(BatchLoanResult.Item.ok(id, loan.getStatus()));
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    items.add(BatchLoanResult.Item.failed(id, e.getMessage()));
+                }
+            }
+        }
+        return items;
+    }
+
+    // Rules shared by the single-item and batch paths; they check before touching anything
+
+    private void applyApprove(Loan loan) {
+        transitionStatus(loan, LoanStatus.IN_PROGRESS);
+
+        loan.setLoanDate(LocalDateTime.now());
+        loan.setDueDate(calculateDueDate(loan.getLoanDate()));
+        publishDueDate(loan);
+    }
+
+    private void applyReturn(Loan loan) {
+        markReturned(loan);
+        copyInventoryService.checkin(loan.getResource().getId());
+        afterReturn(loan);
+    }
+
+    private void markReturned(Loan loan) {
+        LocalDateTime returnedAt = LocalDateTime.now();
+        double fee = calculateLateFee(loan, returnedAt);
+
+        // Late returns stay RETURNED until the fee is settled
+        transitionStatus(loan, fee > 0 ? LoanStatus.RETURNED : LoanStatus.CLOSED);
+
+        loan.setActualReturnDate(returnedAt);
+        loan.setReturnDate(returnedAt);
+        loan.setLateFee(fee);
+        if (!Objects.equals(loan.getFeeAccrued(), fee)) {
+            loan.setFeeDirty(true);
+        }
+    }
+
+    // Once the copy is back on the shelf
+    private void afterReturn(Loan loan) {
         Resource resource = loan.getResource();
-        resource.setAvailableCopies(resource.getAvailableCopies() + 1);
-        resourceRepository.save(resource);
-        
         reservationService.processReturn(resource);
-        
-        emailService.sendReturnConfirmation(
+
+        notificationOutbox.sendReturnConfirmation(
             loan.getUser().getEmail(),
             loan.getUser().getFirstName(),
             resource.getTitle()
         );
-
-        return loanRepository.save(loan);
     }
 
-    @Transactional
-    public Loan renew(Long loanId) {
-        Loan loan = loanRepository.findById(loanId)
-                .orElseThrow(() -> new IllegalArgumentException("Loan not found"));
-
+    private void applyRenew(Loan loan) {
         validateRenewal(loan);
-        
+
         loan.setRenewalCount(loan.getRenewalCount() + 1);
-        loan.setDueDate(loan.getDueDate().plusDays(15)); 
-        
-        return loanRepository.save(loan);
+        loan.setDueDate(loan.getDueDate().plusDays(15));
+        loan.setReminderSentDate(null);
+        publishDueDate(loan);
+    }
+
+    private void publishDueDate(Loan loan) {
+        eventPublisher.publishEvent(new DeadlineChangedEvent(DeadlineChangedEvent.Kind.LOAN_DUE, loan.getId(), loan.getDueDate()));
     }
 
     private LocalDateTime calculateDueDate(LocalDateTime loanDate) {
         return loanDate.plusDays(15);
     }
 
-    private Double calculateEstimatedFee(Loan loan) {
+    static double calculateEstimatedFee(Loan loan) {
         if (loan.getDueDate() == null) {
             return 0.0;
         }
-        LocalDateTime now = LocalDateTime.now();
-        if (now.isAfter(loan.getDueDate())) {
-            long daysLate = ChronoUnit.DAYS.between(loan.getDueDate(), now);
-            if (daysLate > 0) {
-                double fee = daysLate * 1.0; 
-                return Math.min(fee, 30.0);
-            }
-        }
-        return 0.0;
+        return lateFeeBetween(loan.getDueDate(), LocalDateTime.now());
     }
 
-    private Double calculateLateFee(Loan loan) {
-        if (loan.getDueDate() == null || loan.getActualReturnDate() == null) {
+    private Double calculateLateFee(Loan loan, LocalDateTime returnedAt) {
+        if (loan.getDueDate() == null) {
             return 0.0;
         }
         
         // If returned AFTER due date
-        if (loan.getActualReturnDate().isAfter(loan.getDueDate())) {
-            long daysLate = ChronoUnit.DAYS.between(loan.getDueDate(), loan.getActualReturnDate());
+        return lateFeeBetween(loan.getDueDate(), returnedAt);
+    }
+
+    static double lateFeeBetween(LocalDateTime dueDate, LocalDateTime at) {
+        if (at.isAfter(dueDate)) {
+            long daysLate = ChronoUnit.DAYS.between(dueDate, at);
             if (daysLate > 0) {
                 double fee = daysLate * 1.0; 
-                return Math.min(fee, 30.0);
+                return Math.min(fee, MAX_LATE_FEE);
             }
         }
         return 0.0;
@@ -193,49 +288,6 @@ public class LoanService {
     }
 
     private void transitionStatus(Loan loan, LoanStatus newStatus) {
-        loan.setStatus(newStatus);
-    }
-
-    @Scheduled(cron = "0 0 0 * * ?") // Daily at midnight
-    @Transactional
-    public void checkOverdue() {
-        List<Loan> activeLoans = loanRepository.findByStatus(LoanStatus.IN_PROGRESS);
-        LocalDateTime now = LocalDateTime.now();
-        
-        for (Loan loan : activeLoans) {
-            if (loan.getDueDate() != null && loan.getDueDate().isBefore(now)) {
-                loan.setStatus(LoanStatus.OVERDUE);
-                loanRepository.save(loan);
-                
-                emailService.sendOverdueAlert(
-                    loan.getUser().getEmail(),
-                    loan.getUser().getFirstName(),
-                    loan.getResource().getTitle(),
-                    loan.getDueDate().toString(),
-                    calculateEstimatedFee(loan) // Estimated fee
-                );
-            }
-        }
-    }
-
-    @Scheduled(cron = "0 0 9 * * ?") // Daily at 9 AM
-    public void checkDueSoon() {
-        List<Loan> activeLoans = loanRepository.findByStatus(LoanStatus.IN_PROGRESS);
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime threeDaysLater = now.plusDays(3);
-        
-        for (Loan loan : activeLoans) {
-            if (loan.getDueDate() != null && 
-                loan.getDueDate().isAfter(now) && 
-                loan.getDueDate().isBefore(threeDaysLater)) {
-                
-                emailService.sendDueDateReminder(
-                    loan.getUser().getEmail(),
-                    loan.getUser().getFirstName(),
-                    loan.getResource().getTitle(),
-                    loan.getDueDate().toString()
-                );
-            }
-        }
+        stateMachine.transition(loan, newStatus);
     }
 }
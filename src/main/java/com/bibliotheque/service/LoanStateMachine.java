@@ -0,0 +1,79 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.Loan;
+import com.bibliotheque.model.enums.LoanStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Allowed {@link LoanStatus} transitions, compiled once into an {@link EnumMap}.
+ * <p>
+ * Guards registered for a target status run before the status is changed and reject
+ * the transition by throwing {@link IllegalStateException}.
+ */
+public final class LoanStateMachine {
+
+    @FunctionalInterface
+    public interface Guard {
+        void check(Loan loan, LoanStatus from, LoanStatus to);
+    }
+
+    private final Map<LoanStatus, Set<LoanStatus>> transitions = new EnumMap<>(LoanStatus.class);
+    private final Map<LoanStatus, List<Guard>> guards = new EnumMap<>(LoanStatus.class);
+
+    public LoanStateMachine() {
+        for (LoanStatus status : LoanStatus.values()) {
+            transitions.put(status, EnumSet.noneOf(LoanStatus.class));
+        }
+        allow(LoanStatus.RESERVED, LoanStatus.IN_PROGRESS, LoanStatus.CANCELLED);
+        // BORROWED is the legacy name of IN_PROGRESS still found on old rows
+        allow(LoanStatus.BORROWED, LoanStatus.IN_PROGRESS, LoanStatus.OVERDUE, LoanStatus.RETURNED, LoanStatus.CLOSED);
+        allow(LoanStatus.IN_PROGRESS, LoanStatus.OVERDUE, LoanStatus.RETURNED, LoanStatus.CLOSED);
+        allow(LoanStatus.OVERDUE, LoanStatus.RETURNED, LoanStatus.CLOSED);
+        allow(LoanStatus.RETURNED, LoanStatus.CLOSED);
+
+        guard(LoanStatus.OVERDUE, (loan, from, to) -> {
+            if (loan.getDueDate() == null || !loan.getDueDate().isBefore(LocalDateTime.now())) {
+                throw new IllegalStateException("Loan is not past its due date");
+            }
+        });
+    }
+
+    public LoanStateMachine allow(LoanStatus from, LoanStatus... to) {
+        transitions.get(from).addAll(List.of(to));
+        return this;
+    }
+
+    public LoanStateMachine guard(LoanStatus to, Guard guard) {
+        guards.computeIfAbsent(to, status -> new ArrayList<>()).add(guard);
+        return this;
+    }
+
+    public boolean canTransition(LoanStatus from, LoanStatus to) {
+        return from != null && transitions.get(from).contains(to);
+    }
+
+    /**
+     * Checks that {@code loan} may move to {@code to} without changing it.
+     */
+    public void check(Loan loan, LoanStatus to) {
+        LoanStatus from = loan.getStatus();
+        if (!canTransition(from, to)) {
+            throw new IllegalStateException("Cannot move loan from " + from + " to " + to);
+        }
+        for (Guard guard : guards.getOrDefault(to, List.of())) {
+            guard.check(loan, from, to);
+        }
+    }
+
+    public void transition(Loan loan, LoanStatus to) {
+        check(loan, to);
+        loan.setStatus(to);
+    }
+}
@@ -0,0 +1,46 @@
+package com.bibliotheque.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Subject and Thymeleaf template of each notification mail. Circulation mails go through
+ * the {@link NotificationOutbox}; only the account creation mail is sent directly by
+ * {@link EmailService}.
+ */
+public enum MailTemplate {
+    RESERVATION_CONFIRMATION("Confirmation de réservation", "emails/reservation-confirmation"),
+    RESERVATION_AVAILABLE("Ressource disponible !", "emails/reservation-available"),
+    LOAN_REMINDER("Rappel : Date de retour proche", "emails/loan-reminder"),
+    LOAN_OVERDUE("ALERTE : Retard de retour", "emails/loan-overdue"),
+    LOAN_RETURN("Confirmation de retour", "emails/loan-return"),
+    ACCOUNT_CREATION("Bienvenue - Création de compte", "emails/account-creation");
+
+    private final String subject;
+    private final String templateName;
+
+    MailTemplate(String subject, String templateName) {
+        this.subject = subject;
+        this.templateName = templateName;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public String getTemplateName() {
+        return templateName;
+    }
+
+    /**
+     * Template variables from alternating names and values. Unlike {@code Map.of},
+     * accepts missing values such as a user without a first name.
+     */
+    public static Map<String, Object> variables(Object... namesAndValues) {
+        Map<String, Object> variables = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            variables.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return variables;
+    }
+}
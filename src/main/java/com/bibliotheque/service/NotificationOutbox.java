@@ -0,0 +1,86 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.OutboxMessage;
+import com.bibliotheque.model.enums.OutboxStatus;
+import com.bibliotheque.repository.OutboxMessageRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Circulation mails, written to the {@code outbox_messages} table inside the caller's
+ * transaction instead of being sent on the spot. A rollback discards them with the rest
+ * of the change; {@link OutboxRelay} delivers committed ones in the background, so
+ * request latency no longer depends on the mail server.
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificationOutbox {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final ObjectMapper objectMapper;
+
+    public void sendReservationConfirmation(String to, String userName, String resourceTitle, String reservationNumber, int position) {
+        enqueue(MailTemplate.RESERVATION_CONFIRMATION, to,
+                MailTemplate.variables("userName", userName,
+                                      "resourceTitle", resourceTitle,
+                                      "reservationNumber", reservationNumber,
+                                      "position", position));
+    }
+
+    public void sendReservationAvailable(String to, String userName, String resourceTitle, String expiryDate) {
+        enqueue(MailTemplate.RESERVATION_AVAILABLE, to,
+                MailTemplate.variables("userName", userName,
+                                      "resourceTitle", resourceTitle,
+                                      "expiryDate", expiryDate));
+    }
+
+    public void sendDueDateReminder(String to, String userName, String resourceTitle, String dueDate) {
+        enqueue(MailTemplate.LOAN_REMINDER, to,
+                MailTemplate.variables("userName", userName,
+                                      "resourceTitle", resourceTitle,
+                                      "dueDate", dueDate));
+    }
+
+    public void sendOverdueAlert(String to, String userName, String resourceTitle, String dueDate, double fee) {
+        enqueue(MailTemplate.LOAN_OVERDUE, to,
+                MailTemplate.variables("userName", userName,
+                                      "resourceTitle", resourceTitle,
+                                      "dueDate", dueDate,
+                                      "fee", fee));
+    }
+
+    public void sendReturnConfirmation(String to, String userName, String resourceTitle) {
+        enqueue(MailTemplate.LOAN_RETURN, to,
+                MailTemplate.variables("userName", userName,
+                                      "resourceTitle", resourceTitle));
+    }
+
+    @Transactional
+    public OutboxMessage enqueue(MailTemplate template, String to, Map<String, Object> variables) {
+        LocalDateTime now = LocalDateTime.now();
+        OutboxMessage message = new OutboxMessage();
+        message.setRecipient(to);
+        message.setSubject(template.getSubject());
+        message.setTemplateName(template.getTemplateName());
+        message.setPayload(toJson(variables));
+        message.setStatus(OutboxStatus.PENDING);
+        message.setAttempts(0);
+        message.setNextAttemptAt(now);
+        message.setCreatedAt(now);
+        return outboxMessageRepository.save(message);
+    }
+
+    private String toJson(Map<String, Object> variables) {
+        try {
+            return objectMapper.writeValueAsString(variables);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Mail variables are not serializable", e);
+        }
+    }
+}
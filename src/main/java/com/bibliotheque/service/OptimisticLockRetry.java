@@ -0,0 +1,50 @@
+package com.bibliotheque.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Bounded retry for writes that lose an optimistic-lock race on a {@code @Version}ed entity.
+ * <p>
+ * Must wrap the whole transactional call: each attempt re-reads the entity in a fresh
+ * transaction, so the rules are applied again to the current state.
+ */
+@Component
+@Slf4j
+public class OptimisticLockRetry {
+
+    @Value("${app.circulation.optimistic-retries:3}")
+    private int maxAttempts = 3;
+
+    @Value("${app.circulation.optimistic-backoff-ms:20}")
+    private long backoffMillis = 20;
+
+    public <T> T execute(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return action.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("Optimistic lock conflict, retrying ({}/{})", attempt, maxAttempts);
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        try {
+            // Jittered so two conflicting requests do not collide again in lockstep
+            Thread.sleep(backoffMillis * attempt + ThreadLocalRandom.current().nextLong(backoffMillis + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying", e);
+        }
+    }
+}
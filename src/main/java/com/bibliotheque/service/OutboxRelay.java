@@ -0,0 +1,124 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.OutboxMessage;
+import com.bibliotheque.model.enums.OutboxStatus;
+import com.bibliotheque.repository.OutboxMessageRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drains {@code outbox_messages} in batches on the node holding the relay lease.
+ * <p>
+ * Messages are read in one short transaction, sent with no transaction open, and their
+ * outcome written back in another. Failures are retried with exponential backoff; after
+ * {@code app.outbox.max-attempts} a message is parked as DEAD for a human to look at.
+ * Delivery is at least once: a crash between sending and recording can resend a mail.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private static final TypeReference<Map<String, Object>> VARIABLES = new TypeReference<>() {};
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final EmailService emailService;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final JobLeaseService jobLeaseService;
+
+    @Value("${app.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retry-base-seconds:30}")
+    private long retryBaseSeconds;
+
+    @Value("${app.outbox.retention-days:7}")
+    private int retentionDays;
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:2000}")
+    public void poll() {
+        jobLeaseService.runExclusively("outbox-relay", this::drain);
+    }
+
+    @Scheduled(cron = "0 0 3 * * ?") // Daily at 3 AM
+    public void purgeSent() {
+        jobLeaseService.runExclusively("outbox-purge", () -> {
+            Integer deleted = new TransactionTemplate(transactionManager).execute(status ->
+                    outboxMessageRepository.deleteSentBefore(OutboxStatus.SENT, LocalDateTime.now().minusDays(retentionDays)));
+            log.info("Outbox purge: {} sent messages removed", deleted);
+        });
+    }
+
+    /**
+     * @return number of messages delivered
+     */
+    public int drain() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int delivered = 0;
+        while (true) {
+            List<OutboxMessage> batch = tx.execute(status ->
+                    outboxMessageRepository.findReady(OutboxStatus.PENDING, LocalDateTime.now(), PageRequest.of(0, batchSize)));
+            if (batch == null || batch.isEmpty()) {
+                return delivered;
+            }
+            for (OutboxMessage message : batch) {
+                if (deliver(message)) {
+                    delivered++;
+                }
+            }
+            tx.executeWithoutResult(status -> outboxMessageRepository.saveAll(batch));
+            if (batch.size() < batchSize) {
+                return delivered;
+            }
+        }
+    }
+
+    private boolean deliver(OutboxMessage message) {
+        LocalDateTime now = LocalDateTime.now();
+        message.setAttempts(message.getAttempts() + 1);
+        try {
+            Map<String, Object> variables = objectMapper.readValue(message.getPayload(), VARIABLES);
+            emailService.deliver(message.getRecipient(), message.getSubject(), message.getTemplateName(), variables);
+            message.setStatus(OutboxStatus.SENT);
+            message.setSentAt(now);
+            message.setLastError(null);
+            return true;
+        } catch (Exception e) {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            message.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            if (message.getAttempts() >= maxAttempts) {
+                message.setStatus(OutboxStatus.DEAD);
+                log.error("Outbox message {} to {} dead after {} attempts: {}",
+                        message.getId(), message.getRecipient(), message.getAttempts(), error);
+            } else {
+                message.setNextAttemptAt(now.plus(backoff(message.getAttempts())));
+                log.warn("Outbox message {} failed (attempt {}), retrying later: {}",
+                        message.getId(), message.getAttempts(), error);
+            }
+            return false;
+        }
+    }
+
+    // 30s, 1m, 2m, ... capped at one hour
+    private Duration backoff(int attempts) {
+        long seconds = retryBaseSeconds << Math.min(attempts - 1, 16);
+        return Duration.ofSeconds(Math.min(seconds, 3600));
+    }
+}
@@ -0,0 +1,116 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.Loan;
+import com.bibliotheque.model.enums.LoanStatus;
+import com.bibliotheque.repository.LoanRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Nightly sweep flipping IN_PROGRESS loans past their due date to OVERDUE.
+ * <p>
+ * Works in keyset-paginated chunks: each chunk seeks past the (due_date, id) of the
+ * previous one in the (status, due_date, id) index, flips them with one UPDATE and reloads the flipped
+ * loans with user and resource fetch-joined for the alert mail. Every chunk runs
+ * in its own short transaction so the sweep never pins a connection for its whole run.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OverdueSweepService {
+
+    private final LoanRepository loanRepository;
+    private final NotificationOutbox notificationOutbox;
+    private final PlatformTransactionManager transactionManager;
+    private final JobLeaseService jobLeaseService;
+
+    @Value("${app.circulation.sweep-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(cron = "0 0 0 * * ?") // Daily at midnight
+    public void checkOverdue() {
+        jobLeaseService.runExclusively("overdue-sweep", () -> sweep(LocalDateTime.now()));
+    }
+
+    public long sweep(LocalDateTime now) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long started = System.nanoTime();
+        long flipped = 0;
+        Cursor after = null;
+
+        while (true) {
+            Cursor cursor = after;
+            Chunk chunk = tx.execute(status -> sweepChunk(cursor, now));
+            if (chunk == null || chunk.last() == null) {
+                break;
+            }
+            after = chunk.last();
+            flipped += chunk.overdue().size();
+        }
+
+        double seconds = Math.max((System.nanoTime() - started) / 1_000_000_000.0, 0.001);
+        log.info("Overdue sweep: {} loans flipped in {} s ({} rows/s)",
+                flipped, String.format("%.3f", seconds), Math.round(flipped / seconds));
+        return flipped;
+    }
+
+    // after is the last row of the previous chunk, null for the first chunk
+    private Chunk sweepChunk(Cursor after, LocalDateTime now) {
+        PageRequest page = PageRequest.of(0, batchSize);
+        List<Object[]> keys = after == null
+                ? loanRepository.findDueKeysBefore(LoanStatus.IN_PROGRESS, now, page)
+                : loanRepository.findDueKeysBeforeAfter(LoanStatus.IN_PROGRESS, now, after.dueDate(), after.id(), page);
+        if (keys.isEmpty()) {
+            return new Chunk(null, List.of());
+        }
+        List<Long> ids = keys.stream().map(key -> (Long) key[0]).toList();
+        Object[] last = keys.get(keys.size() - 1);
+        return new Chunk(new Cursor((LocalDateTime) last[1], (Long) last[0]), flip(ids, now));
+    }
+
+    /**
+     * Flips a single loan at its exact due time (see {@link DeadlineScheduler}).
+     *
+     * @return {@code false} if the loan was returned, renewed or already flipped meanwhile
+     */
+    public boolean markOverdue(Long loanId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Loan> overdue = new TransactionTemplate(transactionManager).execute(status -> flip(List.of(loanId), now));
+        return overdue != null && !overdue.isEmpty();
+    }
+
+    private List<Loan> flip(List<Long> ids, LocalDateTime now) {
+        // Conditional on status and due date, so concurrent returns and renewals win
+        int updated = loanRepository.markStatusWhereDueBefore(ids, LoanStatus.IN_PROGRESS, LoanStatus.OVERDUE, now);
+        if (updated == 0) {
+            return List.of();
+        }
+        List<Loan> overdue = loanRepository.findWithUserAndResourceByIdInAndStatus(ids, LoanStatus.OVERDUE);
+        // Alerts are committed together with the status flip
+        for (Loan loan : overdue) {
+            notificationOutbox.sendOverdueAlert(
+                loan.getUser().getEmail(),
+                loan.getUser().getFirstName(),
+                loan.getResource().getTitle(),
+                loan.getDueDate().toString(),
+                LoanService.calculateEstimatedFee(loan) // Estimated fee
+            );
+        }
+        return overdue;
+    }
+
+    private record Cursor(LocalDateTime dueDate, Long id) {
+    }
+
+    private record Chunk(Cursor last, List<Loan> overdue) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.bibliotheque.service;
+
+import java.util.Map;
+
+/**
+ * Published after popularity scores are written or re-read, with the suggestion weight
+ * of each resource concerned, decayed to the time of publication.
+ */
+public record PopularityChangedEvent(Map<Long, Long> weights) {
+}
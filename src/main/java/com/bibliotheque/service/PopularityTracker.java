@@ -0,0 +1,277 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.PopularityLandmark;
+import com.bibliotheque.repository.LoanRepository;
+import com.bibliotheque.repository.PopularityLandmarkRepository;
+import com.bibliotheque.repository.ReservationRepository;
+import com.bibliotheque.repository.ResourceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Exponentially decayed demand per resource, behind {@code sort=popularity} and the
+ * ranking of search suggestions.
+ * <p>
+ * Every loan request and every place taken in a reservation queue counts one, and a count
+ * loses half its weight every {@code app.popularity.half-life-days}. Scores use forward
+ * decay: a demand at time t adds 2^((t - landmark) / half-life) to the stored score, so
+ * stored scores compare exactly as decayed ones do and a resource nobody asks for is
+ * never rewritten; the score as of now is the stored one times 2^(-(now - landmark) /
+ * half-life). The half-life must therefore not change once scores are stored, and is at
+ * least a day.
+ * <p>
+ * Stored scores grow by 2^(1 / half-life) every day, so the landmark cannot stay put:
+ * once it is {@value #REBASE_AFTER_HALF_LIVES} half-lives old, the next flush or hourly
+ * rebase moves it forward by whole half-lives and multiplies every stored score by the
+ * matching power of two, which keeps their order and their decayed values. The landmark
+ * lives in the database, and every write of scores locks it, so nodes always add with
+ * the landmark the scores are relative to.
+ * <p>
+ * Counts are kept in memory and written behind every {@code app.popularity.flush-ms}, in
+ * one additive UPDATE per distinct count: a busy title costs one row write per flush
+ * rather than one per request, and nodes flushing at the same time add up instead of
+ * overwriting each other. A failed flush keeps its counts for the next one, and the
+ * counts still pending are flushed when the node stops.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PopularityTracker {
+
+    // Initial origin of the forward-decayed scores, moved forward by rebasing
+    static final Instant LANDMARK = Instant.parse("2024-01-01T00:00:00Z");
+    static final int REBASE_AFTER_HALF_LIVES = 64;
+    private static final int LANDMARK_ID = 1;
+    private static final double MIN_HALF_LIFE_DAYS = 1;
+    // Suggestion weights are decayed scores in hundredths
+    private static final double WEIGHT_SCALE = 100;
+    private static final double MILLIS_PER_DAY = 86_400_000d;
+
+    private final ResourceRepository resourceRepository;
+    private final LoanRepository loanRepository;
+    private final ReservationRepository reservationRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final PopularityLandmarkRepository landmarkRepository;
+
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+
+    // Landmark as of the last write of scores, for decaying them to now
+    private volatile Instant landmark;
+
+    @Value("${app.popularity.half-life-days:30}")
+    private double halfLifeDays = 30;
+
+    @PostConstruct
+    void validate() {
+        if (!(halfLifeDays >= MIN_HALF_LIFE_DAYS)) {
+            throw new IllegalArgumentException("app.popularity.half-life-days must be at least " + MIN_HALF_LIFE_DAYS
+                    + " day, got " + halfLifeDays);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDemand(ResourceDemandEvent event) {
+        record(event.resourceId());
+    }
+
+    public void record(Long resourceId) {
+        pending.merge(resourceId, 1L, Long::sum);
+    }
+
+    @Scheduled(fixedDelayString = "${app.popularity.flush-ms:10000}")
+    public void flush() {
+        flush(Instant.now());
+    }
+
+    void flush(Instant now) {
+        Set<Long> written = write(now);
+        if (!written.isEmpty()) {
+            publishWeights(resourceRepository.findPopularity(written), now);
+        }
+    }
+
+    /**
+     * Writes the counts still pending before the node stops.
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        write(Instant.now());
+    }
+
+    // Ids whose scores were written, empty if none were pending or the write failed
+    private Set<Long> write(Instant now) {
+        if (pending.isEmpty()) {
+            return Set.of();
+        }
+        // remove() is atomic with record()'s merge(), so no count is lost or taken twice
+        Map<Long, Long> counts = new HashMap<>();
+        for (Long id : new ArrayList<>(pending.keySet())) {
+            Long count = pending.remove(id);
+            if (count != null) {
+                counts.put(id, count);
+            }
+        }
+        Map<Long, List<Long>> idsByCount = new TreeMap<>();
+        counts.forEach((id, count) -> idsByCount.computeIfAbsent(count, c -> new ArrayList<>()).add(id));
+
+        try {
+            ensureLandmark();
+            landmark = new TransactionTemplate(transactionManager).execute(status -> {
+                Instant current = lockLandmark(now);
+                double growth = growth(now, current);
+                idsByCount.forEach((count, ids) -> resourceRepository.addPopularity(ids, count * growth));
+                return current;
+            });
+        } catch (RuntimeException e) {
+            counts.forEach((id, count) -> pending.merge(id, count, Long::sum));
+            log.warn("Popularity flush failed, {} resources kept for the next one: {}", counts.size(), e.getMessage());
+            return Set.of();
+        }
+        return counts.keySet();
+    }
+
+    /**
+     * Moves the landmark forward if it is due, then re-publishes the weight of every
+     * resource with a score, decayed to now, so titles nobody asked for lately sink in
+     * the suggestions too.
+     */
+    @Scheduled(fixedDelayString = "${app.popularity.rebase-ms:3600000}", initialDelayString = "${app.popularity.rebase-ms:3600000}")
+    public void rebase() {
+        rebase(Instant.now());
+    }
+
+    void rebase(Instant now) {
+        ensureLandmark();
+        landmark = new TransactionTemplate(transactionManager).execute(status -> lockLandmark(now));
+        publishWeights(resourceRepository.findPopular(), now);
+    }
+
+    /**
+     * Seeds the scores of resources that have none (the column was just added) from the
+     * loan and reservation history. Runs before the catalog index reads them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfill() {
+        if (resourceRepository.countByPopularityIsNull() == 0) {
+            return;
+        }
+        List<Object[]> history = new ArrayList<>(loanRepository.findDemandHistory());
+        history.addAll(reservationRepository.findDemandHistory());
+        Map<Long, Double> scores = new HashMap<>();
+        ensureLandmark();
+        landmark = new TransactionTemplate(transactionManager).execute(status -> {
+            Instant current = lockLandmark(Instant.now());
+            for (Object[] row : history) {
+                scores.merge((Long) row[0], growth((LocalDateTime) row[1], current), Double::sum);
+            }
+            scores.forEach(resourceRepository::initPopularity);
+            resourceRepository.initMissingPopularity();
+            return current;
+        });
+        log.info("Popularity seeded from {} past loans and reservations over {} resources", history.size(), scores.size());
+    }
+
+    /**
+     * Suggestion weight of a stored score, decayed to now.
+     */
+    public long weightOf(Double score) {
+        return weightOf(score, Instant.now());
+    }
+
+    long weightOf(Double score, Instant now) {
+        return score == null ? 0 : Math.round(score / growth(now, landmark()) * WEIGHT_SCALE);
+    }
+
+    private void publishWeights(List<Object[]> rows, Instant now) {
+        Map<Long, Long> weights = new HashMap<>();
+        for (Object[] row : rows) {
+            weights.put((Long) row[0], weightOf((Double) row[1], now));
+        }
+        if (!weights.isEmpty()) {
+            eventPublisher.publishEvent(new PopularityChangedEvent(weights));
+        }
+    }
+
+    private Instant landmark() {
+        if (landmark == null) {
+            ensureLandmark();
+            landmark = landmarkRepository.findById(LANDMARK_ID).map(PopularityLandmark::getLandmark).orElse(LANDMARK);
+        }
+        return landmark;
+    }
+
+    // Creates the landmark row on first use; a node losing that race finds it created
+    private void ensureLandmark() {
+        if (landmark != null) {
+            return;
+        }
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                if (!landmarkRepository.existsById(LANDMARK_ID)) {
+                    landmarkRepository.saveAndFlush(new PopularityLandmark(LANDMARK_ID, LANDMARK));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Popularity landmark created by another node");
+        }
+    }
+
+    /**
+     * Locks the landmark row for the current transaction, rebasing first when it is
+     * {@value #REBASE_AFTER_HALF_LIVES} half-lives old: the landmark moves forward by
+     * whole half-lives and stored scores are scaled by the same power of two, exactly.
+     */
+    private Instant lockLandmark(Instant now) {
+        PopularityLandmark row = landmarkRepository.findForUpdate(LANDMARK_ID)
+                .orElseThrow(() -> new IllegalStateException("Popularity landmark is missing"));
+        long halfLives = (long) Math.floor(halfLives(row.getLandmark(), now));
+        if (halfLives >= REBASE_AFTER_HALF_LIVES) {
+            // Past 2^-1074 a double is 0: every score has decayed to nothing by then
+            resourceRepository.scalePopularity(Math.pow(2, -halfLives));
+            row.setLandmark(row.getLandmark().plusMillis(Math.round(halfLives * halfLifeDays * MILLIS_PER_DAY)));
+            log.info("Popularity landmark moved forward {} half-lives to {}", halfLives, row.getLandmark());
+        }
+        return row.getLandmark();
+    }
+
+    private double growth(LocalDateTime time, Instant from) {
+        return growth(time.atZone(ZoneId.systemDefault()).toInstant(), from);
+    }
+
+    // 2^(age of the landmark in half-lives): what one demand at that time adds
+    private double growth(Instant time, Instant from) {
+        return Math.pow(2, halfLives(from, time));
+    }
+
+    private double halfLives(Instant from, Instant to) {
+        return Duration.between(from, to).toMillis() / MILLIS_PER_DAY / halfLifeDays;
+    }
+}
@@ -0,0 +1,212 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.Reservation;
+import com.bibliotheque.model.enums.ReservationStatus;
+import com.bibliotheque.repository.ReservationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Expires APPROVED reservations whose pickup window has passed and offers the freed
+ * copies to the next patrons in line.
+ * <p>
+ * Works in chunks read in (status, expiry_date) index order, each seeking past the
+ * (expiry_date, id) of the previous one in its own transaction: the lapsed rows are
+ * locked and flipped to EXPIRED with one UPDATE, then each affected queue is advanced
+ * with one set-based round per freed copy (one query for all the queue heads, one
+ * locking their rows, one UPDATE promoting them, one reload for the mails). Copies
+ * nobody is waiting for go back to the shelf in a single UPDATE per count. The same path
+ * serves the {@link DeadlineScheduler}, which hands over whatever expiries fall due on a
+ * tick.
+ * <p>
+ * Each pass also offers the copies on the shelf of any title that still has a queue to
+ * the patrons at its head ({@link #promoteWaiting()}), which recovers a promotion lost
+ * when a node stopped between a return's commit and its promotion on the lane.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReservationExpirySweeper {
+
+    static final long PICKUP_WINDOW_HOURS = 48;
+
+    private final ReservationRepository reservationRepository;
+    private final CopyInventoryService copyInventoryService;
+    private final NotificationOutbox notificationOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+    private final JobLeaseService jobLeaseService;
+
+    @Value("${app.reservations.sweep-batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(cron = "0 */15 * * * ?") // Every 15 minutes, backstop for the deadline wheel
+    public void sweepExpired() {
+        jobLeaseService.runExclusively("reservation-expiry", () -> {
+            sweep(LocalDateTime.now());
+            promoteWaiting();
+        });
+    }
+
+    /**
+     * Promotes the heads of the queues of titles that have copies on the shelf.
+     *
+     * @return number of reservations promoted
+     */
+    public int promoteWaiting() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer promoted = new TransactionTemplate(transactionManager).execute(status -> {
+            // Take the copies off the shelf first, in resource id order, as a return would hold them
+            Map<Long, Integer> held = new TreeMap<>();
+            for (Object[] row : reservationRepository.findWaitingWithCopiesAvailable(ReservationStatus.PENDING)) {
+                Long resourceId = (Long) row[0];
+                long copies = Math.min((Integer) row[1], (Long) row[2]);
+                for (int i = 0; i < copies && copyInventoryService.tryCheckout(resourceId); i++) {
+                    held.merge(resourceId, 1, Integer::sum);
+                }
+            }
+            int count = promote(held, now);
+            copyInventoryService.checkinAll(held);
+            return count;
+        });
+        if (promoted != null && promoted > 0) {
+            log.warn("Reservation queue backstop promoted {} patrons left waiting next to copies on the shelf", promoted);
+        }
+        return promoted == null ? 0 : promoted;
+    }
+
+    /**
+     * @return number of reservations expired
+     */
+    public long sweep(LocalDateTime now) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        long started = System.nanoTime();
+        long expired = 0;
+        long promoted = 0;
+        Cursor after = null;
+
+        while (true) {
+            Cursor cursor = after;
+            Chunk chunk = tx.execute(status -> expireAndPromote(findDue(cursor, now), now));
+            if (chunk == null || chunk.last() == null) {
+                break;
+            }
+            after = chunk.last();
+            expired += chunk.expired();
+            promoted += chunk.promoted();
+        }
+
+        double seconds = Math.max((System.nanoTime() - started) / 1_000_000_000.0, 0.001);
+        log.info("Reservation expiry sweep: {} expired, {} promoted in {} s",
+                expired, promoted, String.format("%.3f", seconds));
+        return expired;
+    }
+
+    /**
+     * Expires the given reservations if they are still APPROVED and past their expiry.
+     *
+     * @return number actually expired; reservations picked up or cancelled meanwhile are skipped
+     */
+    public int expire(Collection<Long> reservationIds) {
+        if (reservationIds.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Chunk chunk = new TransactionTemplate(transactionManager).execute(status -> expireAndPromote(
+                reservationRepository.findDueForUpdateByIdIn(reservationIds, ReservationStatus.APPROVED, now), now));
+        return chunk == null ? 0 : chunk.expired();
+    }
+
+    // after is the last row of the previous chunk, null for the first chunk
+    private List<Reservation> findDue(Cursor after, LocalDateTime now) {
+        PageRequest page = PageRequest.of(0, batchSize);
+        return after == null
+                ? reservationRepository.findDueForUpdate(ReservationStatus.APPROVED, now, page)
+                : reservationRepository.findDueForUpdateAfter(ReservationStatus.APPROVED, now, after.expiryDate(), after.id(), page);
+    }
+
+    private Chunk expireAndPromote(List<Reservation> due, LocalDateTime now) {
+        if (due.isEmpty()) {
+            return new Chunk(null, 0, 0);
+        }
+        // The rows are locked, so the flip needs no condition and the count is exact
+        reservationRepository.markStatus(due.stream().map(Reservation::getId).toList(), ReservationStatus.EXPIRED);
+
+        // Each expired reservation held one copy; sorted so resource rows are always locked in the same order
+        Map<Long, Integer> freed = due.stream().collect(Collectors.toMap(
+                r -> r.getResource().getId(), r -> 1, Integer::sum, TreeMap::new));
+        int promoted = promote(freed, now);
+        copyInventoryService.checkinAll(freed);
+
+        Reservation last = due.get(due.size() - 1);
+        return new Chunk(new Cursor(last.getExpiryDate(), last.getId()), due.size(), promoted);
+    }
+
+    // One round per copy freed on the same title: usually a single round
+    private int promote(Map<Long, Integer> freed, LocalDateTime now) {
+        LocalDateTime expiry = now.plusHours(PICKUP_WINDOW_HOURS);
+        Set<Long> emptyQueues = new HashSet<>();
+        int promoted = 0;
+
+        while (true) {
+            List<Long> waiting = freed.entrySet().stream()
+                    .filter(e -> e.getValue() > 0 && !emptyQueues.contains(e.getKey()))
+                    .map(Map.Entry::getKey)
+                    .toList();
+            if (waiting.isEmpty()) {
+                return promoted;
+            }
+            List<Reservation> heads = reservationRepository.findQueueHeads(ReservationStatus.PENDING, waiting);
+            Set<Long> queued = heads.stream().map(r -> r.getResource().getId()).collect(Collectors.toSet());
+            waiting.stream().filter(id -> !queued.contains(id)).forEach(emptyQueues::add);
+            if (heads.isEmpty()) {
+                return promoted;
+            }
+
+            // Locked, so the heads still pending are ours alone to promote. A head taken
+            // meanwhile by a concurrent return is simply absent: its queue gets another round
+            List<Long> headIds = reservationRepository.findByIdInAndStatusForUpdate(
+                    heads.stream().map(Reservation::getId).toList(), ReservationStatus.PENDING)
+                    .stream().map(Reservation::getId).toList();
+            if (headIds.isEmpty()) {
+                continue;
+            }
+            reservationRepository.markPromoted(headIds, ReservationStatus.APPROVED, now, expiry);
+
+            for (Reservation next : reservationRepository.findWithUserAndResourceByIdIn(headIds)) {
+                freed.merge(next.getResource().getId(), -1, Integer::sum);
+                promoted++;
+                eventPublisher.publishEvent(new DeadlineChangedEvent(
+                        DeadlineChangedEvent.Kind.RESERVATION_EXPIRY, next.getId(), expiry));
+                notificationOutbox.sendReservationAvailable(
+                        next.getUser().getEmail(),
+                        next.getUser().getFirstName(),
+                        next.getResource().getTitle(),
+                        expiry.toString()
+                );
+            }
+        }
+    }
+
+    private record Cursor(LocalDateTime expiryDate, Long id) {
+    }
+
+    private record Chunk(Cursor last, int expired, int promoted) {
+    }
+}
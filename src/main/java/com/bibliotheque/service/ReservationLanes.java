@@ -0,0 +1,92 @@
+package com.bibliotheque.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Striped single-writer executors for reservation queue changes.
+ * <p>
+ * Every resource hashes to one lane, and each lane is a single thread, so the queue of
+ * one title is only ever changed by one writer at a time on this node: the duplicate
+ * check and the insert of a reservation cannot interleave with another patron's, and
+ * the promotion after a return never races a new entry. Different titles land on
+ * different lanes and run in parallel. {@link ReservationWaitingRoom} tickets run here
+ * too, so a reservation request is queued once and its queue change runs inline on
+ * the lane. Work submitted to a lane must open its own transaction there.
+ */
+@Component
+public class ReservationLanes {
+
+    private final ExecutorService[] lanes;
+    private final ThreadLocal<Integer> currentLane = new ThreadLocal<>();
+
+    public ReservationLanes(@Value("${app.reservations.lanes:0}") int laneCount) {
+        int count = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+        lanes = new ExecutorService[count];
+        for (int i = 0; i < count; i++) {
+            int lane = i;
+            lanes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(() -> {
+                    currentLane.set(lane);
+                    runnable.run();
+                }, "reservation-lane-" + lane);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Runs {@code action} on the resource's lane and waits for its result.
+     * Called from that same lane, it runs inline instead of deadlocking on itself.
+     */
+    public <T> T call(Long resourceId, Supplier<T> action) {
+        int lane = laneOf(resourceId);
+        if (Integer.valueOf(lane).equals(currentLane.get())) {
+            return action.get();
+        }
+        Future<T> result = lanes[lane].submit(action::get);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the reservation lane", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Queues {@code task} on the resource's lane without waiting for it.
+     */
+    public void execute(Long resourceId, Runnable task) {
+        lanes[laneOf(resourceId)].execute(task);
+    }
+
+    int laneCount() {
+        return lanes.length;
+    }
+
+    int laneOf(Long resourceId) {
+        // Spread sequential ids before taking the modulus
+        return Math.floorMod(Long.hashCode(resourceId) * 0x9E3779B9, lanes.length);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+}
@@ -1,19 +1,24 @@
 package com.bibliotheque.service;
 
+import com.bibliotheque.ids.IdGenerator;
 import com.bibliotheque.model.Reservation;
 import com.bibliotheque.model.Resource;
 import com.bibliotheque.model.User;
 import com.bibliotheque.model.enums.ReservationStatus;
 import com.bibliotheque.repository.ReservationRepository;
-import com.bibliotheque.repository.ResourceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -21,11 +26,24 @@ import java.util.UUID;
 public class ReservationService {
 
     private final ReservationRepository reservationRepository;
-    private final ResourceRepository resourceRepository;
-    private final EmailService emailService;
+    private final NotificationOutbox notificationOutbox;
+    private final CopyInventoryService copyInventoryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdGenerator idGenerator;
+    private final ReservationLanes reservationLanes;
+    private final PlatformTransactionManager transactionManager;
 
-    @Transactional
+    /**
+     * Queues the user for the resource. Runs on the resource's lane, so concurrent
+     * patrons of one title are checked and inserted one after the other; inline when
+     * called from a waiting-room ticket, which already runs there.
+     */
     public Reservation createReservation(User user, Resource resource) {
+        return reservationLanes.call(resource.getId(),
+                () -> new TransactionTemplate(transactionManager).execute(status -> enqueue(user, resource)));
+    }
+
+    private Reservation enqueue(User user, Resource resource) {
         // Check if user already has an active reservation
         reservationRepository.findByUserAndResourceAndStatusIn(user, resource, 
                 List.of(ReservationStatus.PENDING, ReservationStatus.APPROVED))
@@ -38,21 +56,20 @@ public class ReservationService {
         // User requirement: "Si availableCopies = 0 -> reservation en file d'attente".
         // We assume this method is called when copies = 0.
 
-        long count = reservationRepository.countByResourceAndStatus(resource, ReservationStatus.PENDING);
-        
         Reservation reservation = Reservation.builder()
                 .user(user)
                 .resource(resource)
-                .reservationNumber(UUID.randomUUID().toString().substring(0, 8).toUpperCase())
+                .reservationNumber(idGenerator.nextCode())
                 .reservationDate(LocalDateTime.now())
                 .status(ReservationStatus.PENDING)
-                .positionInQueue((int) count + 1)
                 .build();
 
         Reservation saved = reservationRepository.save(reservation);
+        saved.setPositionInQueue(positionOf(saved));
+        eventPublisher.publishEvent(new ResourceDemandEvent(resource.getId()));
 
         // Notify User
-        emailService.sendReservationConfirmation(
+        notificationOutbox.sendReservationConfirmation(
                 user.getEmail(), 
                 user.getFirstName(), 
                 resource.getTitle(), 
@@ -60,44 +77,104 @@ public class ReservationService {
                 saved.getPositionInQueue()
         );
 
+        // A copy returned on another node just before this insert committed would otherwise wait for the next return
+        promoteNext(resource);
         return saved;
     }
 
-    @Transactional
+    /**
+     * Whether patrons are queued for the resource; copies on the shelf go to them first.
+     */
+    public boolean hasWaiting(Resource resource) {
+        return reservationRepository.existsByResourceIdAndStatus(resource.getId(), ReservationStatus.PENDING);
+    }
+
+    /**
+     * Offers a copy given back by a return to the head of the queue. Runs on the
+     * resource's lane once the return has committed, so it is serialized with the queue
+     * changes of the title and finds the copy back on the shelf; the caller does not wait
+     * for it. Walk-ins cannot take the copy meanwhile, as patrons are waiting.
+     */
     public void processReturn(Resource resource) {
-        List<Reservation> queue = reservationRepository.findByResourceAndStatusOrderByReservationDateAsc(resource, ReservationStatus.PENDING);
-        
-        if (!queue.isEmpty()) {
-            Reservation next = queue.get(0);
-            
-            next.setStatus(ReservationStatus.APPROVED);
-            next.setNotificationSentDate(LocalDateTime.now());
-            next.setExpiryDate(LocalDateTime.now().plusHours(48)); 
-            
-            reservationRepository.save(next);
-
-            emailService.sendReservationAvailable(
+        Long resourceId = resource.getId();
+        Runnable promotion = () -> reservationLanes.execute(resourceId, () -> {
+            try {
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> promoteNext(resource));
+            } catch (RuntimeException e) {
+                // The copy stays on the shelf until the next return or the expiry sweep
+                log.warn("Promotion after a return of resource {} failed", resourceId, e);
+            }
+        });
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            promotion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                promotion.run();
+            }
+        });
+    }
+
+    private void promoteNext(Resource resource) {
+        while (true) {
+            Optional<Reservation> head = reservationRepository.findFirstByResourceAndStatusOrderByIdAsc(resource, ReservationStatus.PENDING);
+            if (head.isEmpty()) {
+                return;
+            }
+
+            // The returned copy may already have been taken by a direct loan
+            if (!copyInventoryService.tryCheckout(resource.getId())) {
+                return;
+            }
+
+            // Everyone behind moves up by one implicitly: positions are derived, not stored
+            Reservation next = head.get();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiry = now.plusHours(ReservationExpirySweeper.PICKUP_WINDOW_HOURS);
+
+            // The expiry sweeper may have promoted the same head meanwhile: give the copy back and try the next one
+            if (reservationRepository.promoteIfPending(List.of(next.getId()),
+                    ReservationStatus.PENDING, ReservationStatus.APPROVED, now, expiry) == 0) {
+                copyInventoryService.checkin(resource.getId());
+                continue;
+            }
+            eventPublisher.publishEvent(new DeadlineChangedEvent(
+                    DeadlineChangedEvent.Kind.RESERVATION_EXPIRY, next.getId(), expiry));
+
+            notificationOutbox.sendReservationAvailable(
                     next.getUser().getEmail(), 
                     next.getUser().getFirstName(), 
                     resource.getTitle(), 
-                    next.getExpiryDate().toString() 
+                    expiry.toString() 
             );
-            
-            resource.setAvailableCopies(resource.getAvailableCopies() - 1);
-            resourceRepository.save(resource);
-            
-            updateQueuePositions(resource);
+            return;
         }
     }
 
-    private void updateQueuePositions(Resource resource) {
-        List<Reservation> queue = reservationRepository.findByResourceAndStatusOrderByReservationDateAsc(resource, ReservationStatus.PENDING);
-        for (int i = 0; i < queue.size(); i++) {
-            Reservation r = queue.get(i);
-            if (r.getPositionInQueue() != i + 1) {
-                r.setPositionInQueue(i + 1);
-                reservationRepository.save(r);
+    /**
+     * 1-based rank of a PENDING reservation in its resource's queue.
+     */
+    public int positionOf(Reservation reservation) {
+        return (int) reservationRepository.countAhead(reservation.getResource(), ReservationStatus.PENDING, reservation.getId()) + 1;
+    }
+
+    /**
+     * All PENDING reservations with their queue position, from one ordered query.
+     */
+    @Transactional(readOnly = true)
+    public List<Reservation> findPendingWithPositions() {
+        List<Reservation> pending = reservationRepository.findByStatusOrderedByQueue(ReservationStatus.PENDING);
+        Long resourceId = null;
+        int position = 0;
+        for (Reservation reservation : pending) {
+            if (!reservation.getResource().getId().equals(resourceId)) {
+                resourceId = reservation.getResource().getId();
+                position = 0;
             }
+            reservation.setPositionInQueue(++position);
         }
+        return pending;
     }
 }
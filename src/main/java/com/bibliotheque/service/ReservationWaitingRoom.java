@@ -0,0 +1,216 @@
+package com.bibliotheque.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Admission queue in front of reservation requests.
+ * <p>
+ * A request gets a numbered ticket at once and is queued on its resource's
+ * {@link ReservationLanes lane}, the single writer for that title's reservation queue,
+ * which runs the tickets in arrival order: requests for one title are served one at a
+ * time, copies go out strictly in arrival order, and a slow title only holds up the
+ * titles sharing its lane. At most {@code app.waiting-room.capacity} tickets wait across
+ * the lanes. The caller waits up to {@code app.waiting-room.wait-ms} for its outcome and
+ * can poll the ticket afterwards. Tickets are per node and forgotten
+ * {@code app.waiting-room.ttl-minutes} after they are served; tickets still queued when
+ * the node stops are failed so their holders can retry.
+ */
+@Component
+public class ReservationWaitingRoom {
+
+    public enum State { WAITING, DONE, FAILED }
+
+    public record Status(long ticket, State state, long ahead, String message) {
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static final class Ticket {
+        private final long number;
+        private final String owner;
+        private final Supplier<String> action;
+        @Getter(AccessLevel.NONE)
+        private final Stripe stripe;
+        // Rank among the tickets of the lane, for the number of tickets ahead
+        private final long position;
+        private final CompletableFuture<String> result = new CompletableFuture<>();
+        // Taken by the lane running the ticket or by shutdown() failing it, whichever comes first
+        @Getter(AccessLevel.NONE)
+        private final AtomicBoolean taken = new AtomicBoolean();
+        private volatile long finishedAt;
+    }
+
+    // Tickets issued and started on one lane
+    static final class Stripe {
+        private long issued;
+        private volatile long served;
+    }
+
+    private final ReservationLanes lanes;
+    private final Stripe[] stripes;
+    private final int stripeCapacity;
+    private final Map<Long, Ticket> tickets = new ConcurrentHashMap<>();
+    private final AtomicLong numbers = new AtomicLong();
+    private final long waitMillis;
+    private final long ttlMillis;
+
+    private volatile boolean closed;
+
+    public ReservationWaitingRoom(ReservationLanes lanes,
+                                  @Value("${app.waiting-room.capacity:10000}") int capacity,
+                                  @Value("${app.waiting-room.wait-ms:3000}") long waitMillis,
+                                  @Value("${app.waiting-room.ttl-minutes:10}") long ttlMinutes) {
+        this.lanes = lanes;
+        this.waitMillis = waitMillis;
+        this.ttlMillis = ttlMinutes * 60_000;
+        this.stripes = new Stripe[lanes.laneCount()];
+        this.stripeCapacity = Math.max(capacity / stripes.length, 1);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Issues a ticket for {@code action} and queues it on the resource's lane.
+     *
+     * @throws IllegalStateException when the lane is full or the node is stopping
+     */
+    public Ticket enter(String owner, Long resourceId, Supplier<String> action) {
+        Stripe stripe = stripes[lanes.laneOf(resourceId)];
+        Ticket ticket;
+        // Ranking and queueing together, so ticket order is lane order
+        synchronized (stripe) {
+            if (closed) {
+                throw new IllegalStateException("Waiting room is closed, please retry later");
+            }
+            if (stripe.issued - stripe.served >= stripeCapacity) {
+                throw new IllegalStateException("Waiting room is full, please retry later");
+            }
+            ticket = new Ticket(numbers.incrementAndGet(), owner, action, stripe, stripe.issued + 1);
+            stripe.issued++;
+            tickets.put(ticket.getNumber(), ticket);
+            lanes.execute(resourceId, () -> serve(ticket));
+        }
+        return ticket;
+    }
+
+    /**
+     * Waits a bounded time for the ticket's outcome.
+     *
+     * @return empty if the ticket is still queued or running when the wait ends
+     */
+    public Optional<String> await(Ticket ticket) {
+        try {
+            return Optional.ofNullable(ticket.getResult().get(waitMillis, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ticket", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Current state of a ticket, for its owner only.
+     */
+    public Optional<Status> status(long number, String owner) {
+        Ticket ticket = tickets.get(number);
+        if (ticket == null || !ticket.getOwner().equals(owner)) {
+            return Optional.empty();
+        }
+        CompletableFuture<String> result = ticket.getResult();
+        if (!result.isDone()) {
+            long ahead = ticket.getPosition() - ticket.stripe.served - 1;
+            return Optional.of(new Status(number, State.WAITING, Math.max(ahead, 0), null));
+        }
+        try {
+            return Optional.of(new Status(number, State.DONE, 0, result.join()));
+        } catch (CompletionException e) {
+            return Optional.of(new Status(number, State.FAILED, 0, e.getCause().getMessage()));
+        }
+    }
+
+    public int waiting() {
+        long waiting = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                waiting += stripe.issued - stripe.served;
+            }
+        }
+        return (int) waiting;
+    }
+
+    @Scheduled(fixedDelayString = "${app.waiting-room.purge-ms:60000}")
+    public void purgeServed() {
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        tickets.values().removeIf(ticket -> ticket.getResult().isDone()
+                && ticket.getFinishedAt() != 0 && ticket.getFinishedAt() <= cutoff);
+    }
+
+    // Runs on the ticket's lane
+    private void serve(Ticket ticket) {
+        if (!ticket.taken.compareAndSet(false, true)) {
+            return;
+        }
+        ticket.stripe.served = ticket.getPosition();
+        String outcome;
+        try {
+            outcome = ticket.getAction().get();
+        } catch (RuntimeException | Error e) {
+            // Reported to the ticket holder; the lane moves on to the next task
+            ticket.finishedAt = System.currentTimeMillis();
+            ticket.getResult().completeExceptionally(e);
+            return;
+        }
+        // Stamped before completion, so a done ticket always has its finishing time
+        ticket.finishedAt = System.currentTimeMillis();
+        ticket.getResult().complete(outcome);
+    }
+
+    private static void fail(Ticket ticket) {
+        ticket.finishedAt = System.currentTimeMillis();
+        ticket.getResult().completeExceptionally(new IllegalStateException("Server is stopping, please retry later"));
+    }
+
+    /**
+     * Stops admitting tickets and fails every ticket not yet started, so no caller waits
+     * on a ticket that will never run. A ticket already running finishes normally.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (Stripe stripe : stripes) {
+            // Under the lock, so no enter() can still queue on this lane once it returns
+            synchronized (stripe) {
+                closed = true;
+            }
+        }
+        for (Ticket ticket : tickets.values()) {
+            if (ticket.taken.compareAndSet(false, true)) {
+                fail(ticket);
+            }
+        }
+    }
+}
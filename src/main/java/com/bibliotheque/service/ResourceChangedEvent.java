@@ -0,0 +1,39 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.enums.Category;
+
+/**
+ * Published when a resource is saved or deleted, so the in-memory catalog structures
+ * can update just that entry. {@code resource} is {@code null} for a deletion;
+ * {@code before} holds the filterable values as stored before a save, {@code null} for
+ * a new resource.
+ */
+public record ResourceChangedEvent(Long resourceId, Resource resource, Filters before) {
+
+    /**
+     * The values of a resource that search filters look at.
+     */
+    public record Filters(boolean active, Category category, Long libraryId, String language, String publisher,
+                          Integer publicationYear, Integer availableCopies) {
+
+        public static Filters of(Resource resource) {
+            return new Filters(resource.isActive(), resource.getCategory(),
+                    resource.getLibrary() != null ? resource.getLibrary().getId() : null,
+                    resource.getLanguage(), resource.getPublisher(), resource.getPublicationYear(),
+                    resource.getAvailableCopies());
+        }
+    }
+
+    public static ResourceChangedEvent saved(Resource resource, Filters before) {
+        return new ResourceChangedEvent(resource.getId(), resource, before);
+    }
+
+    public static ResourceChangedEvent deleted(Long resourceId) {
+        return new ResourceChangedEvent(resourceId, null, null);
+    }
+
+    public boolean isDeleted() {
+        return resource == null;
+    }
+}
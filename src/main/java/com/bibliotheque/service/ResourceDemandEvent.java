@@ -0,0 +1,8 @@
+package com.bibliotheque.service;
+
+/**
+ * Published when a patron asks for a resource (a loan request or a place in its
+ * reservation queue), so its popularity can be counted.
+ */
+public record ResourceDemandEvent(Long resourceId) {
+}
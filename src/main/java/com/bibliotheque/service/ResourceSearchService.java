@@ -1,49 +1,240 @@
 package com.bibliotheque.service;
 
+import com.bibliotheque.dto.ResourceCard;
 import com.bibliotheque.dto.ResourceSearchRequest;
+import com.bibliotheque.dto.ResourceSlice;
 import com.bibliotheque.model.Resource;
 import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.search.FacetCount;
+import com.bibliotheque.search.SearchCursor;
+import com.bibliotheque.search.Suggestion;
 import com.bibliotheque.specification.ResourceSpecification;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class ResourceSearchService {
 
     private final ResourceRepository resourceRepository;
+    private final CatalogIndexService catalogIndexService;
+    private final SearchResultCache searchResultCache;
+
+    @Value("${app.search.max-candidates:2000}")
+    private int maxCandidates = 2000;
 
-    public Page<Resource> search(ResourceSearchRequest request) {
-        Specification<Resource> spec = ResourceSpecification.getSpecification(request);
+    /**
+     * One page of result cards with the total count. Cards carry only what the result
+     * grid shows; the detail page loads the full resource.
+     */
+    public Page<ResourceCard> search(ResourceSearchRequest request) {
         Pageable pageable = createPageable(request);
-        return resourceRepository.findAll(spec, pageable);
+        Optional<SearchResultCache.Entry> cached = searchResultCache.get(request, SearchResultCache.PAGE);
+        if (cached.isPresent()) {
+            return new PageImpl<>(load(cached.get().ids(), sortProperty(request)), pageable, cached.get().total());
+        }
+
+        long generation = searchResultCache.generation();
+        List<Specification<Resource>> specs = specifications(request);
+        Page<ResourceCard> page = specs == null ? Page.empty(pageable) : findPage(specs, pageable, direction(request));
+        searchResultCache.put(request, SearchResultCache.PAGE,
+                new SearchResultCache.Entry(idsOf(page.getContent()), page.getTotalElements(), null, null), generation);
+        return page;
+    }
+
+    /**
+     * One screen of results without the COUNT query. With an {@code after} or
+     * {@code before} cursor the screen is found by seeking on the sort key and id, so a
+     * deep screen costs as much as the first; otherwise {@code page} is used as an offset.
+     */
+    public ResourceSlice<ResourceCard> browse(ResourceSearchRequest request) {
+        Optional<SearchResultCache.Entry> cached = searchResultCache.get(request, SearchResultCache.SLICE);
+        if (cached.isPresent()) {
+            return new ResourceSlice<>(load(cached.get().ids(), sortProperty(request)),
+                    cached.get().previous(), cached.get().next());
+        }
+
+        long generation = searchResultCache.generation();
+        ResourceSlice<ResourceCard> slice = seek(request);
+        searchResultCache.put(request, SearchResultCache.SLICE,
+                new SearchResultCache.Entry(idsOf(slice.content()), -1, slice.previous(), slice.next()), generation);
+        return slice;
+    }
+
+    private ResourceSlice<ResourceCard> seek(ResourceSearchRequest request) {
+        List<Specification<Resource>> specs = specifications(request);
+        if (specs == null) {
+            return ResourceSlice.empty();
+        }
+        String property = sortProperty(request);
+        Sort.Direction direction = direction(request);
+        SearchCursor before = SearchCursor.decode(request.getBefore(), property);
+        SearchCursor after = SearchCursor.decode(request.getAfter(), property);
+
+        if (before != null) {
+            // Walk backwards in reverse order, then put the rows back in display order
+            Sort.Direction reverse = direction == Sort.Direction.ASC ? Sort.Direction.DESC : Sort.Direction.ASC;
+            Slice<ResourceCard> slice = findSlice(specs, ResourceSpecification.seek(before, reverse == Sort.Direction.DESC),
+                    PageRequest.of(0, request.getSize(), keysetSort(property, reverse)), reverse);
+            List<ResourceCard> rows = new ArrayList<>(slice.getContent());
+            Collections.reverse(rows);
+            return slice(rows, property, slice.hasNext(), true);
+        }
+        if (after != null) {
+            Slice<ResourceCard> slice = findSlice(specs, ResourceSpecification.seek(after, direction == Sort.Direction.DESC),
+                    PageRequest.of(0, request.getSize(), keysetSort(property, direction)), direction);
+            return slice(slice.getContent(), property, true, slice.hasNext());
+        }
+        Slice<ResourceCard> slice = findSlice(specs, null,
+                PageRequest.of(request.getPage(), request.getSize(), keysetSort(property, direction)), direction);
+        return slice(slice.getContent(), property, request.getPage() > 0, slice.hasNext());
+    }
+
+    // With several shares of candidates, each gives its first offset + size rows and the merge holds the page
+    private Page<ResourceCard> findPage(List<Specification<Resource>> specs, Pageable pageable, Sort.Direction direction) {
+        if (specs.size() == 1) {
+            return resourceRepository.findCardPage(specs.get(0), pageable);
+        }
+        Pageable head = PageRequest.of(0, (int) pageable.getOffset() + pageable.getPageSize(), pageable.getSort());
+        List<ResourceCard> rows = new ArrayList<>();
+        long total = 0;
+        for (Specification<Resource> spec : specs) {
+            Page<ResourceCard> part = resourceRepository.findCardPage(spec, head);
+            rows.addAll(part.getContent());
+            total += part.getTotalElements();
+        }
+        return new PageImpl<>(window(rows, pageable, direction), pageable, total);
+    }
+
+    private Slice<ResourceCard> findSlice(List<Specification<Resource>> specs, Specification<Resource> seek,
+                                          Pageable pageable, Sort.Direction direction) {
+        if (specs.size() == 1) {
+            return resourceRepository.findCardSlice(seek == null ? specs.get(0) : specs.get(0).and(seek), pageable);
+        }
+        Pageable head = PageRequest.of(0, (int) pageable.getOffset() + pageable.getPageSize(), pageable.getSort());
+        List<ResourceCard> rows = new ArrayList<>();
+        boolean hasNext = false;
+        for (Specification<Resource> spec : specs) {
+            Slice<ResourceCard> part = resourceRepository.findCardSlice(seek == null ? spec : spec.and(seek), head);
+            rows.addAll(part.getContent());
+            hasNext |= part.hasNext();
+        }
+        hasNext |= rows.size() > head.getPageSize();
+        return new SliceImpl<>(window(rows, pageable, direction), pageable, hasNext);
+    }
+
+    // The rows of the page once the shares are merged in (sort key, id) order, NULL lowest as in the database
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<ResourceCard> window(List<ResourceCard> rows, Pageable pageable, Sort.Direction direction) {
+        Comparator<Comparable> values = Comparator.nullsFirst(Comparator.naturalOrder());
+        Comparator<ResourceCard> order = Comparator.comparing((ResourceCard card) -> (Comparable) card.sortValue(), values)
+                .thenComparing(ResourceCard::id);
+        rows.sort(direction == Sort.Direction.ASC ? order : order.reversed());
+        int from = (int) Math.min(pageable.getOffset(), rows.size());
+        return List.copyOf(rows.subList(from, Math.min(from + pageable.getPageSize(), rows.size())));
+    }
+
+    // Cards of a cached screen, re-read by primary key and put back in screen order
+    private List<ResourceCard> load(long[] ids, String sortProperty) {
+        Map<Long, ResourceCard> byId = resourceRepository.findCardsByIdIn(Arrays.stream(ids).boxed().toList(), sortProperty)
+                .stream()
+                .collect(Collectors.toMap(ResourceCard::id, Function.identity()));
+        return Arrays.stream(ids).mapToObj(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    private static long[] idsOf(List<ResourceCard> rows) {
+        return rows.stream().mapToLong(ResourceCard::id).toArray();
+    }
+
+    // null when the text criteria are known to match nothing. Index matches go to the
+    // database as IN lists of at most maxCandidates ids, one specification per share, so
+    // a broad query keeps the index's semantics instead of falling back to the SQL text filter
+    private List<Specification<Resource>> specifications(ResourceSearchRequest request) {
+        long[] ids = catalogIndexService.candidates(request);
+        if (ids == null) {
+            return List.of(ResourceSpecification.getSpecification(request, null));
+        }
+        if (ids.length == 0) {
+            return null;
+        }
+        List<Specification<Resource>> specs = new ArrayList<>();
+        for (int from = 0; from < ids.length; from += maxCandidates) {
+            List<Long> share = Arrays.stream(ids, from, Math.min(from + maxCandidates, ids.length)).boxed().toList();
+            specs.add(ResourceSpecification.getSpecification(request, share));
+        }
+        return specs;
+    }
+
+    private static ResourceSlice<ResourceCard> slice(List<ResourceCard> rows, String property, boolean hasPrevious, boolean hasNext) {
+        if (rows.isEmpty()) {
+            return ResourceSlice.empty();
+        }
+        String previous = hasPrevious ? cursorOf(property, rows.get(0)).encode() : null;
+        String next = hasNext ? cursorOf(property, rows.get(rows.size() - 1)).encode() : null;
+        return new ResourceSlice<>(rows, previous, next);
+    }
+
+    private static SearchCursor cursorOf(String property, ResourceCard card) {
+        return new SearchCursor(property, card.sortValue(), card.id());
+    }
+
+    /**
+     * Facet counts for the search page, computed in memory by the catalog index.
+     */
+    public Map<String, List<FacetCount>> facets(ResourceSearchRequest request) {
+        return catalogIndexService.facetCounts(request);
+    }
+
+    /**
+     * Completions for the search box, served from memory without touching the database.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return catalogIndexService.suggest(prefix, limit);
     }
 
     private Pageable createPageable(ResourceSearchRequest request) {
-        Sort sort = Sort.unsorted();
-        
+        return PageRequest.of(request.getPage(), request.getSize(), keysetSort(sortProperty(request), direction(request)));
+    }
+
+    // The id tiebreaker makes the order total, which seeking needs and offsets benefit from
+    private static Sort keysetSort(String property, Sort.Direction direction) {
+        return Sort.by(direction, property).and(Sort.by(direction, "id"));
+    }
+
+    private static Sort.Direction direction(ResourceSearchRequest request) {
+        return "desc".equalsIgnoreCase(request.getDirection()) ? Sort.Direction.DESC : Sort.Direction.ASC;
+    }
+
+    // Title and author sort on their collation keys, in the (key, id) indexes
+    private static String sortProperty(ResourceSearchRequest request) {
         String sortField = request.getSort();
-        String direction = request.getDirection();
-        
-        Sort.Direction dir = "desc".equalsIgnoreCase(direction) ? Sort.Direction.DESC : Sort.Direction.ASC;
-
-        if ("title".equalsIgnoreCase(sortField)) {
-            sort = Sort.by(dir, "title");
-        } else if ("author".equalsIgnoreCase(sortField)) {
-            sort = Sort.by(dir, "author");
+        if ("author".equalsIgnoreCase(sortField)) {
+            return "authorSortKey";
         } else if ("date".equalsIgnoreCase(sortField)) {
-            sort = Sort.by(dir, "publicationYear");
+            return "publicationYear";
         } else if ("popularity".equalsIgnoreCase(sortField)) {
-            sort = Sort.by(dir, "reservationCount"); 
-        } else {
-            sort = Sort.by(dir, "title");
+            return "popularity";
         }
-
-        return PageRequest.of(request.getPage(), request.getSize(), sort);
+        return "titleSortKey";
     }
 }
@@ -3,23 +3,23 @@ package com.bibliotheque.service;
 import com.bibliotheque.model.Resource;
 import com.bibliotheque.model.enums.Category;
 import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.search.TextAnalyzer;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
-import jakarta.persistence.criteria.Predicate;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 
 @Service
 public class ResourceService {
 
   private final ResourceRepository resourceRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
-  public ResourceService(ResourceRepository resourceRepository) {
+  public ResourceService(ResourceRepository resourceRepository, ApplicationEventPublisher eventPublisher) {
     this.resourceRepository = resourceRepository;
+    this.eventPublisher = eventPublisher;
   }
 
   public Page<Resource> list(Pageable pageable) {
@@ -36,48 +36,55 @@ public class ResourceService {
     if (resource.getAvailableCopies() > resource.getTotalCopies()) {
       resource.setAvailableCopies(resource.getTotalCopies());
     }
-    return resourceRepository.save(resource);
+    updateKeys(resource);
+    ResourceChangedEvent.Filters before = storedFilters(resource);
+    Resource saved = resourceRepository.save(resource);
+    eventPublisher.publishEvent(ResourceChangedEvent.saved(saved, before));
+    return saved;
   }
 
-  public void delete(Long id) {
-    resourceRepository.deleteById(id);
+  /**
+   * Folded search keys (matched without lower() per row) and collation sort keys, so
+   * that "Élise" and "elise" match and sort together.
+   */
+  private static void updateKeys(Resource resource) {
+    resource.setTitleSearchKey(searchKey(resource.getTitle()));
+    resource.setTitleSortKey(TextAnalyzer.sortKey(resource.getTitle(), 255));
+    resource.setAuthorSearchKey(searchKey(resource.getAuthor()));
+    resource.setAuthorSortKey(TextAnalyzer.sortKey(resource.getAuthor(), 255));
   }
 
-  public Page<Resource> search(String query, String author, Category category, Boolean available, Long libraryId, Pageable pageable) {
-    Specification<Resource> spec = (root, q, cb) -> {
-      List<Predicate> predicates = new ArrayList<>();
-      if (query != null && !query.isBlank()) {
-        String like = "%" + query.toLowerCase() + "%";
-        predicates.add(cb.like(cb.lower(root.get("title")), like));
-      }
-      if (author != null && !author.isBlank()) {
-        String like = "%" + author.toLowerCase() + "%";
-        predicates.add(cb.like(cb.lower(root.get("author")), like));
-      }
-      if (category != null) {
-        predicates.add(cb.equal(root.get("category"), category));
-      }
-      if (libraryId != null) {
-        predicates.add(cb.equal(root.get("library").get("id"), libraryId));
-      }
-      if (available != null) {
-        if (available) {
-          predicates.add(cb.greaterThan(root.get("availableCopies"), 0));
-        } else {
-          predicates.add(cb.lessThanOrEqualTo(root.get("availableCopies"), 0));
-        }
-      }
-      return cb.and(predicates.toArray(new Predicate[0]));
-    };
-    return resourceRepository.findAll(spec, pageable);
+  private static String searchKey(String text) {
+    String key = TextAnalyzer.phrase(text);
+    return key != null && key.length() > 255 ? key.substring(0, 255) : key;
+  }
+
+  public void delete(Long id) {
+    resourceRepository.deleteById(id);
+    eventPublisher.publishEvent(ResourceChangedEvent.deleted(id));
   }
 
   public Resource updateAvailability(Resource resource, int delta) {
     int total = Optional.ofNullable(resource.getTotalCopies()).orElse(0);
     int available = Optional.ofNullable(resource.getAvailableCopies()).orElse(0);
     int newAvailable = Math.max(0, Math.min(total, available + delta));
+    ResourceChangedEvent.Filters before = storedFilters(resource);
     resource.setAvailableCopies(newAvailable);
-    return resourceRepository.save(resource);
+    Resource saved = resourceRepository.save(resource);
+    eventPublisher.publishEvent(ResourceChangedEvent.saved(saved, before));
+    return saved;
+  }
+
+  // What the search filters saw before this save, so the screens a resource leaves are dropped too
+  private ResourceChangedEvent.Filters storedFilters(Resource resource) {
+    if (resource.getId() == null) {
+      return null;
+    }
+    return resourceRepository.findFilterValues(resource.getId()).stream()
+        .map(row -> new ResourceChangedEvent.Filters((Boolean) row[0], (Category) row[1], (Long) row[2],
+            (String) row[3], (String) row[4], (Integer) row[5], (Integer) row[6]))
+        .findFirst()
+        .orElse(null);
   }
 }
 
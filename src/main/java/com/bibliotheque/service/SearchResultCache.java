@@ -0,0 +1,245 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.dto.ResourceSearchRequest;
+import com.bibliotheque.model.enums.Category;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Ids of recent search result screens, keyed by the normalized search request.
+ * <p>
+ * Only ids (plus the total or the cursors) are kept; the rows themselves are re-read by
+ * primary key, so a hit replaces the criteria query and its COUNT by one id lookup and
+ * never shows stale copies or titles. The cache holds at most
+ * {@code app.search.cache.max-ids} ids across entries (least recently used evicted
+ * first), and entries live {@code app.search.cache.ttl-seconds}, which also bounds how
+ * long edits made on other nodes go unseen.
+ * <p>
+ * Local changes evict only the entries they can affect: a saved resource evicts the
+ * screens it appears on and those whose filters it matches before or after the save
+ * (text criteria are assumed to match), so a resource leaving a filter, by a category
+ * change or a deactivation, is dropped from its totals and offsets too; a deletion evicts the screens it appears on and those that depend on rows
+ * outside them (totals, offset screens); an availability change evicts the screens it
+ * appears on and the "available only" ones.
+ */
+@Component
+public class SearchResultCache {
+
+    public static final String PAGE = "page";
+    public static final String SLICE = "slice";
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    /**
+     * One cached screen: ids in display order, the total ({@code -1} for count-free
+     * slices) and the cursors of the neighbouring screens.
+     */
+    public record Entry(long[] ids, long total, String previous, String next) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, long invalidations, int entries, long ids) {
+
+        public double hitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+
+    private record Key(String mode, String query, boolean fuzzy, String author, Category category, Boolean available,
+                       Integer yearMin, Integer yearMax, Long libraryId, String language, String publisher,
+                       String sort, String direction, int page, int size, String after, String before) {
+    }
+
+    private record Cached(Entry entry, long expiresAt) {
+    }
+
+    private final Map<Key, Cached> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Long, Set<Key>> keysById = new HashMap<>();
+    private long cachedIds;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    @Value("${app.search.cache.ttl-seconds:60}")
+    private long ttlSeconds = 60;
+
+    @Value("${app.search.cache.max-ids:100000}")
+    private long maxIds = 100_000;
+
+    public synchronized Optional<Entry> get(ResourceSearchRequest request, String mode) {
+        Key key = keyOf(request, mode);
+        Cached cached = entries.get(key);
+        if (cached != null && cached.expiresAt() <= System.currentTimeMillis()) {
+            removeLocked(key);
+            cached = null;
+        }
+        if (cached == null) {
+            misses++;
+            return Optional.empty();
+        }
+        hits++;
+        return Optional.of(cached.entry());
+    }
+
+    /**
+     * Counter to read before running a search whose result will be {@link #put}: a change
+     * landing while the search runs makes its result too old to cache.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized void put(ResourceSearchRequest request, String mode, Entry entry, long generationAtStart) {
+        if (generationAtStart != generation) {
+            return;
+        }
+        Key key = keyOf(request, mode);
+        removeLocked(key);
+        entries.put(key, new Cached(entry, System.currentTimeMillis() + ttlSeconds * 1000));
+        cachedIds += weight(entry);
+        for (long id : entry.ids()) {
+            keysById.computeIfAbsent(id, i -> new HashSet<>()).add(key);
+        }
+        // Access order: the least recently used entries are at the head
+        Iterator<Map.Entry<Key, Cached>> eldest = entries.entrySet().iterator();
+        while (cachedIds > maxIds && eldest.hasNext()) {
+            Map.Entry<Key, Cached> victim = eldest.next();
+            if (victim.getKey().equals(key)) {
+                break;
+            }
+            eldest.remove();
+            forgetLocked(victim.getKey(), victim.getValue().entry());
+            evictions++;
+        }
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, invalidations, entries.size(), cachedIds);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onResourceChanged(ResourceChangedEvent event) {
+        if (event.isDeleted()) {
+            invalidate(event.resourceId(), key -> PAGE.equals(key.mode()) || key.page() > 0);
+        } else {
+            ResourceChangedEvent.Filters after = ResourceChangedEvent.Filters.of(event.resource());
+            ResourceChangedEvent.Filters before = event.before();
+            invalidate(event.resourceId(), key -> mayContain(key, after) || (before != null && mayContain(key, before)));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAvailabilityChanged(AvailabilityChangedEvent event) {
+        invalidate(event.resourceId(), key -> Boolean.TRUE.equals(key.available()));
+    }
+
+    private synchronized void invalidate(Long resourceId, Predicate<Key> alsoAffected) {
+        generation++;
+        Set<Key> affected = new HashSet<>(keysById.getOrDefault(resourceId, Set.of()));
+        for (Key key : entries.keySet()) {
+            if (alsoAffected.test(key)) {
+                affected.add(key);
+            }
+        }
+        for (Key key : affected) {
+            if (removeLocked(key)) {
+                invalidations++;
+            }
+        }
+    }
+
+    // Structured filters only: a text query or author filter may always match
+    private static boolean mayContain(Key key, ResourceChangedEvent.Filters resource) {
+        if (!resource.active()) {
+            return false;
+        }
+        if (key.category() != null && key.category() != resource.category()) {
+            return false;
+        }
+        if (key.libraryId() != null && !key.libraryId().equals(resource.libraryId())) {
+            return false;
+        }
+        if (key.language() != null && !key.language().equals(resource.language())) {
+            return false;
+        }
+        if (key.publisher() != null && !key.publisher().equals(resource.publisher())) {
+            return false;
+        }
+        Integer year = resource.publicationYear();
+        if ((key.yearMin() != null || key.yearMax() != null) && year == null) {
+            return false;
+        }
+        if ((key.yearMin() != null && year < key.yearMin()) || (key.yearMax() != null && year > key.yearMax())) {
+            return false;
+        }
+        return !Boolean.TRUE.equals(key.available())
+                || (resource.availableCopies() != null && resource.availableCopies() > 0);
+    }
+
+    private boolean removeLocked(Key key) {
+        Cached cached = entries.remove(key);
+        if (cached == null) {
+            return false;
+        }
+        forgetLocked(key, cached.entry());
+        return true;
+    }
+
+    // Drops the id back-references and the weight of an entry already taken out of entries
+    private void forgetLocked(Key key, Entry entry) {
+        for (long id : entry.ids()) {
+            Set<Key> keys = keysById.get(id);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysById.remove(id);
+            }
+        }
+        cachedIds -= weight(entry);
+    }
+
+    private static long weight(Entry entry) {
+        return entry.ids().length + 1L;
+    }
+
+    private static Key keyOf(ResourceSearchRequest request, String mode) {
+        return new Key(mode, normalizeText(request.getQuery()), request.isFuzzy(), normalizeText(request.getAuthor()),
+                request.getCategory(), Boolean.TRUE.equals(request.getAvailable()) ? Boolean.TRUE : null,
+                request.getYearMin(), request.getYearMax(), request.getLibraryId(),
+                blankToNull(request.getLanguage()), blankToNull(request.getPublisher()),
+                normalizeSort(request.getSort()), "desc".equalsIgnoreCase(request.getDirection()) ? "desc" : "asc",
+                request.getPage(), request.getSize(), blankToNull(request.getAfter()), blankToNull(request.getBefore()));
+    }
+
+    // Case and repeated spaces do not change the result; a trailing space does (finished word)
+    private static String normalizeText(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        return SPACES.matcher(text.stripLeading()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizeSort(String sort) {
+        String lower = sort == null ? "" : sort.toLowerCase(Locale.ROOT);
+        return switch (lower) {
+            case "author", "date", "popularity" -> lower;
+            default -> "title";
+        };
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+}
@@ -3,32 +3,46 @@ package com.bibliotheque.specification;
 import com.bibliotheque.dto.ResourceSearchRequest;
 import com.bibliotheque.model.Loan;
 import com.bibliotheque.model.Resource;
+import com.bibliotheque.search.SearchCursor;
+import com.bibliotheque.search.TextAnalyzer;
 import jakarta.persistence.criteria.*;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class ResourceSpecification {
 
     public static Specification<Resource> getSpecification(ResourceSearchRequest request) {
+        return getSpecification(request, null);
+    }
+
+    /**
+     * Same filters, with the text query and the author already resolved by the full-text
+     * index to {@code candidateIds}; {@code null} falls back to the LIKE filters.
+     */
+    public static Specification<Resource> getSpecification(ResourceSearchRequest request, Collection<Long> candidateIds) {
         return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             // Active resources only
             predicates.add(criteriaBuilder.isTrue(root.get("isActive")));
 
-            // Text Search (Title or ISBN)
-            if (request.getQuery() != null && !request.getQuery().trim().isEmpty()) {
-                String likePattern = "%" + request.getQuery().toLowerCase() + "%";
-                Predicate titleLike = criteriaBuilder.like(criteriaBuilder.lower(root.get("title")), likePattern);
-                Predicate isbnLike = criteriaBuilder.like(criteriaBuilder.lower(root.get("isbn")), likePattern);
+            // Text Search: index candidates, or Title or ISBN
+            if (candidateIds != null) {
+                predicates.add(root.get("id").in(candidateIds));
+            } else if (request.getQuery() != null && !request.getQuery().trim().isEmpty()) {
+                Predicate titleLike = criteriaBuilder.like(root.get("titleSearchKey"),
+                        "%" + TextAnalyzer.phrase(request.getQuery()) + "%");
+                Predicate isbnLike = criteriaBuilder.like(criteriaBuilder.lower(root.get("isbn")),
+                        "%" + request.getQuery().trim().toLowerCase() + "%");
                 predicates.add(criteriaBuilder.or(titleLike, isbnLike));
             }
 
             // Author
-            if (request.getAuthor() != null && !request.getAuthor().trim().isEmpty()) {
-                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("author")), "%" + request.getAuthor().toLowerCase() + "%"));
+            if (candidateIds == null && request.getAuthor() != null && !request.getAuthor().trim().isEmpty()) {
+                predicates.add(criteriaBuilder.like(root.get("authorSearchKey"), "%" + TextAnalyzer.phrase(request.getAuthor()) + "%"));
             }
 
             // Category
@@ -53,9 +67,44 @@ public class ResourceSpecification {
             if (request.getLibraryId() != null) {
                 predicates.add(criteriaBuilder.equal(root.get("library").get("id"), request.getLibraryId()));
             }
+
+            // Language and Publisher (facet values)
+            if (request.getLanguage() != null && !request.getLanguage().isBlank()) {
+                predicates.add(criteriaBuilder.equal(root.get("language"), request.getLanguage()));
+            }
+            if (request.getPublisher() != null && !request.getPublisher().isBlank()) {
+                predicates.add(criteriaBuilder.equal(root.get("publisher"), request.getPublisher()));
+            }
             
             // Apply predicates
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
+
+    /**
+     * Rows strictly past {@code cursor} in ({@code cursor.property()}, id) order, walking
+     * up or down. NULL sorts lowest, as in MySQL and H2: first going up, last going down.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Resource> seek(SearchCursor cursor, boolean descending) {
+        return (root, query, criteriaBuilder) -> {
+            Path<Comparable> field = root.get(cursor.property());
+            Path<Long> id = root.get("id");
+            Comparable value = cursor.value();
+            if (!descending) {
+                if (value == null) {
+                    return criteriaBuilder.or(criteriaBuilder.isNotNull(field),
+                            criteriaBuilder.greaterThan(id, cursor.id()));
+                }
+                return criteriaBuilder.or(criteriaBuilder.greaterThan(field, value),
+                        criteriaBuilder.and(criteriaBuilder.equal(field, value), criteriaBuilder.greaterThan(id, cursor.id())));
+            }
+            if (value == null) {
+                return criteriaBuilder.and(criteriaBuilder.isNull(field), criteriaBuilder.lessThan(id, cursor.id()));
+            }
+            return criteriaBuilder.or(criteriaBuilder.lessThan(field, value),
+                    criteriaBuilder.and(criteriaBuilder.equal(field, value), criteriaBuilder.lessThan(id, cursor.id())),
+                    criteriaBuilder.isNull(field));
+        };
+    }
 }
@@ -21,6 +21,8 @@ import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -49,7 +51,7 @@ public class LoanControllerIntegrationTest {
         User user = new User();
         user.setUsername("user");
         when(userService.getCurrentUser()).thenReturn(Optional.of(user));
-        when(loanService.findByUser(user)).thenReturn(Collections.emptyList());
+        when(loanService.listByUser(user)).thenReturn(Collections.emptyList());
 
         mockMvc.perform(get("/loans/my-loans"))
                 .andExpect(status().isOk())
@@ -77,4 +79,27 @@ public class LoanControllerIntegrationTest {
                 .andExpect(redirectedUrl("/loans/my-loans"))
                 .andExpect(flash().attributeExists("success"));
     }
+
+    @Test
+    @WithMockUser(username = "user")
+    void testReserve_RetryWithSameKeyIsNotReapplied() throws Exception {
+        User user = new User();
+        Resource resource = new Book();
+        resource.setId(2L);
+        resource.setTitle("Test Book");
+        resource.setAvailableCopies(1);
+
+        when(userService.getCurrentUser()).thenReturn(Optional.of(user));
+        when(resourceService.find(2L)).thenReturn(Optional.of(resource));
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/loans/reserve/2")
+                    .header("Idempotency-Key", "retry-key-1")
+                    .with(csrf()))
+                    .andExpect(status().is3xxRedirection())
+                    .andExpect(flash().attributeExists("success"));
+        }
+
+        verify(loanService, times(1)).reserve(user, 2L);
+    }
 }
@@ -43,6 +43,9 @@ public class ResourceControllerTest {
     @MockBean
     private com.bibliotheque.repository.LibraryRepository libraryRepository;
 
+    @MockBean
+    private com.bibliotheque.service.BranchLocatorService branchLocatorService;
+
     @Test
     @WithMockUser(username = "admin", roles = {"ADMIN"})
     public void testCreateResource() throws Exception {
@@ -68,11 +71,49 @@ public class ResourceControllerTest {
     @Test
     @WithMockUser(username = "user")
     public void testListResources() throws Exception {
-        org.mockito.Mockito.when(resourceSearchService.search(org.mockito.ArgumentMatchers.any())).thenReturn(org.springframework.data.domain.Page.empty());
+        org.mockito.Mockito.when(resourceSearchService.browse(org.mockito.ArgumentMatchers.any())).thenReturn(com.bibliotheque.dto.ResourceSlice.empty());
+        org.mockito.Mockito.when(resourceSearchService.facets(org.mockito.ArgumentMatchers.any())).thenReturn(java.util.Map.of(
+                "decade", java.util.List.of(new com.bibliotheque.search.FacetCount("1990", "1990", 3)),
+                "language", java.util.List.of(new com.bibliotheque.search.FacetCount("fr", "fr", 5))));
         org.mockito.Mockito.when(libraryRepository.findAll()).thenReturn(java.util.Collections.emptyList());
 
         mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/resources"))
                 .andExpect(status().isOk())
-                .andExpect(view().name("resources/search"));
+                .andExpect(view().name("resources/search"))
+                .andExpect(org.springframework.test.web.servlet.result.MockMvcResultMatchers.content().string(org.hamcrest.Matchers.containsString("yearMax=1999")));
+    }
+
+    @Test
+    @WithMockUser(username = "user")
+    public void testSimpleSearchGoesThroughTheCatalogIndex() throws Exception {
+        org.mockito.Mockito.when(resourceSearchService.search(org.mockito.ArgumentMatchers.any()))
+                .thenReturn(org.springframework.data.domain.Page.empty(org.springframework.data.domain.PageRequest.of(1, 5)));
+        org.mockito.Mockito.when(libraryRepository.findAll()).thenReturn(java.util.Collections.emptyList());
+
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/resources/search")
+                        .param("query", "miserables").param("author", "hugo").param("page", "1").param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("resources/list"));
+
+        org.mockito.Mockito.verify(resourceSearchService).search(org.mockito.ArgumentMatchers.argThat(request ->
+                "miserables".equals(request.getQuery()) && "hugo".equals(request.getAuthor())
+                        && request.getPage() == 1 && request.getSize() == 5));
+    }
+
+    @Test
+    @WithMockUser(username = "user")
+    public void testNearestBranches() throws Exception {
+        org.mockito.Mockito.when(branchLocatorService.nearest(7L, 36.8, 10.2, 3)).thenReturn(java.util.Optional.of(java.util.List.of(
+                new com.bibliotheque.dto.NearbyBranch(2L, "Sousse", null, "Sousse", 115.4, 1))));
+        org.mockito.Mockito.when(branchLocatorService.nearest(8L, null, null, 3)).thenThrow(new IllegalArgumentException("No position"));
+
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/resources/7/nearest")
+                        .param("lat", "36.8").param("lon", "10.2"))
+                .andExpect(status().isOk())
+                .andExpect(org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath("$[0].name").value("Sousse"));
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/resources/8/nearest"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get("/resources/9/nearest"))
+                .andExpect(status().isNotFound());
     }
 }
@@ -0,0 +1,69 @@
+package com.bibliotheque.ids;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnowflakeIdGeneratorTest {
+
+    @Test
+    void testIdsAreMonotonicAndCarryNode() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        long previous = -1;
+        for (int i = 0; i < 100_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertEquals(7, SnowflakeIdGenerator.nodeOf(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void testSequenceOverflowAndClockStepBack() {
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH_MILLIS + 1_000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+
+        Set<Long> ids = new HashSet<>();
+        long previous = -1;
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                clock.addAndGet(-500); // NTP step back
+            }
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void testDistinctNodesNeverCollide() {
+        AtomicLong clock = new AtomicLong(SnowflakeIdGenerator.EPOCH_MILLIS);
+        SnowflakeIdGenerator a = new SnowflakeIdGenerator(1, clock::get);
+        SnowflakeIdGenerator b = new SnowflakeIdGenerator(2, clock::get);
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(ids.add(a.nextId()));
+            assertTrue(ids.add(b.nextId()));
+        }
+    }
+
+    @Test
+    void testCodesAreShortAndSortLikeIds() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        long first = generator.nextId();
+        long second = generator.nextId();
+        String a = Base32.encode(first);
+        String b = Base32.encode(second);
+
+        assertEquals(Base32.LENGTH, a.length());
+        assertTrue(a.compareTo(b) < 0);
+        assertEquals(first, Base32.decode(a));
+        assertEquals(first, Base32.decode(a.toLowerCase()));
+    }
+}
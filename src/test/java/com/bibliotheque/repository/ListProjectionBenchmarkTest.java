@@ -0,0 +1,146 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.dto.LoanRow;
+import com.bibliotheque.dto.ResourceCard;
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Library;
+import com.bibliotheque.model.Loan;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.User;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.model.enums.Role;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Heap allocated per list page when rendering from entities versus projections.
+ * Numbers are logged for comparison; only that both give the same rows is asserted
+ * here, {@link ListProjectionTest} checks the fields. Excluded from the default build,
+ * run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@Slf4j
+public class ListProjectionBenchmarkTest {
+
+    private static final int RESOURCES = 2_000;
+    private static final int PAGE = 50;
+    private static final int ROUNDS = 40;
+
+    private long rendered;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Test
+    void testAllocationsPerPage_EntitiesVersusProjections() {
+        Library library = new Library();
+        library.setName("Bench Library");
+        library.setCity("Tunis");
+        entityManager.persist(library);
+
+        User user = new User();
+        user.setUsername("bench");
+        user.setEmail("bench@test.com");
+        user.setPassword("password");
+        user.setFirstName("Bench");
+        user.setLastName("User");
+        user.setRole(Role.ROLE_USER);
+        entityManager.persist(user);
+
+        String description = "x".repeat(1000);
+        for (int i = 0; i < RESOURCES; i++) {
+            Book book = new Book();
+            book.setTitle("Bench Title " + i);
+            book.setAuthor("Author " + (i % 97));
+            book.setDescription(description);
+            book.setSeries("Series " + (i % 13));
+            book.setCategory(Category.BOOK);
+            book.setTotalCopies(1);
+            book.setAvailableCopies(1);
+            book.setLibrary(library);
+            entityManager.persist(book);
+            if (i < PAGE) {
+                Loan loan = new Loan();
+                loan.setUser(user);
+                loan.setResource(book);
+                entityManager.persist(loan);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Specification<Resource> all = (root, query, cb) -> cb.isTrue(root.get("isActive"));
+        PageRequest page = PageRequest.of(3, PAGE, Sort.by("titleSortKey", "id"));
+
+        // What the card grid reads: entities with their library, or cards
+        Supplier<List<Long>> entities = () -> resourceRepository.findAll(all, page).getContent().stream()
+                .peek(r -> render(r.getTitle(), r.getAuthor(), r.getLibrary().getCity()))
+                .map(Resource::getId)
+                .toList();
+        Supplier<List<Long>> cards = () -> resourceRepository.findCardPage(all, page).getContent().stream()
+                .peek(c -> render(c.title(), c.author(), c.libraryCity()))
+                .map(ResourceCard::id)
+                .toList();
+        assertEquals(measure("catalog page, entities", entities), measure("catalog page, cards", cards));
+
+        // What the loan lists read: loans with their resource and borrower, or rows
+        Supplier<List<Long>> loans = () -> loanRepository.findByUser(user).stream()
+                .peek(l -> render(l.getResource().getTitle(), l.getResource().getAuthor(), l.getUser().getEmail()))
+                .map(Loan::getId)
+                .toList();
+        Supplier<List<Long>> rows = () -> loanRepository.findRowsByUser(user).stream()
+                .peek(r -> render(r.resourceTitle(), r.resourceAuthor(), r.userEmail()))
+                .map(LoanRow::id)
+                .toList();
+        assertEquals(measure("loan list, entities", loans), measure("loan list, rows", rows));
+    }
+
+    // Reads what a template would, so lazy associations are loaded as when rendering
+    private void render(String... values) {
+        for (String value : values) {
+            rendered += value == null ? 0 : value.length();
+        }
+    }
+
+    private List<Long> measure(String label, Supplier<List<Long>> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        // Warm-up so statement and metadata caches are not counted
+        for (int i = 0; i < 5; i++) {
+            read.get();
+            entityManager.clear();
+        }
+        List<Long> ids = null;
+        long before = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            ids = read.get();
+            entityManager.clear();
+        }
+        long bytes = (threads.getThreadAllocatedBytes(thread) - before) / ROUNDS;
+        long micros = (System.nanoTime() - start) / 1000 / ROUNDS;
+        log.info("List projections: {} {} KiB and {} us per page", label, bytes / 1024, micros);
+        return ids;
+    }
+}
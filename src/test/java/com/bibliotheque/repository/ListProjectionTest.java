@@ -0,0 +1,101 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.dto.LoanRow;
+import com.bibliotheque.dto.ResourceCard;
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Library;
+import com.bibliotheque.model.Loan;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.User;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.model.enums.Role;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The list pages read projections instead of entities; both must show the same rows.
+ */
+@DataJpaTest
+public class ListProjectionTest {
+
+    private static final int PAGE = 50;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Test
+    void testProjectionsShowTheSameRowsAsEntities() {
+        Library library = new Library();
+        library.setName("Projection Library");
+        library.setCity("Tunis");
+        entityManager.persist(library);
+
+        User user = new User();
+        user.setUsername("projection");
+        user.setEmail("projection@test.com");
+        user.setPassword("password");
+        user.setFirstName("Projection");
+        user.setLastName("User");
+        user.setRole(Role.ROLE_USER);
+        entityManager.persist(user);
+
+        for (int i = 0; i < 4 * PAGE; i++) {
+            Book book = new Book();
+            book.setTitle("Projection Title " + i);
+            book.setTitleSortKey(String.format("%04d", i));
+            book.setAuthor("Author " + (i % 97));
+            book.setCategory(Category.BOOK);
+            book.setTotalCopies(1);
+            book.setAvailableCopies(1);
+            book.setLibrary(library);
+            entityManager.persist(book);
+            if (i < PAGE) {
+                Loan loan = new Loan();
+                loan.setUser(user);
+                loan.setResource(book);
+                entityManager.persist(loan);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // What the card grid shows: entities with their library, or cards
+        Specification<Resource> all = (root, query, cb) -> cb.isTrue(root.get("isActive"));
+        PageRequest page = PageRequest.of(3, PAGE, Sort.by("titleSortKey", "id"));
+        List<List<String>> entities = resourceRepository.findAll(all, page).getContent().stream()
+                .map(r -> List.of(r.getId().toString(), r.getTitle(), r.getAuthor(), r.getLibrary().getCity()))
+                .toList();
+        entityManager.clear();
+        List<List<String>> cards = resourceRepository.findCardPage(all, page).getContent().stream()
+                .map(c -> List.of(c.id().toString(), c.title(), c.author(), c.libraryCity()))
+                .toList();
+        assertEquals(PAGE, cards.size());
+        assertEquals(entities, cards);
+
+        // What the loan lists show: loans with their resource and borrower, or rows
+        List<List<String>> loans = loanRepository.findByUser(user).stream()
+                .map(l -> List.of(l.getId().toString(), l.getResource().getTitle(), l.getResource().getAuthor(), l.getUser().getEmail()))
+                .toList();
+        entityManager.clear();
+        List<List<String>> rows = loanRepository.findRowsByUser(user).stream()
+                .map(r -> List.of(r.id().toString(), r.resourceTitle(), r.resourceAuthor(), r.userEmail()))
+                .toList();
+        assertEquals(PAGE, rows.size());
+        assertEquals(loans, rows);
+    }
+}
@@ -0,0 +1,87 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.ids.BusinessIds;
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Loan;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.User;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.model.enums.LoanStatus;
+import com.bibliotheque.model.enums.Role;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Rough insert throughput of loans keyed by random UUIDs versus time-ordered codes.
+ * Numbers are logged for comparison; only uniqueness is asserted. Excluded from the
+ * default build, run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@DataJpaTest
+@Slf4j
+public class LoanNumberInsertBenchmarkTest {
+
+    private static final int ROWS = 5_000;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Test
+    void testInsertThroughput_UuidVersusTimeOrdered() {
+        User user = new User();
+        user.setUsername("bench");
+        user.setEmail("bench@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        entityManager.persist(user);
+
+        Resource resource = new Book();
+        resource.setTitle("Bench Book");
+        resource.setCategory(Category.BOOK);
+        resource.setAvailableCopies(1);
+        entityManager.persist(resource);
+
+        // Warm-up so the first measured run does not pay for JIT and statement caches
+        insert(user, resource, 500, () -> UUID.randomUUID().toString());
+
+        long uuid = insert(user, resource, ROWS, () -> UUID.randomUUID().toString());
+        long ordered = insert(user, resource, ROWS, BusinessIds::next);
+
+        log.info("Loan number inserts: UUID {} rows/s, time-ordered {} rows/s",
+                ROWS * 1000L / Math.max(uuid, 1), ROWS * 1000L / Math.max(ordered, 1));
+        assertEquals(500 + 2L * ROWS, loanRepository.count());
+    }
+
+    private long insert(User user, Resource resource, int rows, Supplier<String> numbers) {
+        long started = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            Loan loan = new Loan();
+            loan.setUser(user);
+            loan.setResource(resource);
+            loan.setStatus(LoanStatus.CLOSED);
+            loan.setLoanNumber(numbers.get());
+            entityManager.persist(loan);
+            if (i % 100 == 99) {
+                entityManager.flush();
+                entityManager.clear();
+                user = entityManager.find(User.class, user.getId());
+                resource = entityManager.find(Resource.class, resource.getId());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+}
@@ -11,9 +11,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
 
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -93,4 +96,128 @@ public class LoanRepositoryTest {
         assertEquals(1, found.size());
         assertEquals(user.getUsername(), found.get(0).getUser().getUsername());
     }
+
+    @Test
+    void testFindDueBetweenNotReminded_SkipsRemindedLoans() {
+        User user = new User();
+        user.setUsername("reminded");
+        user.setEmail("reminded@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        entityManager.persist(user);
+
+        Resource resource = new Book();
+        resource.setTitle("Due Soon Book");
+        resource.setCategory(Category.BOOK);
+        entityManager.persist(resource);
+
+        LocalDateTime now = LocalDateTime.now();
+        Loan dueSoon = new Loan();
+        dueSoon.setUser(user);
+        dueSoon.setResource(resource);
+        dueSoon.setStatus(LoanStatus.IN_PROGRESS);
+        dueSoon.setDueDate(now.plusDays(1));
+        entityManager.persist(dueSoon);
+
+        Loan dueLater = new Loan();
+        dueLater.setUser(user);
+        dueLater.setResource(resource);
+        dueLater.setStatus(LoanStatus.IN_PROGRESS);
+        dueLater.setDueDate(now.plusDays(10));
+        entityManager.persist(dueLater);
+
+        entityManager.flush();
+
+        List<Loan> batch = loanRepository.findDueBetweenNotReminded(
+                LoanStatus.IN_PROGRESS, now, Long.MAX_VALUE, now.plusDays(3), PageRequest.of(0, 10));
+        assertEquals(1, batch.size());
+        assertEquals(dueSoon.getId(), batch.get(0).getId());
+
+        assertEquals(1, loanRepository.markReminded(List.of(dueSoon.getId()), now));
+        assertTrue(loanRepository.findDueBetweenNotReminded(
+                LoanStatus.IN_PROGRESS, now, Long.MAX_VALUE, now.plusDays(3), PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void testFindDueKeys_WalksDueDateThenIdWithoutRepeats() {
+        User user = new User();
+        user.setUsername("swept");
+        user.setEmail("swept@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        entityManager.persist(user);
+
+        Resource resource = new Book();
+        resource.setTitle("Overdue Book");
+        resource.setCategory(Category.BOOK);
+        entityManager.persist(resource);
+
+        // Ties on the due date, so the seek has to fall back to the id
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<Long> expected = new ArrayList<>();
+        for (int days : new int[]{3, 1, 3, 2, 1}) {
+            Loan loan = new Loan();
+            loan.setUser(user);
+            loan.setResource(resource);
+            loan.setStatus(LoanStatus.IN_PROGRESS);
+            loan.setDueDate(now.minusDays(days));
+            entityManager.persist(loan);
+        }
+        entityManager.flush();
+        loanRepository.findAll().stream()
+                .sorted(Comparator.comparing(Loan::getDueDate).thenComparing(Loan::getId))
+                .forEach(loan -> expected.add(loan.getId()));
+
+        List<Long> walked = new ArrayList<>();
+        List<Object[]> keys = loanRepository.findDueKeysBefore(LoanStatus.IN_PROGRESS, now, PageRequest.of(0, 2));
+        while (!keys.isEmpty()) {
+            keys.forEach(key -> walked.add((Long) key[0]));
+            Object[] last = keys.get(keys.size() - 1);
+            keys = loanRepository.findDueKeysBeforeAfter(LoanStatus.IN_PROGRESS, now,
+                    (LocalDateTime) last[1], (Long) last[0], PageRequest.of(0, 2));
+        }
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    void testFindDueBetweenNotReminded_WalksDueDateThenIdWithoutRepeats() {
+        User user = new User();
+        user.setUsername("walked");
+        user.setEmail("walked@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        entityManager.persist(user);
+
+        Resource resource = new Book();
+        resource.setTitle("Due Soon Book");
+        resource.setCategory(Category.BOOK);
+        entityManager.persist(resource);
+
+        // Ties on the due date, so the seek has to fall back to the id
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<Long> expected = new ArrayList<>();
+        for (int days : new int[]{2, 1, 2, 3, 1}) {
+            Loan loan = new Loan();
+            loan.setUser(user);
+            loan.setResource(resource);
+            loan.setStatus(LoanStatus.IN_PROGRESS);
+            loan.setDueDate(now.plusDays(days));
+            entityManager.persist(loan);
+        }
+        entityManager.flush();
+        loanRepository.findAll().stream()
+                .sorted(Comparator.comparing(Loan::getDueDate).thenComparing(Loan::getId))
+                .forEach(loan -> expected.add(loan.getId()));
+
+        List<Long> walked = new ArrayList<>();
+        List<Loan> batch = loanRepository.findDueBetweenNotReminded(
+                LoanStatus.IN_PROGRESS, now, Long.MAX_VALUE, now.plusDays(4), PageRequest.of(0, 2));
+        while (!batch.isEmpty()) {
+            batch.forEach(loan -> walked.add(loan.getId()));
+            Loan last = batch.get(batch.size() - 1);
+            batch = loanRepository.findDueBetweenNotReminded(
+                    LoanStatus.IN_PROGRESS, last.getDueDate(), last.getId(), now.plusDays(4), PageRequest.of(0, 2));
+        }
+        assertEquals(expected, walked);
+    }
 }
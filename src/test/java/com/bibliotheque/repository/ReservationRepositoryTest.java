@@ -0,0 +1,70 @@
+package com.bibliotheque.repository;
+
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Reservation;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.User;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.model.enums.ReservationStatus;
+import com.bibliotheque.model.enums.Role;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+public class ReservationRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Test
+    void testQueuePositionsAreDerivedFromOrder() {
+        Resource resource = new Book();
+        resource.setTitle("Hot Title");
+        resource.setCategory(Category.BOOK);
+        resource.setAvailableCopies(0);
+        entityManager.persist(resource);
+
+        List<Reservation> queue = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setUsername("waiting" + i);
+            user.setEmail("waiting" + i + "@test.com");
+            user.setPassword("password");
+            user.setRole(Role.ROLE_USER);
+            entityManager.persist(user);
+
+            Reservation reservation = Reservation.builder()
+                    .user(user)
+                    .resource(resource)
+                    .reservationNumber("R" + i)
+                    .reservationDate(LocalDateTime.now())
+                    .status(ReservationStatus.PENDING)
+                    .build();
+            queue.add(entityManager.persist(reservation));
+        }
+        entityManager.flush();
+
+        assertEquals(queue.get(0).getId(),
+                reservationRepository.findFirstByResourceAndStatusOrderByIdAsc(resource, ReservationStatus.PENDING).orElseThrow().getId());
+        assertEquals(2, reservationRepository.countAhead(resource, ReservationStatus.PENDING, queue.get(2).getId()));
+
+        // Dequeue the head: the others move up without any row being rewritten
+        queue.get(0).setStatus(ReservationStatus.APPROVED);
+        entityManager.flush();
+
+        assertEquals(queue.get(1).getId(),
+                reservationRepository.findFirstByResourceAndStatusOrderByIdAsc(resource, ReservationStatus.PENDING).orElseThrow().getId());
+        assertEquals(1, reservationRepository.countAhead(resource, ReservationStatus.PENDING, queue.get(2).getId()));
+    }
+}
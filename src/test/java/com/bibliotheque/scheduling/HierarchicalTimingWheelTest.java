@@ -0,0 +1,50 @@
+package com.bibliotheque.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HierarchicalTimingWheelTest {
+
+    @Test
+    void testFiresAtDeadlineAcrossLevels() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1, 8, 3, 1_000);
+        wheel.schedule(1_005, "level0");
+        wheel.schedule(1_100, "level1");
+        wheel.schedule(1_400, "level2");
+        wheel.schedule(5_000, "overflow");
+
+        assertTrue(wheel.advanceTo(1_004).isEmpty());
+        assertEquals(List.of("level0"), wheel.advanceTo(1_005));
+        assertTrue(wheel.advanceTo(1_099).isEmpty());
+        assertEquals(List.of("level1"), wheel.advanceTo(1_100));
+        assertEquals(List.of("level2"), wheel.advanceTo(1_450));
+        assertTrue(wheel.advanceTo(4_999).isEmpty());
+        assertEquals(List.of("overflow"), wheel.advanceTo(5_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testCancelledTimeoutNeverFires() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 64, 4, 0);
+        HierarchicalTimingWheel.Timeout<String> kept = wheel.schedule(2_000, "kept");
+        HierarchicalTimingWheel.Timeout<String> dropped = wheel.schedule(2_000, "dropped");
+
+        assertTrue(dropped.cancel());
+        assertFalse(dropped.cancel());
+        assertEquals(1, wheel.size());
+
+        assertEquals(List.of("kept"), wheel.advanceTo(2_000));
+        assertFalse(kept.cancel());
+    }
+
+    @Test
+    void testPastDeadlineFiresOnNextAdvance() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(1_000, 64, 4, 60_000);
+        wheel.schedule(0, "late");
+
+        assertEquals(List.of("late"), wheel.advanceTo(61_000));
+    }
+}
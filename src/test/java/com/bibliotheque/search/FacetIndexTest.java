@@ -0,0 +1,42 @@
+package com.bibliotheque.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FacetIndexTest {
+
+    @Test
+    void testCountsWithinFilteredDocuments() {
+        FacetIndex index = new FacetIndex("category", "language");
+        index.put(10, Map.of("category", "BOOK", "language", "fr"));
+        index.put(20, Map.of("category", "BOOK", "language", "en"));
+        index.put(30, Map.of("category", "DVD", "language", "fr"));
+
+        assertEquals(Map.of("BOOK", 2, "DVD", 1), index.count("category", index.all()));
+
+        BitSet french = index.docs("language", "fr");
+        assertEquals(Map.of("BOOK", 1, "DVD", 1), index.count("category", french));
+
+        BitSet some = index.docsOf(new long[]{20, 30, 99});
+        assertEquals(Map.of("fr", 1, "en", 1), index.count("language", some));
+    }
+
+    @Test
+    void testSetAndRemoveMoveDocumentsBetweenValues() {
+        FacetIndex index = new FacetIndex("available");
+        index.put(1, Map.of("available", "true"));
+        index.put(2, Map.of("available", "true"));
+
+        index.set(1, "available", "false");
+        index.remove(2);
+
+        assertEquals(1, index.size());
+        assertEquals(Map.of("false", 1), index.count("available", index.all()));
+        assertTrue(index.docs("available", "true").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> index.docs("unknown", "x"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.bibliotheque.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rough latency of typo lookups against a dictionary the size of a 1M-title catalog's
+ * title and author vocabulary. Percentiles are logged for comparison; only that every
+ * misspelling finds its word is asserted. Excluded from the default build, run with
+ * {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@Slf4j
+public class FuzzySearchBenchmarkTest {
+
+    private static final int WORDS = 300_000;
+    private static final int QUERIES = 2_000;
+    private static final String[] SYLLABLES = {
+            "ba", "be", "bi", "bo", "ca", "ce", "ch", "de", "di", "do", "fa", "fe", "ga", "gu", "la", "le",
+            "li", "lo", "ma", "me", "mi", "mo", "na", "ne", "no", "pa", "pe", "po", "ra", "re", "ri", "ro",
+            "sa", "se", "si", "so", "ta", "te", "ti", "to", "va", "ve", "vi", "tr", "qu", "on", "an", "er"};
+
+    @Test
+    void testTypoLookupLatency() {
+        Random random = new Random(7);
+        Set<String> dictionary = new LinkedHashSet<>();
+        while (dictionary.size() < WORDS) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(4);
+            for (int i = 0; i < syllables; i++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            dictionary.add(word.toString());
+        }
+        List<String> words = new ArrayList<>(dictionary);
+        TrigramIndex index = new TrigramIndex(16);
+        for (int i = 0; i < words.size(); i += 4) {
+            index.put(i, words.subList(i, Math.min(i + 4, words.size())));
+        }
+
+        long[] nanos = new long[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            String word = words.get(random.nextInt(words.size()));
+            while (word.length() < 4) {
+                word = words.get(random.nextInt(words.size()));
+            }
+            // Swap two neighbouring letters, the commonest slip
+            int at = 1 + random.nextInt(word.length() - 2);
+            String typo = word.substring(0, at) + word.charAt(at + 1) + word.charAt(at) + word.substring(at + 2);
+
+            long started = System.nanoTime();
+            List<String> found = index.similar(typo);
+            nanos[q] = System.nanoTime() - started;
+            assertTrue(found.contains(word), typo + " should find " + word);
+        }
+
+        Arrays.sort(nanos);
+        log.info("Typo lookups over {} words: p50 {} ms, p99 {} ms", index.termCount(),
+                String.format("%.2f", nanos[QUERIES / 2] / 1e6), String.format("%.2f", nanos[QUERIES * 99 / 100] / 1e6));
+    }
+}
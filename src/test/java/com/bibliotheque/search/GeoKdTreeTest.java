@@ -0,0 +1,62 @@
+package com.bibliotheque.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeoKdTreeTest {
+
+    @Test
+    void testDistanceBetweenKnownCities() {
+        // Paris - Tunis, about 1480 km
+        double distance = GeoKdTree.distanceKm(48.8566, 2.3522, 36.8065, 10.1815);
+        assertTrue(distance > 1450 && distance < 1510, "got " + distance);
+        assertEquals(0, GeoKdTree.distanceKm(36.8, 10.18, 36.8, 10.18), 1e-9);
+    }
+
+    @Test
+    void testNearestMatchesBruteForceWithFilter() {
+        Random random = new Random(42);
+        List<GeoKdTree.Point> points = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            // Spread worldwide, including both sides of the date line and near the poles
+            points.add(new GeoKdTree.Point(i, random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+        }
+        GeoKdTree tree = new GeoKdTree(points);
+        assertEquals(5_000, tree.size());
+
+        LongPredicate everyThird = id -> id % 3 == 0;
+        for (int q = 0; q < 500; q++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            List<GeoKdTree.Neighbor> found = tree.nearest(lat, lon, 5, everyThird);
+
+            List<Long> expected = points.stream()
+                    .filter(p -> everyThird.test(p.id()))
+                    .sorted(Comparator.comparingDouble(p -> GeoKdTree.distanceKm(lat, lon, p.latitude(), p.longitude())))
+                    .limit(5)
+                    .map(GeoKdTree.Point::id)
+                    .toList();
+            assertEquals(expected, found.stream().map(GeoKdTree.Neighbor::id).toList());
+        }
+    }
+
+    @Test
+    void testFewerMatchesThanAsked() {
+        GeoKdTree tree = new GeoKdTree(List.of(
+                new GeoKdTree.Point(1, 36.8065, 10.1815),
+                new GeoKdTree.Point(2, 35.8256, 10.6084),
+                new GeoKdTree.Point(3, 34.7406, 10.7603)));
+
+        List<GeoKdTree.Neighbor> found = tree.nearest(36.8, 10.2, 5, id -> id != 2);
+        assertEquals(List.of(1L, 3L), found.stream().map(GeoKdTree.Neighbor::id).toList());
+        assertTrue(tree.nearest(36.8, 10.2, 5, id -> false).isEmpty());
+        assertTrue(new GeoKdTree(List.of()).nearest(0, 0, 3, id -> true).isEmpty());
+    }
+}
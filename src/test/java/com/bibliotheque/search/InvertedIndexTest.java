@@ -0,0 +1,46 @@
+package com.bibliotheque.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvertedIndexTest {
+
+    @Test
+    void testAnalyzerFoldsAccentsStopWordsAndPlurals() {
+        assertEquals(List.of("miserable"), TextAnalyzer.tokens("Les Misérables"));
+        assertEquals(List.of("etranger"), TextAnalyzer.tokens("L'Étranger"));
+        assertEquals(List.of("lord", "ring", "tome", "2"), TextAnalyzer.tokens("The Lord of the Rings, tome 2"));
+        assertEquals("9782070360024", TextAnalyzer.isbnKey("978-2-07-036002-4"));
+        assertNull(TextAnalyzer.isbnKey("Hugo"));
+    }
+
+    @Test
+    void testMatchRequiresAllTermsAndExpandsLastPrefix() {
+        InvertedIndex index = new InvertedIndex(16);
+        index.put(1, TextAnalyzer.tokens("Les Misérables Victor Hugo"));
+        index.put(2, TextAnalyzer.tokens("Notre-Dame de Paris Victor Hugo"));
+        index.put(3, TextAnalyzer.tokens("Le Petit Prince Saint-Exupéry"));
+
+        assertArrayEquals(new long[]{1, 2}, index.match(TextAnalyzer.tokens("victor hugo"), false));
+        assertArrayEquals(new long[]{2}, index.match(TextAnalyzer.tokens("hugo dame"), false));
+        assertArrayEquals(new long[]{3}, index.match(TextAnalyzer.tokens("peti"), true));
+        assertArrayEquals(new long[0], index.match(TextAnalyzer.tokens("peti"), false));
+    }
+
+    @Test
+    void testPutReplacesAndRemoveForgetsDocument() {
+        InvertedIndex index = new InvertedIndex(16);
+        index.put(7, TextAnalyzer.tokens("Germinal"));
+        index.put(7, TextAnalyzer.tokens("Nana"));
+
+        assertArrayEquals(new long[0], index.match(List.of("germinal"), false));
+        assertArrayEquals(new long[]{7}, index.match(List.of("nana"), false));
+
+        index.remove(7);
+        assertEquals(0, index.size());
+        assertEquals(0, index.termCount());
+    }
+}
@@ -0,0 +1,48 @@
+package com.bibliotheque.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SuggestionTrieTest {
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::text).toList();
+    }
+
+    @Test
+    void testCompletesFromAnyLeadingWordByPopularity() {
+        SuggestionTrie trie = new SuggestionTrie(2, 3);
+        trie.put(1, Map.of("title", "Les Misérables", "author", "Victor Hugo"), 5);
+        trie.put(2, Map.of("title", "Notre-Dame de Paris", "author", "Victor Hugo"), 3);
+        trie.put(3, Map.of("title", "Le Petit Prince"), 20);
+        trie.put(4, Map.of("title", "Les Mots"), 1);
+
+        assertEquals(List.of(new Suggestion("Victor Hugo", "author", 8)), trie.suggest("hug", 10));
+        assertEquals(List.of("Les Misérables", "Les Mots"), texts(trie.suggest("les m", 10)));
+        assertEquals(List.of("Le Petit Prince"), texts(trie.suggest("PRIN", 10)));
+        // Only the k heaviest are kept per prefix
+        assertEquals(List.of("Le Petit Prince", "Les Misérables"), texts(trie.suggest("l", 10)));
+        assertTrue(trie.suggest("xyz", 10).isEmpty());
+    }
+
+    @Test
+    void testWeightChangesAndRemovalsUpdateRanking() {
+        SuggestionTrie trie = new SuggestionTrie(1, 3);
+        trie.put(1, Map.of("title", "Germinal"), 1);
+        trie.put(2, Map.of("title", "Germaine"), 2);
+
+        assertEquals(List.of("Germaine"), texts(trie.suggest("germ", 5)));
+        trie.setWeight(1, 10);
+        assertEquals(List.of("Germinal"), texts(trie.suggest("germ", 5)));
+        assertEquals(10, trie.weightOf(1));
+
+        trie.remove(1);
+        assertEquals(List.of("Germaine"), texts(trie.suggest("germ", 5)));
+        assertTrue(trie.suggest("germi", 5).isEmpty());
+        assertEquals(1, trie.size());
+    }
+}
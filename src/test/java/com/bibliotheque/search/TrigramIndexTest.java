@@ -0,0 +1,54 @@
+package com.bibliotheque.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrigramIndexTest {
+
+    @Test
+    void testFindsWordsWithinBoundedEditDistance() {
+        TrigramIndex index = new TrigramIndex(16);
+        index.put(1, TextAnalyzer.tokens("Les Misérables Victor Hugo"));
+        index.put(2, TextAnalyzer.tokens("Madame Bovary Gustave Flaubert"));
+
+        assertEquals(List.of("hugo"), index.similar("huog"));
+        assertEquals(List.of("victor"), index.similar("victr"));
+        assertEquals(List.of("flaubert"), index.similar("flaubet"));
+        assertEquals(List.of("miserable"), index.similar(TextAnalyzer.tokens("miserabels").get(0)));
+        // Short words must be exact
+        assertTrue(index.similar("hug").isEmpty());
+        assertTrue(index.similar("balzac").isEmpty());
+    }
+
+    @Test
+    void testSwapsComeFirstAmongEquallyCloseWords() {
+        TrigramIndex index = new TrigramIndex(1);
+        index.put(1, List.of("loanbe", "lonaba"));
+
+        // Both one edit away; the swap is the likelier slip
+        assertEquals(List.of("lonaba"), index.similar("loanba"));
+    }
+
+    @Test
+    void testWordsLeaveWithTheirLastDocument() {
+        TrigramIndex index = new TrigramIndex(16);
+        index.put(1, List.of("germinal"));
+        index.put(2, List.of("germinal", "nana"));
+
+        index.remove(1);
+        assertEquals(List.of("germinal"), index.similar("germinak"));
+        index.put(2, List.of("nana"));
+        assertTrue(index.similar("germinak").isEmpty());
+        assertEquals(1, index.termCount());
+    }
+
+    @Test
+    void testDistanceCountsTranspositionsAsOneEdit() {
+        assertEquals(1, TrigramIndex.distance("hugo", "huog", 2));
+        assertEquals(2, TrigramIndex.distance("flaubert", "flobert", 2));
+        assertEquals(3, TrigramIndex.distance("zola", "balzac", 2));
+    }
+}
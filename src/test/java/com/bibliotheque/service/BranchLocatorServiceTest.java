@@ -0,0 +1,72 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.dto.NearbyBranch;
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Library;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.repository.LibraryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class BranchLocatorServiceTest {
+
+    @Autowired
+    private LibraryRepository libraryRepository;
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private BranchLocatorService branchLocatorService;
+
+    private Library library(String name, double latitude, double longitude) {
+        Library library = new Library();
+        library.setName(name);
+        library.setCity(name);
+        library.setLatitude(latitude);
+        library.setLongitude(longitude);
+        return libraryRepository.save(library);
+    }
+
+    private Resource copy(Library library, int available) {
+        Resource resource = new Book();
+        resource.setTitle("Le Petit Prince");
+        resource.setIsbn("978-2-07-061275-8");
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(2);
+        resource.setAvailableCopies(available);
+        resource.setLibrary(library);
+        return resourceService.save(resource);
+    }
+
+    @Test
+    void testNearestBranchesWithACopyOnTheShelf() {
+        Library tunis = library("Tunis", 36.8065, 10.1815);
+        Library sousse = library("Sousse", 35.8256, 10.6084);
+        Library sfax = library("Sfax", 34.7406, 10.7603);
+        Library bizerte = library("Bizerte", 37.2744, 9.8739);
+        branchLocatorService.rebuild();
+
+        Resource here = copy(tunis, 0);
+        copy(sousse, 1);
+        copy(sfax, 2);
+        copy(bizerte, 0);
+
+        List<NearbyBranch> nearest = branchLocatorService.nearest(here.getId(), null, null, 3).orElseThrow();
+        assertEquals(List.of("Sousse", "Sfax"), nearest.stream().map(NearbyBranch::name).toList());
+        assertTrue(nearest.get(0).distanceKm() > 100 && nearest.get(0).distanceKm() < 130);
+
+        // From the patron's own position instead of the resource's branch
+        nearest = branchLocatorService.nearest(here.getId(), 34.75, 10.75, 1).orElseThrow();
+        assertEquals("Sfax", nearest.get(0).name());
+
+        assertTrue(branchLocatorService.nearest(-1L, null, null, 3).isEmpty());
+    }
+}
@@ -0,0 +1,224 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.dto.ResourceCard;
+import com.bibliotheque.dto.ResourceSearchRequest;
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.search.FacetCount;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class CatalogIndexServiceTest {
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private ResourceSearchService resourceSearchService;
+
+    @Autowired
+    private CatalogIndexService catalogIndexService;
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testSavedResourceIsSearchableWithoutAccents() {
+        assertTrue(catalogIndexService.isReady());
+
+        Resource resource = new Book();
+        resource.setTitle("Les Misérables");
+        resource.setAuthor("Victor Hugo");
+        resource.setPublisher("Éditions Lacroix");
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(2);
+        resource.setAvailableCopies(2);
+        Resource saved = resourceService.save(resource);
+
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery("miserables lacroix");
+        Page<ResourceCard> results = resourceSearchService.search(request);
+        assertTrue(results.getContent().stream().anyMatch(r -> r.id().equals(saved.getId())));
+
+        resourceService.delete(saved.getId());
+        assertTrue(resourceSearchService.search(request).isEmpty());
+    }
+
+    @Test
+    void testFuzzySearchToleratesTypos() {
+        Resource resource = new Book();
+        resource.setTitle("Madame Bovary");
+        resource.setAuthor("Gustave Flaubert");
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(1);
+        resource.setAvailableCopies(1);
+        Resource saved = resourceService.save(resource);
+
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery("bovray flaubet");
+        assertTrue(resourceSearchService.search(request).isEmpty());
+
+        request.setFuzzy(true);
+        assertTrue(resourceSearchService.search(request).getContent().stream()
+                .anyMatch(r -> r.id().equals(saved.getId())));
+
+        resourceService.delete(saved.getId());
+    }
+
+    @Test
+    void testBroadFuzzyMatchesKeepTheExactSpellingsFirst() {
+        // The near miss gets the lower id, so only relevance can put the exact one first
+        Resource nearMiss = new Book();
+        nearMiss.setTitle("Pertinecnemot");
+        nearMiss.setCategory(Category.BOOK);
+        nearMiss.setTotalCopies(1);
+        nearMiss.setAvailableCopies(1);
+        Resource near = resourceService.save(nearMiss);
+        Resource exactly = new Book();
+        exactly.setTitle("Pertinencemot");
+        exactly.setCategory(Category.BOOK);
+        exactly.setTotalCopies(1);
+        exactly.setAvailableCopies(1);
+        Resource exact = resourceService.save(exactly);
+
+        assertArrayEquals(new long[]{near.getId(), exact.getId()}, catalogIndexService.fuzzyCandidates("pertinencemot"));
+        ReflectionTestUtils.setField(catalogIndexService, "maxFuzzyCandidates", 1);
+        try {
+            assertArrayEquals(new long[]{exact.getId()}, catalogIndexService.fuzzyCandidates("pertinencemot"));
+        } finally {
+            ReflectionTestUtils.setField(catalogIndexService, "maxFuzzyCandidates", 2000);
+        }
+    }
+
+    @Test
+    void testFacetCountsIgnoreTheirOwnFilter() {
+        Resource french = new Book();
+        french.setTitle("Germinal facette");
+        french.setLanguage("fr");
+        french.setCategory(Category.BOOK);
+        french.setTotalCopies(1);
+        french.setAvailableCopies(1);
+        resourceService.save(french);
+
+        Resource english = new Book();
+        english.setTitle("Ulysses facette");
+        english.setLanguage("en");
+        english.setCategory(Category.BOOK);
+        english.setTotalCopies(1);
+        english.setAvailableCopies(0);
+        resourceService.save(english);
+
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery("facette");
+        request.setLanguage("fr");
+        Map<String, List<FacetCount>> counts = resourceSearchService.facets(request);
+
+        assertEquals(2, counts.get(CatalogIndexService.LANGUAGE).stream().mapToInt(FacetCount::count).sum());
+        assertEquals(List.of(new FacetCount("BOOK", "BOOK", 1)), counts.get(CatalogIndexService.CATEGORY));
+        assertEquals(List.of(new FacetCount("true", "true", 1)), counts.get(CatalogIndexService.AVAILABLE));
+    }
+
+    @Test
+    void testAuthorFilterCountsWhatItReturns() {
+        Resource about = new Book();
+        about.setTitle("Vie de Victor Hugo auteurfacette");
+        about.setAuthor("Jean Lemaire");
+        about.setCategory(Category.BOOK);
+        about.setTotalCopies(1);
+        about.setAvailableCopies(1);
+        resourceService.save(about);
+
+        Resource by = new Book();
+        by.setTitle("Les Contemplations auteurfacette");
+        by.setAuthor("Victor Hugo");
+        by.setCategory(Category.BOOK);
+        by.setTotalCopies(1);
+        by.setAvailableCopies(1);
+        resourceService.save(by);
+
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery("auteurfacette");
+        request.setAuthor("hug");
+        assertEquals(List.of("Les Contemplations auteurfacette"),
+                resourceSearchService.search(request).getContent().stream().map(ResourceCard::title).toList());
+        assertEquals(List.of(new FacetCount("BOOK", "BOOK", 1)), resourceSearchService.facets(request).get(CatalogIndexService.CATEGORY));
+    }
+
+    @Test
+    void testDecadesKeepTheMostFrequentInTimeOrder() {
+        for (int year = 1900; year <= 2000; year += 10) {
+            for (int copies = year == 2000 ? 3 : 1; copies > 0; copies--) {
+                Resource resource = new Book();
+                resource.setTitle("Decenniefacette " + year);
+                resource.setPublicationYear(year);
+                resource.setCategory(Category.BOOK);
+                resource.setTotalCopies(1);
+                resource.setAvailableCopies(1);
+                resourceService.save(resource);
+            }
+        }
+
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery("decenniefacette");
+        List<String> decades = resourceSearchService.facets(request).get(CatalogIndexService.DECADE).stream()
+                .map(FacetCount::value).toList();
+        assertEquals(10, decades.size());
+        assertEquals("2000", decades.get(decades.size() - 1));
+        assertEquals(decades.stream().sorted().toList(), decades);
+    }
+
+    @Test
+    void testRefreshPicksUpStockChangedByAnotherNode() {
+        Resource resource = new Book();
+        resource.setTitle("Stockdistant facette");
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(1);
+        resource.setAvailableCopies(1);
+        Resource saved = resourceService.save(resource);
+
+        // As another node would: the UPDATE only, no event on this one
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                resourceRepository.decrementAvailableCopies(saved.getId()));
+        catalogIndexService.refresh();
+
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery("stockdistant");
+        assertEquals(List.of(new FacetCount("false", "false", 1)), resourceSearchService.facets(request).get(CatalogIndexService.AVAILABLE));
+    }
+
+    @Test
+    void testSuggestsSeriesAndAuthorsAsTheyAreTyped() {
+        Book book = new Book();
+        book.setTitle("La Communauté de l'anneau");
+        book.setAuthor("Tolkien Suggestion");
+        book.setSeries("Le Seigneur des anneaux");
+        book.setCategory(Category.BOOK);
+        book.setTotalCopies(1);
+        book.setAvailableCopies(1);
+        Resource saved = resourceService.save(book);
+
+        assertTrue(resourceSearchService.suggest("seigneur des ann", 5).stream()
+                .anyMatch(s -> s.text().equals("Le Seigneur des anneaux") && s.kind().equals("series")));
+        assertTrue(resourceSearchService.suggest("tolkien sugg", 5).stream()
+                .anyMatch(s -> s.kind().equals("author")));
+
+        resourceService.delete(saved.getId());
+        assertTrue(resourceSearchService.suggest("tolkien sugg", 5).isEmpty());
+    }
+}
@@ -0,0 +1,88 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Loan;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.User;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.model.enums.LoanStatus;
+import com.bibliotheque.model.enums.Role;
+import com.bibliotheque.repository.FeeLedgerRepository;
+import com.bibliotheque.repository.LoanRepository;
+import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class FeeAccrualServiceTest {
+
+    @Autowired
+    private FeeAccrualService feeAccrualService;
+
+    @Autowired
+    private FeeLedgerRepository feeLedgerRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void testAccrue_PostsOnlyChangedFees() {
+        String suffix = String.valueOf(System.nanoTime());
+        User user = new User();
+        user.setUsername("late" + suffix);
+        user.setEmail("late" + suffix + "@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        user = userRepository.save(user);
+
+        Resource resource = new Book();
+        resource.setTitle("Late Book");
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(1);
+        resource.setAvailableCopies(0);
+        resource = resourceRepository.save(resource);
+
+        Loan loan = new Loan();
+        loan.setUser(user);
+        loan.setResource(resource);
+        loan.setStatus(LoanStatus.OVERDUE);
+        loan.setLoanDate(LocalDateTime.now().minusDays(20));
+        loan.setDueDate(LocalDateTime.now().minusDays(5).minusHours(1));
+        loan = loanRepository.save(loan);
+
+        LocalDate today = LocalDate.now();
+
+        feeAccrualService.accrue(today);
+        assertEquals(5.0, feeAccrualService.balanceOf(user.getId()));
+        assertEquals(5.0, loanRepository.findById(loan.getId()).orElseThrow().getLateFee());
+
+        // Nothing moved since: a second run the same day posts nothing for this loan
+        feeAccrualService.accrue(today);
+        assertEquals(1, feeLedgerRepository.findByLoanIdOrderById(loan.getId()).size());
+
+        // Final fee at return is posted as a correction
+        Loan returned = loanRepository.findById(loan.getId()).orElseThrow();
+        returned.setStatus(LoanStatus.RETURNED);
+        returned.setLateFee(6.0);
+        returned.setFeeDirty(true);
+        loanRepository.save(returned);
+
+        feeAccrualService.accrue(today);
+        assertEquals(6.0, feeAccrualService.balanceOf(user.getId()));
+        assertEquals(2, feeLedgerRepository.findByLoanIdOrderById(loan.getId()).size());
+        assertTrue(feeAccrualService.totalFees() >= 6.0);
+    }
+}
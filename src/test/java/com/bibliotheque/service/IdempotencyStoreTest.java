@@ -0,0 +1,94 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two stores sharing the database stand for two nodes behind a load balancer.
+ */
+@SpringBootTest
+public class IdempotencyStoreTest {
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private JobLeaseService jobLeaseService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testRetryOnAnotherNodeIsAnsweredFromTheStore() {
+        IdempotencyStore nodeA = new IdempotencyStore(idempotencyKeyRepository, jobLeaseService, transactionManager);
+        IdempotencyStore nodeB = new IdempotencyStore(idempotencyKeyRepository, jobLeaseService, transactionManager);
+        String key = "user|return/1|" + System.nanoTime();
+        AtomicInteger applied = new AtomicInteger();
+
+        assertEquals("returned 1", nodeA.execute(key, () -> "returned " + applied.incrementAndGet()));
+        assertEquals("returned 1", nodeA.execute(key, () -> "returned " + applied.incrementAndGet()));
+        assertEquals("returned 1", nodeB.execute(key, () -> "returned " + applied.incrementAndGet()));
+        assertEquals(1, applied.get());
+    }
+
+    @Test
+    void testFailedAttemptCanBeRetriedAnywhere() {
+        IdempotencyStore nodeA = new IdempotencyStore(idempotencyKeyRepository, jobLeaseService, transactionManager);
+        IdempotencyStore nodeB = new IdempotencyStore(idempotencyKeyRepository, jobLeaseService, transactionManager);
+        String key = "user|renew/1|" + System.nanoTime();
+
+        assertThrows(IllegalStateException.class, () -> nodeA.execute(key, () -> {
+            throw new IllegalStateException("Maximum renewal limit (2) reached");
+        }));
+        assertEquals("done", nodeB.execute(key, () -> "done"));
+    }
+
+    @Test
+    void testActionRunsInTheTransactionThatStoresTheKey() {
+        IdempotencyStore store = new IdempotencyStore(idempotencyKeyRepository, jobLeaseService, transactionManager);
+        String key = "user|return/2|" + System.nanoTime();
+
+        assertEquals("true", store.execute(key,
+                () -> String.valueOf(TransactionSynchronizationManager.isActualTransactionActive())));
+    }
+
+    @Test
+    void testRetryWhileTheFirstAttemptRunsGetsItsResult() throws Exception {
+        IdempotencyStore nodeA = new IdempotencyStore(idempotencyKeyRepository, jobLeaseService, transactionManager);
+        IdempotencyStore nodeB = new IdempotencyStore(idempotencyKeyRepository, jobLeaseService, transactionManager);
+        String key = "user|reserve/3|" + System.nanoTime();
+        AtomicInteger applied = new AtomicInteger();
+        CountDownLatch claimed = new CountDownLatch(1);
+
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> nodeA.execute(key, () -> {
+            claimed.countDown();
+            sleep(300);
+            return "reserved " + applied.incrementAndGet();
+        }));
+        assertTrue(claimed.await(10, TimeUnit.SECONDS));
+
+        // Waits on the first attempt's key, then replays what it committed
+        assertEquals("reserved 1", nodeB.execute(key, () -> "reserved " + applied.incrementAndGet()));
+        assertEquals("reserved 1", first.get(10, TimeUnit.SECONDS));
+        assertEquals(1, applied.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.BibliothequeApplication;
+import com.bibliotheque.ids.IdGenerator;
+import com.bibliotheque.ids.SnowflakeIdGenerator;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two application contexts (node-a, node-b) sharing the same in-memory H2 database.
+ */
+@SpringBootTest(properties = "app.node-id=node-a")
+public class JobLeaseServiceTest {
+
+    private static ConfigurableApplicationContext nodeB;
+
+    @Autowired
+    private JobLeaseService nodeA;
+
+    // Started after node-a's context, which creates the schema node-b shares
+    private static JobLeaseService nodeB() {
+        if (nodeB == null) {
+            nodeB = new SpringApplicationBuilder(BibliothequeApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run("--app.node-id=node-b", "--spring.jpa.hibernate.ddl-auto=none");
+        }
+        return nodeB.getBean(JobLeaseService.class);
+    }
+
+    @AfterAll
+    static void stopSecondNode() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+    }
+
+    @Test
+    void testOnlyOneNodeRunsAJob() {
+        JobLeaseService other = nodeB();
+        String job = "exclusive-" + System.nanoTime();
+
+        assertTrue(nodeA.tryAcquire(job));
+        assertFalse(other.tryAcquire(job));
+        assertFalse(other.runExclusively(job, () -> fail("node-b must not run a job held by node-a")));
+        assertTrue(nodeA.renew(job));
+    }
+
+    @Test
+    void testSurvivorTakesOverExpiredLease() throws Exception {
+        JobLeaseService other = nodeB();
+        String job = "takeover-" + System.nanoTime();
+
+        assertTrue(nodeA.tryAcquire(job, Duration.ofMillis(300)));
+        assertFalse(other.tryAcquire(job));
+
+        // node-a "dies": no heartbeat, the lease runs out
+        Thread.sleep(600);
+
+        assertTrue(other.tryAcquire(job));
+        assertFalse(nodeA.renew(job));
+        assertFalse(nodeA.isHeld(job));
+    }
+
+    @Test
+    void testIdsStopOnceTheNodeNumberLeaseIsTakenOver() throws Exception {
+        JobLeaseService other = nodeB();
+        String lease = "id-node-test-" + System.nanoTime();
+        assertTrue(nodeA.tryAcquire(lease, Duration.ofMillis(300)));
+        IdGenerator ids = new LeasedIdGenerator(new SnowflakeIdGenerator(7), nodeA, lease);
+        assertTrue(ids.nextId() > 0);
+
+        // Missed heartbeats: node-b claims the number once the lease runs out
+        Thread.sleep(600);
+        assertTrue(other.tryAcquire(lease));
+
+        assertThrows(IllegalStateException.class, ids::nextId);
+    }
+}
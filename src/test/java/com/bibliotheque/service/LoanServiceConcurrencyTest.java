@@ -0,0 +1,112 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.User;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.model.enums.Role;
+import com.bibliotheque.repository.LoanRepository;
+import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class LoanServiceConcurrencyTest {
+
+    private static final int COPIES = 25;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Test
+    void testConcurrentReserve_NeverOversells() throws Exception {
+        reserveConcurrently(100, 16);
+    }
+
+    /**
+     * Launch-day rush: every reserver gets its own thread. Excluded from the default
+     * build, run with {@code mvn test -Pbenchmark}.
+     */
+    @Tag("benchmark")
+    @Test
+    void testLaunchDayRush_NeverOversells() throws Exception {
+        reserveConcurrently(600, 600);
+    }
+
+    private void reserveConcurrently(int reservers, int threads) throws Exception {
+        String suffix = String.valueOf(System.nanoTime());
+        User user = new User();
+        user.setUsername("rush" + suffix);
+        user.setEmail("rush" + suffix + "@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        User savedUser = userRepository.save(user);
+
+        Resource resource = new Book();
+        resource.setTitle("Launch Day Title");
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(COPIES);
+        resource.setAvailableCopies(COPIES);
+        Long resourceId = resourceRepository.save(resource).getId();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        for (int i = 0; i < reservers; i++) {
+            pool.submit(() -> {
+                start.await();
+                try {
+                    loanService.reserve(savedUser, resourceId);
+                    granted.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    if (e.getMessage() != null && e.getMessage().startsWith("No copies available")) {
+                        refused.incrementAndGet();
+                    } else {
+                        failures.add(e);
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+                return null;
+            });
+        }
+
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(2, TimeUnit.MINUTES));
+
+        int available = resourceRepository.findById(resourceId).orElseThrow().getAvailableCopies();
+        long loans = loanRepository.findByUser(savedUser).size();
+
+        assertTrue(failures.isEmpty(), () -> "Unexpected failures: " + failures);
+        assertEquals(COPIES, granted.get());
+        assertEquals(reservers - COPIES, refused.get());
+        assertEquals(0, available);
+        assertEquals(COPIES, loans);
+    }
+}
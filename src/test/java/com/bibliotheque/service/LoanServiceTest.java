@@ -1,5 +1,6 @@
 package com.bibliotheque.service;
 
+import com.bibliotheque.dto.BatchLoanResult;
 import com.bibliotheque.model.Book;
 import com.bibliotheque.model.Library;
 import com.bibliotheque.model.Loan;
@@ -13,8 +14,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,7 +38,13 @@ public class LoanServiceTest {
     private ReservationService reservationService;
 
     @Mock
-    private EmailService emailService;
+    private NotificationOutbox notificationOutbox;
+
+    @Mock
+    private CopyInventoryService copyInventoryService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private LoanService loanService;
@@ -49,6 +59,7 @@ public class LoanServiceTest {
         resource.setLibrary(library);
 
         when(resourceRepository.findById(1L)).thenReturn(Optional.of(resource));
+        when(copyInventoryService.tryCheckout(1L)).thenReturn(true);
         when(loanRepository.save(any(Loan.class))).thenAnswer(invocation -> {
             Loan l = invocation.getArgument(0);
             l.setId(100L);
@@ -59,8 +70,37 @@ public class LoanServiceTest {
 
         assertNotNull(result);
         assertEquals(LoanStatus.RESERVED, result.getStatus());
-        assertEquals(4, resource.getAvailableCopies());
-        verify(resourceRepository).save(resource);
+        verify(copyInventoryService).tryCheckout(1L);
+        verify(resourceRepository, never()).save(any(Resource.class));
+    }
+
+    @Test
+    void testReserve_LostRace() {
+        User user = new User();
+        Resource resource = new Book();
+        resource.setId(1L);
+        resource.setAvailableCopies(1);
+
+        when(resourceRepository.findById(1L)).thenReturn(Optional.of(resource));
+        when(copyInventoryService.tryCheckout(1L)).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> loanService.reserve(user, 1L));
+        verify(loanRepository, never()).save(any(Loan.class));
+    }
+
+    @Test
+    void testReserve_LeavesShelfCopyToTheQueue() {
+        User user = new User();
+        Resource resource = new Book();
+        resource.setId(1L);
+        resource.setAvailableCopies(1);
+
+        when(resourceRepository.findById(1L)).thenReturn(Optional.of(resource));
+        when(reservationService.hasWaiting(resource)).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> loanService.reserve(user, 1L));
+        verify(loanRepository, never()).save(any(Loan.class));
+        verify(copyInventoryService, never()).tryCheckout(any());
     }
 
     @Test
@@ -74,6 +114,7 @@ public class LoanServiceTest {
 
         assertThrows(IllegalStateException.class, () -> loanService.reserve(user, 1L));
         verify(loanRepository, never()).save(any(Loan.class));
+        verify(copyInventoryService, never()).tryCheckout(any());
     }
 
     @Test
@@ -82,6 +123,7 @@ public class LoanServiceTest {
         user.setEmail("test@test.com");
         
         Resource resource = new Book();
+        resource.setId(2L);
         resource.setTitle("Test Book");
         resource.setAvailableCopies(0);
 
@@ -100,10 +142,10 @@ public class LoanServiceTest {
         assertEquals(LoanStatus.CLOSED, result.getStatus());
         assertNotNull(result.getActualReturnDate());
         assertEquals(0.0, result.getLateFee());
-        assertEquals(1, resource.getAvailableCopies());
+        verify(copyInventoryService).checkin(2L);
         
         verify(reservationService).processReturn(resource);
-        verify(emailService).sendReturnConfirmation(eq("test@test.com"), any(), eq("Test Book"));
+        verify(notificationOutbox).sendReturnConfirmation(eq("test@test.com"), any(), eq("Test Book"));
     }
 
     @Test
@@ -112,6 +154,7 @@ public class LoanServiceTest {
         user.setEmail("test@test.com");
 
         Resource resource = new Book();
+        resource.setId(2L);
         resource.setTitle("Test Book");
         resource.setAvailableCopies(0);
 
@@ -129,8 +172,92 @@ public class LoanServiceTest {
 
         assertEquals(LoanStatus.RETURNED, result.getStatus()); // Should be RETURNED pending payment
         assertTrue(result.getLateFee() > 0);
-        assertEquals(1, resource.getAvailableCopies());
+        verify(copyInventoryService).checkin(2L);
         
-        verify(emailService).sendReturnConfirmation(eq("test@test.com"), any(), eq("Test Book"));
+        verify(notificationOutbox).sendReturnConfirmation(eq("test@test.com"), any(), eq("Test Book"));
+    }
+
+    @Test
+    void testReturnLoan_AlreadyClosed() {
+        Resource resource = new Book();
+        resource.setId(2L);
+
+        Loan loan = new Loan();
+        loan.setId(1L);
+        loan.setResource(resource);
+        loan.setStatus(LoanStatus.CLOSED);
+
+        when(loanRepository.findById(1L)).thenReturn(Optional.of(loan));
+
+        assertThrows(IllegalStateException.class, () -> loanService.returnLoan(1L));
+        assertNull(loan.getActualReturnDate());
+        verify(copyInventoryService, never()).checkin(any());
+        verify(loanRepository, never()).save(any(Loan.class));
+    }
+
+    @Test
+    void testReturnAll_ChecksInOnceForTheBatch() {
+        User user = new User();
+        user.setEmail("desk@test.com");
+
+        Resource resource = new Book();
+        resource.setId(2L);
+        resource.setTitle("Test Book");
+
+        Loan first = new Loan();
+        first.setId(1L);
+        first.setUser(user);
+        first.setResource(resource);
+        first.setStatus(LoanStatus.IN_PROGRESS);
+        first.setDueDate(LocalDateTime.now().plusDays(1));
+
+        Loan second = new Loan();
+        second.setId(2L);
+        second.setUser(user);
+        second.setResource(resource);
+        second.setStatus(LoanStatus.IN_PROGRESS);
+        second.setDueDate(LocalDateTime.now().plusDays(1));
+
+        Loan closed = new Loan();
+        closed.setId(3L);
+        closed.setUser(user);
+        closed.setResource(resource);
+        closed.setStatus(LoanStatus.CLOSED);
+
+        when(loanRepository.findWithUserAndResourceByIdIn(any())).thenReturn(List.of(first, second, closed));
+
+        List<BatchLoanResult.Item> items = loanService.returnAll(List.of(1L, 2L, 3L));
+
+        assertTrue(items.get(0).isSuccess());
+        assertTrue(items.get(1).isSuccess());
+        assertFalse(items.get(2).isSuccess());
+        verify(copyInventoryService).checkinAll(Map.of(2L, 2));
+        verify(copyInventoryService, never()).checkin(any());
+        verify(notificationOutbox, times(2)).sendReturnConfirmation(eq("desk@test.com"), any(), eq("Test Book"));
+    }
+
+    @Test
+    void testApproveAll_ReportsPerItem() {
+        Loan reserved = new Loan();
+        reserved.setId(1L);
+        reserved.setStatus(LoanStatus.RESERVED);
+
+        Loan active = new Loan();
+        active.setId(2L);
+        active.setStatus(LoanStatus.IN_PROGRESS);
+
+        when(loanRepository.findWithUserAndResourceByIdIn(any())).thenReturn(List.of(reserved, active));
+
+        List<BatchLoanResult.Item> items = loanService.approveAll(List.of(1L, 2L, 3L, 1L));
+
+        assertEquals(4, items.size());
+        assertTrue(items.get(0).isSuccess());
+        assertEquals(LoanStatus.IN_PROGRESS, items.get(0).getStatus());
+        assertNotNull(reserved.getDueDate());
+        assertFalse(items.get(1).isSuccess());
+        assertEquals("Loan not found", items.get(2).getError());
+        assertEquals("Duplicate loan id", items.get(3).getError());
+        verify(loanRepository, times(1)).findWithUserAndResourceByIdIn(any());
+        verify(loanRepository, never()).findById(any());
     }
 }
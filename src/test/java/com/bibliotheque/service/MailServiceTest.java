@@ -29,28 +29,30 @@ public class MailServiceTest {
     private EmailService emailService;
 
     @Test
-    void testSendReservationAvailable() {
+    void testDeliver() throws Exception {
         ReflectionTestUtils.setField(emailService, "fromEmail", "noreply@biblio.com");
         MimeMessage mimeMessage = mock(MimeMessage.class);
         when(emailSender.createMimeMessage()).thenReturn(mimeMessage);
         when(templateEngine.process(anyString(), any(Context.class))).thenReturn("<html>Body</html>");
 
-        emailService.sendReservationAvailable("test@test.com", "User", "Book Title", "2023-12-31");
+        emailService.deliver("test@test.com", MailTemplate.LOAN_RETURN.getSubject(), MailTemplate.LOAN_RETURN.getTemplateName(),
+                MailTemplate.variables("userName", null, "resourceTitle", "Book Title"));
 
         verify(emailSender).send(mimeMessage);
-        verify(templateEngine).process(eq("emails/reservation-available"), any(Context.class));
+        verify(templateEngine).process(eq("emails/loan-return"), any(Context.class));
     }
 
     @Test
-    void testSendReturnConfirmation() {
+    void testSendAccountCreationEmail() {
         ReflectionTestUtils.setField(emailService, "fromEmail", "noreply@biblio.com");
+        ReflectionTestUtils.setField(emailService, "baseUrl", "http://localhost:8080");
         MimeMessage mimeMessage = mock(MimeMessage.class);
         when(emailSender.createMimeMessage()).thenReturn(mimeMessage);
         when(templateEngine.process(anyString(), any(Context.class))).thenReturn("<html>Body</html>");
 
-        emailService.sendReturnConfirmation("test@test.com", "User", "Book Title");
+        emailService.sendAccountCreationEmail("test@test.com", "User", "user", "secret", "token");
 
         verify(emailSender).send(mimeMessage);
-        verify(templateEngine).process(eq("emails/loan-return"), any(Context.class));
+        verify(templateEngine).process(eq("emails/account-creation"), any(Context.class));
     }
 }
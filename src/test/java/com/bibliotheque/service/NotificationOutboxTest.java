@@ -0,0 +1,77 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Loan;
+import com.bibliotheque.model.OutboxMessage;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.User;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.model.enums.LoanStatus;
+import com.bibliotheque.model.enums.Role;
+import com.bibliotheque.repository.LoanRepository;
+import com.bibliotheque.repository.OutboxMessageRepository;
+import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class NotificationOutboxTest {
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Test
+    void testReturnForUserWithoutNameQueuesTheMail() {
+        String suffix = String.valueOf(System.nanoTime());
+        User user = new User();
+        user.setUsername("noname" + suffix);
+        user.setEmail("noname" + suffix + "@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        user = userRepository.save(user);
+
+        Resource resource = new Book();
+        resource.setTitle("Sans Nom");
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(1);
+        resource.setAvailableCopies(0);
+        resource = resourceRepository.save(resource);
+
+        Loan loan = new Loan();
+        loan.setUser(user);
+        loan.setResource(resource);
+        loan.setStatus(LoanStatus.IN_PROGRESS);
+        loan.setLoanDate(LocalDateTime.now().minusDays(1));
+        loan.setDueDate(LocalDateTime.now().plusDays(1));
+        loan = loanRepository.save(loan);
+
+        assertEquals(LoanStatus.CLOSED, loanService.returnLoan(loan.getId()).getStatus());
+
+        String email = user.getEmail();
+        List<OutboxMessage> mails = outboxMessageRepository.findAll().stream()
+                .filter(message -> email.equals(message.getRecipient()))
+                .toList();
+        assertEquals(1, mails.size());
+        assertEquals(MailTemplate.LOAN_RETURN.getTemplateName(), mails.get(0).getTemplateName());
+        assertTrue(mails.get(0).getPayload().contains("\"userName\":null"));
+    }
+}
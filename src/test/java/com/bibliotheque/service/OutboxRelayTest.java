@@ -0,0 +1,98 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.OutboxMessage;
+import com.bibliotheque.model.enums.OutboxStatus;
+import com.bibliotheque.repository.OutboxMessageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OutboxRelayTest {
+
+    @Mock
+    private OutboxMessageRepository outboxMessageRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private JobLeaseService jobLeaseService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(outboxRelay, "batchSize", 50);
+        ReflectionTestUtils.setField(outboxRelay, "maxAttempts", 3);
+        ReflectionTestUtils.setField(outboxRelay, "retryBaseSeconds", 30L);
+    }
+
+    @Test
+    void testDrain_MarksSent() throws Exception {
+        OutboxMessage message = message(0);
+        when(outboxMessageRepository.findReady(eq(OutboxStatus.PENDING), any(), any())).thenReturn(List.of(message));
+
+        assertEquals(1, outboxRelay.drain());
+
+        assertEquals(OutboxStatus.SENT, message.getStatus());
+        assertNotNull(message.getSentAt());
+        verify(emailService).deliver(eq("test@test.com"), eq("Confirmation de retour"), eq("emails/loan-return"), anyMap());
+        verify(outboxMessageRepository).saveAll(List.of(message));
+    }
+
+    @Test
+    void testDrain_RetriesThenDeadLetters() throws Exception {
+        OutboxMessage first = message(0);
+        OutboxMessage last = message(2);
+        when(outboxMessageRepository.findReady(eq(OutboxStatus.PENDING), any(), any())).thenReturn(List.of(first, last));
+        doThrow(new MessagingException("SMTP down")).when(emailService).deliver(anyString(), anyString(), anyString(), anyMap());
+
+        assertEquals(0, outboxRelay.drain());
+
+        assertEquals(OutboxStatus.PENDING, first.getStatus());
+        assertEquals(1, first.getAttempts());
+        assertTrue(first.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(20)));
+        assertTrue(first.getLastError().contains("SMTP down"));
+
+        assertEquals(OutboxStatus.DEAD, last.getStatus());
+        assertEquals(3, last.getAttempts());
+    }
+
+    private static OutboxMessage message(int attempts) {
+        OutboxMessage message = new OutboxMessage();
+        message.setId((long) attempts + 1);
+        message.setRecipient("test@test.com");
+        message.setSubject(MailTemplate.LOAN_RETURN.getSubject());
+        message.setTemplateName(MailTemplate.LOAN_RETURN.getTemplateName());
+        message.setPayload("{\"userName\":\"User\",\"resourceTitle\":\"Book Title\"}");
+        message.setAttempts(attempts);
+        message.setNextAttemptAt(LocalDateTime.now());
+        message.setCreatedAt(LocalDateTime.now());
+        return message;
+    }
+}
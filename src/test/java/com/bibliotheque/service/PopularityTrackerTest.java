@@ -0,0 +1,122 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.dto.ResourceCard;
+import com.bibliotheque.dto.ResourceSearchRequest;
+import com.bibliotheque.dto.ResourceSlice;
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.search.Suggestion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class PopularityTrackerTest {
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private ResourceSearchService resourceSearchService;
+
+    @Autowired
+    private PopularityTracker popularityTracker;
+
+    private Resource book(String title) {
+        Resource resource = new Book();
+        resource.setTitle(title);
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(1);
+        resource.setAvailableCopies(1);
+        return resourceService.save(resource);
+    }
+
+    @Test
+    void testFlushedDemandDrivesSortAndSuggestions() {
+        Resource quiet = book("Engouement calme");
+        Resource busy = book("Engouement vif");
+        Resource unasked = book("Engouement oublie");
+        for (int i = 0; i < 3; i++) {
+            popularityTracker.record(busy.getId());
+        }
+        popularityTracker.record(quiet.getId());
+        popularityTracker.flush();
+
+        double busyScore = resourceRepository.findById(busy.getId()).orElseThrow().getPopularity();
+        double quietScore = resourceRepository.findById(quiet.getId()).orElseThrow().getPopularity();
+        assertEquals(3 * quietScore, busyScore, busyScore * 1e-9);
+        assertEquals(0.0, resourceRepository.findById(unasked.getId()).orElseThrow().getPopularity());
+
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery("engouement");
+        request.setSort("popularity");
+        request.setDirection("desc");
+        request.setSize(10);
+        assertEquals(List.of("Engouement vif", "Engouement calme", "Engouement oublie"),
+                resourceSearchService.search(request).getContent().stream().map(ResourceCard::title).toList());
+
+        // Keyset cursors carry the decimal score
+        request.setSize(1);
+        ResourceSlice<ResourceCard> first = resourceSearchService.browse(request);
+        request.setAfter(first.next());
+        assertEquals("Engouement calme", resourceSearchService.browse(request).content().get(0).title());
+
+        List<Suggestion> suggestions = resourceSearchService.suggest("engouement v", 5);
+        assertEquals("Engouement vif", suggestions.get(0).text());
+        assertTrue(suggestions.get(0).weight() > 0);
+    }
+
+    @Test
+    void testWeightHalvesEveryHalfLife() {
+        Instant now = Instant.parse("2026-03-01T00:00:00Z");
+        long today = popularityTracker.weightOf(1e6, now);
+        long later = popularityTracker.weightOf(1e6, now.plus(Duration.ofDays(30)));
+        assertEquals(today / 2.0, later, 1);
+        assertEquals(0, popularityTracker.weightOf(null, now));
+    }
+
+    @Test
+    void testPendingCountsAreWrittenOnShutdown() {
+        Resource resource = book("Engouement tardif");
+        popularityTracker.record(resource.getId());
+
+        popularityTracker.flushOnShutdown();
+
+        assertTrue(resourceRepository.findById(resource.getId()).orElseThrow().getPopularity() > 0);
+    }
+
+    @Test
+    void testRebaseRescalesStoredScoresAndKeepsWeights() {
+        Resource resource = book("Engouement durable");
+        popularityTracker.record(resource.getId());
+        Instant now = Instant.now();
+        popularityTracker.flush(now);
+        double before = resourceRepository.findById(resource.getId()).orElseThrow().getPopularity();
+        long weight = popularityTracker.weightOf(before, now);
+
+        popularityTracker.rebase(now.plus(Duration.ofDays(30L * PopularityTracker.REBASE_AFTER_HALF_LIVES + 1)));
+
+        double after = resourceRepository.findById(resource.getId()).orElseThrow().getPopularity();
+        assertTrue(after < before * Math.pow(2, -PopularityTracker.REBASE_AFTER_HALF_LIVES + 1));
+        assertEquals(weight, popularityTracker.weightOf(after, now), 1);
+    }
+
+    @Test
+    void testHalfLifeShorterThanADayIsRejected() {
+        PopularityTracker tracker = new PopularityTracker(null, null, null, null, null, null);
+        ReflectionTestUtils.setField(tracker, "halfLifeDays", 0.01);
+        assertThrows(IllegalArgumentException.class, tracker::validate);
+    }
+}
@@ -0,0 +1,156 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Reservation;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.User;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.model.enums.ReservationStatus;
+import com.bibliotheque.model.enums.Role;
+import com.bibliotheque.repository.ReservationRepository;
+import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ReservationExpirySweeperTest {
+
+    @Autowired
+    private ReservationExpirySweeper reservationExpirySweeper;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void testSweep_ExpiresAndPromotesNextInQueue() {
+        String suffix = String.valueOf(System.nanoTime());
+        User late = user("late" + suffix);
+        User next = user("next" + suffix);
+
+        Resource queued = resource("Queued Book");
+        Resource unwanted = resource("Unwanted Book");
+        LocalDateTime lapsed = LocalDateTime.now().minusHours(1);
+
+        Reservation expiring = reservationRepository.save(reservation(late, queued, ReservationStatus.APPROVED, lapsed, "E" + suffix));
+        Reservation waiting = reservationRepository.save(reservation(next, queued, ReservationStatus.PENDING, null, "W" + suffix));
+        Reservation alone = reservationRepository.save(reservation(late, unwanted, ReservationStatus.APPROVED, lapsed, "A" + suffix));
+
+        assertTrue(reservationExpirySweeper.sweep(LocalDateTime.now()) >= 2);
+
+        assertEquals(ReservationStatus.EXPIRED, reservationRepository.findById(expiring.getId()).orElseThrow().getStatus());
+        assertEquals(ReservationStatus.EXPIRED, reservationRepository.findById(alone.getId()).orElseThrow().getStatus());
+
+        // The freed copy goes straight to the next patron instead of back to the shelf
+        Reservation promoted = reservationRepository.findById(waiting.getId()).orElseThrow();
+        assertEquals(ReservationStatus.APPROVED, promoted.getStatus());
+        assertTrue(promoted.getExpiryDate().isAfter(LocalDateTime.now().plusHours(47)));
+        assertEquals(0, resourceRepository.findById(queued.getId()).orElseThrow().getAvailableCopies());
+
+        // Nobody waiting: the copy is back on the shelf
+        assertEquals(1, resourceRepository.findById(unwanted.getId()).orElseThrow().getAvailableCopies());
+
+        // Already handled: a second pass finds nothing for these
+        assertEquals(0, reservationExpirySweeper.expire(List.of(expiring.getId(), alone.getId())));
+    }
+
+    @Test
+    void testPromoteWaiting_OffersCopiesLeftOnTheShelf() {
+        String suffix = String.valueOf(System.nanoTime());
+        Resource shelved = resource("Shelved Book");
+        shelved.setTotalCopies(2);
+        shelved.setAvailableCopies(2);
+        shelved = resourceRepository.save(shelved);
+
+        Reservation first = reservationRepository.save(reservation(user("first" + suffix), shelved, ReservationStatus.PENDING, null, "F" + suffix));
+        Reservation second = reservationRepository.save(reservation(user("second" + suffix), shelved, ReservationStatus.PENDING, null, "S" + suffix));
+        Reservation third = reservationRepository.save(reservation(user("third" + suffix), shelved, ReservationStatus.PENDING, null, "T" + suffix));
+
+        assertTrue(reservationExpirySweeper.promoteWaiting() >= 2);
+
+        assertEquals(ReservationStatus.APPROVED, reservationRepository.findById(first.getId()).orElseThrow().getStatus());
+        assertEquals(ReservationStatus.APPROVED, reservationRepository.findById(second.getId()).orElseThrow().getStatus());
+        assertEquals(ReservationStatus.PENDING, reservationRepository.findById(third.getId()).orElseThrow().getStatus());
+        assertEquals(0, resourceRepository.findById(shelved.getId()).orElseThrow().getAvailableCopies());
+    }
+
+    @Test
+    void testExpiryAndShelfPromotionRacingForOneQueue_PromoteEachHeadOnce() throws Exception {
+        String suffix = String.valueOf(System.nanoTime());
+        Resource raced = resource("Raced Book");
+        raced.setTotalCopies(2);
+        raced.setAvailableCopies(1);
+        raced = resourceRepository.save(raced);
+
+        Reservation expiring = reservationRepository.save(reservation(user("lapsed" + suffix), raced,
+                ReservationStatus.APPROVED, LocalDateTime.now().minusHours(1), "L" + suffix));
+        Reservation first = reservationRepository.save(reservation(user("head" + suffix), raced, ReservationStatus.PENDING, null, "H" + suffix));
+        Reservation second = reservationRepository.save(reservation(user("behind" + suffix), raced, ReservationStatus.PENDING, null, "B" + suffix));
+
+        // The copy freed by the expiry and the one on the shelf go to the same queue at once
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<Integer> expired = pool.submit(() -> {
+            start.await();
+            return reservationExpirySweeper.expire(List.of(expiring.getId()));
+        });
+        Future<Integer> promoted = pool.submit(() -> {
+            start.await();
+            return reservationExpirySweeper.promoteWaiting();
+        });
+        start.countDown();
+        assertEquals(1, expired.get(1, TimeUnit.MINUTES));
+        promoted.get(1, TimeUnit.MINUTES);
+        pool.shutdown();
+
+        assertEquals(ReservationStatus.APPROVED, reservationRepository.findById(first.getId()).orElseThrow().getStatus());
+        assertEquals(ReservationStatus.APPROVED, reservationRepository.findById(second.getId()).orElseThrow().getStatus());
+        assertEquals(0, resourceRepository.findById(raced.getId()).orElseThrow().getAvailableCopies());
+    }
+
+    private User user(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        return userRepository.save(user);
+    }
+
+    private Resource resource(String title) {
+        Resource resource = new Book();
+        resource.setTitle(title);
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(1);
+        resource.setAvailableCopies(0);
+        return resourceRepository.save(resource);
+    }
+
+    private static Reservation reservation(User user, Resource resource, ReservationStatus status, LocalDateTime expiry, String number) {
+        return Reservation.builder()
+                .user(user)
+                .resource(resource)
+                .reservationNumber(number)
+                .reservationDate(LocalDateTime.now().minusDays(3))
+                .expiryDate(expiry)
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Loan;
+import com.bibliotheque.model.Reservation;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.User;
+import com.bibliotheque.model.enums.Category;
+import com.bibliotheque.model.enums.LoanStatus;
+import com.bibliotheque.model.enums.ReservationStatus;
+import com.bibliotheque.model.enums.Role;
+import com.bibliotheque.repository.LoanRepository;
+import com.bibliotheque.repository.ReservationRepository;
+import com.bibliotheque.repository.ResourceRepository;
+import com.bibliotheque.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ReservationServiceConcurrencyTest {
+
+    private static final int PATRONS = 40;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private LoanRepository loanRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Test
+    void testReturnHandsTheCopyToTheQueueNotToAWalkIn() throws Exception {
+        String suffix = String.valueOf(System.nanoTime());
+        User borrower = patron("borrower-" + suffix);
+        User waiting = patron("waiting-" + suffix);
+        User walkIn = patron("walkin-" + suffix);
+
+        Resource resource = new Book();
+        resource.setTitle("Handed Over Title");
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(1);
+        resource.setAvailableCopies(0);
+        Resource saved = resourceRepository.save(resource);
+
+        Loan loan = new Loan();
+        loan.setUser(borrower);
+        loan.setResource(saved);
+        loan.setStatus(LoanStatus.IN_PROGRESS);
+        loan.setDueDate(LocalDateTime.now().plusDays(1));
+        loan = loanRepository.save(loan);
+        Reservation reservation = reservationService.createReservation(waiting, saved);
+
+        loanService.returnLoan(loan.getId());
+
+        // Whether or not the lane has promoted yet, the copy is not the walk-in's
+        assertThrows(IllegalStateException.class, () -> loanService.reserve(walkIn, saved.getId()));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (reservationRepository.findById(reservation.getId()).orElseThrow().getStatus() == ReservationStatus.PENDING
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(ReservationStatus.APPROVED, reservationRepository.findById(reservation.getId()).orElseThrow().getStatus());
+        assertEquals(0, resourceRepository.findById(saved.getId()).orElseThrow().getAvailableCopies());
+    }
+
+    @Test
+    void testQueueingNextToAShelfCopy_PromotesAtOnce() {
+        String suffix = String.valueOf(System.nanoTime());
+        Resource resource = new Book();
+        resource.setTitle("Back On The Shelf Title");
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(1);
+        resource.setAvailableCopies(1);
+        Resource saved = resourceRepository.save(resource);
+
+        // E.g. the copy came back on another node while this patron was being queued
+        Reservation reservation = reservationService.createReservation(patron("late-" + suffix), saved);
+
+        assertEquals(ReservationStatus.APPROVED, reservationRepository.findById(reservation.getId()).orElseThrow().getStatus());
+        assertEquals(0, resourceRepository.findById(saved.getId()).orElseThrow().getAvailableCopies());
+    }
+
+    private User patron(String username) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(username + "@test.com");
+        user.setPassword("password");
+        user.setRole(Role.ROLE_USER);
+        return userRepository.save(user);
+    }
+
+    @Test
+    void testConcurrentReservations_GetDistinctPositions() throws Exception {
+        String suffix = String.valueOf(System.nanoTime());
+        List<User> patrons = new ArrayList<>();
+        for (int i = 0; i < PATRONS; i++) {
+            User user = new User();
+            user.setUsername("queue" + i + "-" + suffix);
+            user.setEmail("queue" + i + "-" + suffix + "@test.com");
+            user.setPassword("password");
+            user.setRole(Role.ROLE_USER);
+            patrons.add(userRepository.save(user));
+        }
+
+        Resource resource = new Book();
+        resource.setTitle("Sold Out Title");
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(1);
+        resource.setAvailableCopies(0);
+        Resource saved = resourceRepository.save(resource);
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        Set<Integer> positions = ConcurrentHashMap.newKeySet();
+
+        for (User patron : patrons) {
+            pool.submit(() -> {
+                start.await();
+                positions.add(reservationService.createReservation(patron, saved).getPositionInQueue());
+                return null;
+            });
+        }
+
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+
+        // One writer per title: every patron saw the queue as the previous one left it
+        assertEquals(PATRONS, positions.size());
+        assertEquals(1, positions.stream().mapToInt(Integer::intValue).min().orElseThrow());
+        assertEquals(PATRONS, positions.stream().mapToInt(Integer::intValue).max().orElseThrow());
+    }
+}
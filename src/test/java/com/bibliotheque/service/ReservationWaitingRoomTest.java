@@ -0,0 +1,138 @@
+package com.bibliotheque.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReservationWaitingRoomTest {
+
+    private final ReservationLanes lanes = new ReservationLanes(4);
+    private final ReservationWaitingRoom waitingRoom = new ReservationWaitingRoom(lanes, 100, 5000, 10);
+
+    @AfterEach
+    void tearDown() {
+        waitingRoom.shutdown();
+        lanes.shutdown();
+    }
+
+    @Test
+    void testTicketsAreServedInArrivalOrder() {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Integer> served = new CopyOnWriteArrayList<>();
+
+        // Hold the worker on the first ticket while the others queue up behind it
+        ReservationWaitingRoom.Ticket first = waitingRoom.enter("alice", 1L, () -> {
+            started.countDown();
+            await(gate);
+            return "first";
+        });
+        await(started);
+        List<ReservationWaitingRoom.Ticket> rest = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int arrival = i;
+            rest.add(waitingRoom.enter("bob", 1L, () -> {
+                served.add(arrival);
+                return "ok";
+            }));
+        }
+
+        ReservationWaitingRoom.Status queued = waitingRoom.status(rest.get(19).getNumber(), "bob").orElseThrow();
+        assertEquals(ReservationWaitingRoom.State.WAITING, queued.state());
+        assertEquals(19, queued.ahead());
+        assertTrue(waitingRoom.status(rest.get(19).getNumber(), "alice").isEmpty());
+
+        gate.countDown();
+        assertEquals("first", waitingRoom.await(first).orElseThrow());
+        for (ReservationWaitingRoom.Ticket ticket : rest) {
+            assertEquals("ok", waitingRoom.await(ticket).orElseThrow());
+            assertTrue(ticket.getNumber() > first.getNumber());
+        }
+        assertEquals(IntStream.range(0, 20).boxed().toList(), served);
+        assertEquals(ReservationWaitingRoom.State.DONE, waitingRoom.status(first.getNumber(), "alice").orElseThrow().state());
+    }
+
+    @Test
+    void testFailureIsReportedToTicketHolder() {
+        ReservationWaitingRoom.Ticket ticket = waitingRoom.enter("carol", 1L, () -> {
+            throw new IllegalStateException("Already reserved");
+        });
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> waitingRoom.await(ticket));
+        assertEquals("Already reserved", e.getMessage());
+
+        ReservationWaitingRoom.Status status = waitingRoom.status(ticket.getNumber(), "carol").orElseThrow();
+        assertEquals(ReservationWaitingRoom.State.FAILED, status.state());
+        assertEquals("Already reserved", status.message());
+    }
+
+    @Test
+    void testSlowTitleDoesNotHoldUpOtherLanes() {
+        CountDownLatch gate = new CountDownLatch(1);
+        ReservationWaitingRoom.Ticket slow = waitingRoom.enter("alice", 1L, () -> {
+            await(gate);
+            return "slow";
+        });
+        Long other = LongStream.rangeClosed(2, 100)
+                .filter(id -> lanes.laneOf(id) != lanes.laneOf(1L))
+                .findFirst().orElseThrow();
+
+        ReservationWaitingRoom.Ticket fast = waitingRoom.enter("bob", other, () -> "fast");
+        assertEquals("fast", waitingRoom.await(fast).orElseThrow());
+        assertFalse(slow.getResult().isDone());
+        gate.countDown();
+        assertEquals("slow", waitingRoom.await(slow).orElseThrow());
+    }
+
+    @Test
+    void testTicketRunsItsQueueChangeInlineOnTheLane() {
+        // The ticket already runs on the title's lane: the lane call does not hop again
+        ReservationWaitingRoom.Ticket ticket = waitingRoom.enter("dave", 1L, () -> {
+            String ticketThread = Thread.currentThread().getName();
+            return ticketThread + "|" + lanes.call(1L, () -> Thread.currentThread().getName());
+        });
+
+        String[] threads = waitingRoom.await(ticket).orElseThrow().split("\\|");
+        assertTrue(threads[0].startsWith("reservation-lane-"));
+        assertEquals(threads[0], threads[1]);
+    }
+
+    @Test
+    void testShutdownFailsQueuedTickets() {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        ReservationWaitingRoom.Ticket running = waitingRoom.enter("alice", 1L, () -> {
+            started.countDown();
+            await(gate);
+            return "done";
+        });
+        await(started);
+        ReservationWaitingRoom.Ticket queued = waitingRoom.enter("bob", 1L, () -> "never");
+
+        waitingRoom.shutdown();
+        assertThrows(IllegalStateException.class, () -> waitingRoom.await(queued));
+        assertEquals(ReservationWaitingRoom.State.FAILED, waitingRoom.status(queued.getNumber(), "bob").orElseThrow().state());
+        assertThrows(IllegalStateException.class, () -> waitingRoom.enter("carol", 1L, () -> "late"));
+
+        // A ticket already running still gets its outcome, and is not purged before it is stamped
+        gate.countDown();
+        assertEquals("done", waitingRoom.await(running).orElseThrow());
+        assertTrue(running.getFinishedAt() > 0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.dto.ResourceCard;
+import com.bibliotheque.dto.ResourceSearchRequest;
+import com.bibliotheque.dto.ResourceSlice;
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.enums.Category;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class ResourceSearchServiceTest {
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private ResourceSearchService resourceSearchService;
+
+    private Resource book(String title, String author) {
+        Resource resource = new Book();
+        resource.setTitle(title);
+        resource.setAuthor(author);
+        resource.setCategory(Category.BOOK);
+        resource.setTotalCopies(1);
+        resource.setAvailableCopies(1);
+        return resourceService.save(resource);
+    }
+
+    private static List<String> titles(ResourceSlice<ResourceCard> slice) {
+        return slice.content().stream().map(ResourceCard::title).toList();
+    }
+
+    @Test
+    void testCursorsWalkEveryRowOnceInBothDirections() {
+        // Nullable sort key with ties, so seeking has to use the id tiebreaker and NULL ordering
+        book("Curseur 1", null);
+        book("Curseur 2", "Balzac");
+        book("Curseur 3", null);
+        book("Curseur 4", "Albert");
+        book("Curseur 5", "Balzac");
+        book("Curseur 6", "Zola");
+        book("Curseur 7", "Balzac");
+
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery("curseur");
+        request.setSort("author");
+        request.setDirection("desc");
+        request.setSize(10);
+
+        // The offset page with its COUNT is the reference order
+        List<String> expected = resourceSearchService.search(request).getContent().stream().map(ResourceCard::title).toList();
+        assertEquals(7, expected.size());
+        request.setSize(3);
+
+        List<List<String>> screens = new ArrayList<>();
+        ResourceSlice<ResourceCard> slice = resourceSearchService.browse(request);
+        assertFalse(slice.hasPrevious());
+        screens.add(titles(slice));
+        while (slice.hasNext()) {
+            request.setAfter(slice.next());
+            slice = resourceSearchService.browse(request);
+            screens.add(titles(slice));
+        }
+        assertEquals(expected, screens.stream().flatMap(List::stream).toList());
+
+        // And back to the first screen
+        request.setAfter(null);
+        for (int i = screens.size() - 2; i >= 0; i--) {
+            request.setBefore(slice.previous());
+            slice = resourceSearchService.browse(request);
+            assertEquals(screens.get(i), titles(slice));
+        }
+        assertFalse(slice.hasPrevious());
+    }
+
+    @Test
+    void testBroadMatchesKeepIndexSemanticsAcrossShares() {
+        // Matched on the description only, which the SQL text filter never looks at
+        for (int i = 1; i <= 7; i++) {
+            Resource resource = book("Volume " + i, i % 2 == 0 ? null : "Auteur " + (8 - i));
+            resource.setDescription("Recueil de nouvelles partagees");
+            resourceService.save(resource);
+        }
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery("nouvelles partagees");
+        request.setSort("author");
+        request.setSize(10);
+        List<String> expected = resourceSearchService.search(request).getContent().stream().map(ResourceCard::title).toList();
+        assertEquals(7, expected.size());
+
+        ReflectionTestUtils.setField(resourceSearchService, "maxCandidates", 2);
+        try {
+            request.setSize(3);
+            request.setPage(1);
+            Page<ResourceCard> page = resourceSearchService.search(request);
+            assertEquals(7, page.getTotalElements());
+            assertEquals(expected.subList(3, 6), page.getContent().stream().map(ResourceCard::title).toList());
+
+            request.setPage(0);
+            List<String> walked = new ArrayList<>();
+            ResourceSlice<ResourceCard> slice = resourceSearchService.browse(request);
+            walked.addAll(titles(slice));
+            while (slice.hasNext()) {
+                request.setAfter(slice.next());
+                slice = resourceSearchService.browse(request);
+                walked.addAll(titles(slice));
+            }
+            assertEquals(expected, walked);
+        } finally {
+            ReflectionTestUtils.setField(resourceSearchService, "maxCandidates", 2000);
+        }
+    }
+
+    @Test
+    void testCachedTotalsDropAResourceMovedToAnotherCategory() {
+        book("Quittecategorie 1", null);
+        book("Quittecategorie 2", null);
+        Resource moved = book("Quittecategorie 3", null);
+
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery("quittecategorie");
+        request.setCategory(Category.BOOK);
+        request.setSize(2);
+        assertEquals(3, resourceSearchService.search(request).getTotalElements());
+
+        // Past the cached screen, so only its old category ties it to the entry
+        Resource edited = resourceService.find(moved.getId()).orElseThrow();
+        edited.setCategory(Category.MAGAZINE);
+        resourceService.save(edited);
+        assertEquals(2, resourceSearchService.search(request).getTotalElements());
+    }
+
+    @Test
+    void testAccentedTitlesSortAndMatchWithTheirPlainForms() {
+        book("Zadig", "Voltaire");
+        book("Élise et les autres", "Élise Fontaine");
+        book("Emile", "Rousseau");
+        book("elise", "elise fontaine");
+        book("Antigone", "Anouilh");
+
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setSize(100);
+        List<String> order = titles(resourceSearchService.browse(request)).stream()
+                .filter(t -> List.of("Zadig", "Élise et les autres", "Emile", "elise", "Antigone").contains(t))
+                .toList();
+        assertEquals(List.of("Antigone", "elise", "Élise et les autres", "Emile", "Zadig"), order);
+
+        request.setAuthor("ELISE font");
+        assertEquals(2, resourceSearchService.browse(request).content().size());
+    }
+}
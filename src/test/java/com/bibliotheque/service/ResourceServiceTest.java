@@ -8,6 +8,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -25,6 +26,9 @@ public class ResourceServiceTest {
     @Mock
     private ResourceRepository resourceRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private ResourceService resourceService;
 
@@ -42,4 +46,19 @@ public class ResourceServiceTest {
         assertEquals("Test Resource", result.getContent().get(0).getTitle());
         verify(resourceRepository).findAll(any(Pageable.class));
     }
+
+    @Test
+    void testSaveDerivesFoldedSearchAndSortKeys() {
+        when(resourceRepository.save(any(Resource.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Resource resource = new Book();
+        resource.setTitle("Élise et les autres");
+        resource.setAuthor("Élise Fontaine");
+
+        Resource saved = resourceService.save(resource);
+
+        assertEquals("elise et les autres", saved.getTitleSearchKey());
+        assertEquals("elise fontaine", saved.getAuthorSearchKey());
+        assertNotNull(saved.getTitleSortKey());
+        assertNotNull(saved.getAuthorSortKey());
+    }
 }
@@ -0,0 +1,105 @@
+package com.bibliotheque.service;
+
+import com.bibliotheque.dto.ResourceSearchRequest;
+import com.bibliotheque.model.Book;
+import com.bibliotheque.model.Resource;
+import com.bibliotheque.model.enums.Category;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchResultCacheTest {
+
+    private static ResourceSearchRequest request(String query, Category category) {
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery(query);
+        request.setCategory(category);
+        return request;
+    }
+
+    private static SearchResultCache.Entry entry(long... ids) {
+        return new SearchResultCache.Entry(ids, ids.length, null, null);
+    }
+
+    private static Resource resource(long id, Category category) {
+        Resource resource = new Book();
+        resource.setId(id);
+        resource.setCategory(category);
+        return resource;
+    }
+
+    @Test
+    void testEquivalentRequestsShareAnEntry() {
+        SearchResultCache cache = new SearchResultCache();
+        cache.put(request("Victor  Hugo", null), SearchResultCache.PAGE, entry(1, 2), cache.generation());
+
+        assertTrue(cache.get(request("  victor hugo", null), SearchResultCache.PAGE).isPresent());
+        assertTrue(cache.get(request("victor hugo", null), SearchResultCache.SLICE).isEmpty());
+        assertTrue(cache.get(request("victor hugo ", null), SearchResultCache.PAGE).isEmpty());
+        assertEquals(1.0 / 3, cache.stats().hitRate(), 1e-9);
+    }
+
+    @Test
+    void testSaveEvictsOnlyEntriesItCanChange() {
+        SearchResultCache cache = new SearchResultCache();
+        cache.put(request(null, Category.BOOK), SearchResultCache.PAGE, entry(1, 2), cache.generation());
+        cache.put(request(null, Category.DVD), SearchResultCache.PAGE, entry(3), cache.generation());
+        cache.put(request(null, Category.MAGAZINE), SearchResultCache.PAGE, entry(4), cache.generation());
+
+        // Resource 3 moves from DVD to BOOK: both screens change, the magazines do not
+        cache.onResourceChanged(ResourceChangedEvent.saved(resource(3, Category.BOOK),
+                ResourceChangedEvent.Filters.of(resource(3, Category.DVD))));
+
+        assertTrue(cache.get(request(null, Category.BOOK), SearchResultCache.PAGE).isEmpty());
+        assertTrue(cache.get(request(null, Category.DVD), SearchResultCache.PAGE).isEmpty());
+        assertTrue(cache.get(request(null, Category.MAGAZINE), SearchResultCache.PAGE).isPresent());
+        assertEquals(2, cache.stats().invalidations());
+    }
+
+    @Test
+    void testResourceLeavingAFilterEvictsTheScreensItCountedIn() {
+        SearchResultCache cache = new SearchResultCache();
+        // Resource 5 is a BOOK counted in the total, but past this first screen
+        cache.put(request(null, Category.BOOK), SearchResultCache.PAGE, new SearchResultCache.Entry(new long[]{1, 2}, 3, null, null), cache.generation());
+        cache.put(request(null, Category.DVD), SearchResultCache.PAGE, entry(3), cache.generation());
+
+        Resource deactivated = resource(5, Category.BOOK);
+        deactivated.setActive(false);
+        cache.onResourceChanged(ResourceChangedEvent.saved(deactivated, ResourceChangedEvent.Filters.of(resource(5, Category.BOOK))));
+        assertTrue(cache.get(request(null, Category.BOOK), SearchResultCache.PAGE).isEmpty());
+        assertTrue(cache.get(request(null, Category.DVD), SearchResultCache.PAGE).isPresent());
+
+        cache.put(request(null, Category.BOOK), SearchResultCache.PAGE, new SearchResultCache.Entry(new long[]{1, 2}, 3, null, null), cache.generation());
+        cache.onResourceChanged(ResourceChangedEvent.saved(resource(6, Category.MAGAZINE), ResourceChangedEvent.Filters.of(resource(6, Category.BOOK))));
+        assertTrue(cache.get(request(null, Category.BOOK), SearchResultCache.PAGE).isEmpty());
+        assertTrue(cache.get(request(null, Category.DVD), SearchResultCache.PAGE).isPresent());
+    }
+
+    @Test
+    void testResultsComputedDuringAChangeAreNotCached() {
+        SearchResultCache cache = new SearchResultCache();
+        long generation = cache.generation();
+        cache.onAvailabilityChanged(new AvailabilityChangedEvent(9L));
+
+        cache.put(request("germinal", null), SearchResultCache.SLICE, entry(9), generation);
+
+        assertTrue(cache.get(request("germinal", null), SearchResultCache.SLICE).isEmpty());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntriesGoFirstWhenFull() {
+        SearchResultCache cache = new SearchResultCache();
+        ReflectionTestUtils.setField(cache, "maxIds", 7L);
+        cache.put(request("a", null), SearchResultCache.PAGE, entry(1, 2), cache.generation());
+        cache.put(request("b", null), SearchResultCache.PAGE, entry(3, 4), cache.generation());
+        cache.get(request("a", null), SearchResultCache.PAGE);
+
+        cache.put(request("c", null), SearchResultCache.PAGE, entry(5, 6), cache.generation());
+
+        assertTrue(cache.get(request("a", null), SearchResultCache.PAGE).isPresent());
+        assertTrue(cache.get(request("b", null), SearchResultCache.PAGE).isEmpty());
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(6, cache.stats().ids());
+    }
+}